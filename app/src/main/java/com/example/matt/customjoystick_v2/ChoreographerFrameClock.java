@@ -0,0 +1,168 @@
+package com.example.matt.customjoystick_v2;
+
+import android.view.Choreographer;
+
+import com.example.matt.customjoystick_v2.core.FrameClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * {@link FrameClock} backed by the {@link Choreographer} of the thread it was created on.
+ * <p>
+ * All callbacks posted to one clock share a single Choreographer frame callback, and the lists
+ * holding them are reused, so posting every frame does not allocate once the lists have grown to
+ * the number of callbacks in use. Delayed callbacks share a second one, posted for the earliest
+ * of them. Must only be used from the thread it was created on. </p>
+ */
+public class ChoreographerFrameClock implements FrameClock, Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final Choreographer choreographer;
+
+    /**
+     * Callbacks waiting for the next frame
+     */
+    private ArrayList<Callback> pending = new ArrayList<>();
+
+    /**
+     * Callbacks being run in the current frame; swapped with {@link #pending} so callbacks can post
+     * themselves again while they run
+     */
+    private ArrayList<Callback> running = new ArrayList<>();
+
+    /**
+     * Whether the Choreographer frame callback is posted
+     */
+    private boolean posted;
+
+    /**
+     * Callbacks waiting for a later frame, and the {@link System#nanoTime()} each is due at
+     */
+    private final ArrayList<Callback> delayed = new ArrayList<>();
+    private long[] dueTimes = new long[4];
+
+    /**
+     * Delayed callbacks that are due, being run
+     */
+    private final ArrayList<Callback> due = new ArrayList<>();
+
+    /**
+     * Runs the delayed callbacks that are due
+     */
+    private final Choreographer.FrameCallback delayedFrame = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            runDelayed(frameTimeNanos);
+        }
+    };
+
+    public ChoreographerFrameClock() {
+        choreographer = Choreographer.getInstance();
+    }
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        removeDelayed(callback);
+        if (pending.contains(callback)) {
+            return;
+        }
+        pending.add(callback);
+        if (!posted) {
+            posted = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void postFrameCallbackDelayed(Callback callback, long delay) {
+        if (delay <= 0) {
+            postFrameCallback(callback);
+            return;
+        }
+        if (pending.contains(callback) || delayed.contains(callback)) {
+            return;
+        }
+        if (delayed.size() == dueTimes.length) {
+            dueTimes = Arrays.copyOf(dueTimes, dueTimes.length * 2);
+        }
+        dueTimes[delayed.size()] = System.nanoTime() + delay * NANOS_PER_MILLI;
+        delayed.add(callback);
+        scheduleDelayed();
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        pending.remove(callback);
+        if (pending.isEmpty() && posted) {
+            posted = false;
+            choreographer.removeFrameCallback(this);
+        }
+        removeDelayed(callback);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+
+        ArrayList<Callback> callbacks = pending;
+        pending = running;
+        running = callbacks;
+
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).doFrame(frameTimeNanos);
+        }
+        callbacks.clear();
+    }
+
+    private void runDelayed(long frameTimeNanos) {
+        //Taken off the list before running, so callbacks can post themselves again while they run
+        long now = System.nanoTime();
+        int kept = 0;
+        for (int i = 0; i < delayed.size(); i++) {
+            if (dueTimes[i] - now <= 0) {
+                due.add(delayed.get(i));
+            } else {
+                dueTimes[kept] = dueTimes[i];
+                delayed.set(kept++, delayed.get(i));
+            }
+        }
+        for (int i = delayed.size() - 1; i >= kept; i--) {
+            delayed.remove(i);
+        }
+        scheduleDelayed();
+
+        for (int i = 0; i < due.size(); i++) {
+            due.get(i).doFrame(frameTimeNanos);
+        }
+        due.clear();
+    }
+
+    private void removeDelayed(Callback callback) {
+        int index = delayed.indexOf(callback);
+        if (index < 0) {
+            return;
+        }
+        delayed.remove(index);
+        System.arraycopy(dueTimes, index + 1, dueTimes, index, delayed.size() - index);
+        scheduleDelayed();
+    }
+
+    /**
+     * Posts the Choreographer callback of the delayed callbacks for the earliest of them, if any
+     */
+    private void scheduleDelayed() {
+        choreographer.removeFrameCallback(delayedFrame);
+        if (delayed.isEmpty()) {
+            return;
+        }
+        long earliest = dueTimes[0];
+        for (int i = 1; i < delayed.size(); i++) {
+            earliest = Math.min(earliest, dueTimes[i]);
+        }
+        //Rounded up, so the callback isn't early
+        long delay = (earliest - System.nanoTime() + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+        choreographer.postFrameCallbackDelayed(delayedFrame, Math.max(0, delay));
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.matt.customjoystick_v2;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.example.matt.customjoystick_v2.core.CharLine;
+import com.example.matt.customjoystick_v2.core.FrameClock;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+import com.example.matt.customjoystick_v2.core.LatencyHistogram;
+import com.example.matt.customjoystick_v2.core.PipelineMetrics;
+import com.example.matt.customjoystick_v2.core.QuantizedOutputs;
+import com.example.matt.customjoystick_v2.core.StalenessWatchdog;
+
+/**
+ * Debug readout of the outputs of a {@link JoystickView}, and optionally of its
+ * {@link PipelineMetrics}.
+ * <p>
+ * Replaces updating TextViews from the change listener, which formatted Strings and re-laid out
+ * the text for every change. The joystick tells the overlay when its outputs change; the overlay
+ * then reads a snapshot of them on the next display frame, at most once per frame, rebuilds its
+ * lines only when the version of the snapshot changed, formats the numbers into preallocated
+ * {@link CharLine}s and draws them with
+ * {@link Canvas#drawText(char[], int, int, float, float, Paint)}; nothing is allocated per frame.
+ * The metrics are refreshed a few times per second, since percentiles changing every frame can't
+ * be read anyway. Otherwise the overlay only wakes up when the watchdog of the joystick could
+ * change the outputs shown, so an idle overlay posts no frames. </p>
+ */
+public class DebugOverlayView extends View implements FrameClock.Callback {
+
+    /* ATTRIBUTES
+     * overlayTextColor - The color of the text
+     * overlayTextSize - The size of the text
+     */
+
+    /**
+     * Default text color
+     */
+    private final int DEFAULT_TEXT_COLOR = 0xFF000000;
+
+    /**
+     * Default text size in scaled pixels
+     */
+    private final int DEFAULT_TEXT_SIZE = 16;
+
+    /**
+     * Time between two refreshes of the metrics lines
+     */
+    private final long METRICS_INTERVAL_NANOS = 250000000L;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * Most characters in a line
+     */
+    private final int LINE_CAPACITY = 48;
+
+    private static final int LINE_PERCENTAGES = 0;
+    private static final int LINE_POSITIONS = 1;
+    private static final int LINE_STRENGTH = 2;
+    private static final int LINE_BUTTONS = 3;
+    private static final int LINE_RATE = 4;
+    private static final int LINE_TIMES = 5;
+
+    /*
+     ATTRIBUTE VARIABLES
+     */
+    private int mTextColor;
+    private float mTextSize;
+
+    private final FrameClock frameClock;
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final CharLine[] lines = new CharLine[LINE_TIMES + 1];
+
+    private JoystickView joystick;
+    private final JoystickState state = new JoystickState();
+
+    /**
+     * Version of the snapshot the lines were last built from
+     */
+    private int version;
+    private boolean hasState;
+
+    /**
+     * Whether the lines show the outputs as stale; the watchdog can make them stale without a new
+     * version
+     */
+    private boolean shownStale;
+
+    private PipelineMetrics metrics;
+    private final PipelineMetrics.Snapshot metricsSnapshot = new PipelineMetrics.Snapshot();
+    private long lastMetricsFrameNanos;
+
+    private boolean attached;
+
+    public DebugOverlayView(Context context, AttributeSet attrs) {
+        this(context, attrs, new ChoreographerFrameClock());
+    }
+
+    /**
+     * @param frameClock clock the overlay refreshes on; the view uses the display frame clock
+     *                   when inflated from a layout
+     */
+    public DebugOverlayView(Context context, AttributeSet attrs, FrameClock frameClock) {
+        super(context, attrs);
+        this.frameClock = frameClock;
+
+        TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(attrs,
+                R.styleable.DebugOverlayView, 0, 0);
+
+        try { //get attributes specified in attrs.xml
+            mTextColor = styledAttributes.getColor(R.styleable.DebugOverlayView_overlayTextColor, DEFAULT_TEXT_COLOR);
+            mTextSize  = styledAttributes.getDimension(R.styleable.DebugOverlayView_overlayTextSize,
+                    DEFAULT_TEXT_SIZE * getResources().getDisplayMetrics().scaledDensity);
+        } finally {
+            styledAttributes.recycle();
+        }
+
+        textPaint.setTypeface(Typeface.MONOSPACE); //columns of numbers don't shift while they change
+        textPaint.setColor(mTextColor);
+        textPaint.setTextSize(mTextSize);
+
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = new CharLine(LINE_CAPACITY);
+        }
+    }
+
+    /**
+     * @param joystick the joystick to show the outputs of, or null to show nothing
+     */
+    public void setJoystick(JoystickView joystick) {
+        if (this.joystick != null) {
+            this.joystick.setDebugOverlay(null);
+        }
+        this.joystick = joystick;
+        if (joystick != null) {
+            joystick.setDebugOverlay(this);
+        }
+        hasState = false;
+        for (CharLine line : lines) {
+            line.clear();
+        }
+        scheduleFrame();
+        invalidate();
+    }
+
+    /**
+     * Also shows the rate of the samples and the percentiles of the latencies from the metrics;
+     * pass the same metrics to {@link JoystickView#setMetrics(PipelineMetrics)}
+     *
+     * @param metrics the metrics to show, or null to only show the outputs
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        lastMetricsFrameNanos = 0;
+        lines[LINE_RATE].clear();
+        lines[LINE_TIMES].clear();
+        scheduleFrame();
+        requestLayout(); //the number of lines changed
+        invalidate();
+    }
+
+    public void setTextColor(int color) {
+        mTextColor = color;
+        textPaint.setColor(color);
+        invalidate();
+    }
+
+    public void setTextSize(float size) {
+        mTextSize = size;
+        textPaint.setTextSize(size);
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        scheduleFrame();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        attached = false;
+        frameClock.removeFrameCallback(this);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Called by the joystick every time its outputs change
+     */
+    void onJoystickChanged() {
+        scheduleFrame();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (joystick == null && metrics == null) {
+            return; //nothing to show; setJoystick or setMetrics post the frame again
+        }
+        boolean changed = false;
+
+        if (joystick != null) {
+            int current = joystick.readSnapshot(state);
+            if (!hasState || current != version || state.isStale() != shownStale) {
+                version = current;
+                hasState = true;
+                shownStale = state.isStale();
+                formatState();
+                changed = true;
+            }
+        }
+
+        if (metrics != null && frameTimeNanos - lastMetricsFrameNanos >= METRICS_INTERVAL_NANOS) {
+            lastMetricsFrameNanos = frameTimeNanos;
+            formatMetrics(metrics.snapshot(metricsSnapshot));
+            changed = true;
+        }
+
+        if (changed) {
+            invalidate();
+        }
+        scheduleRefresh(frameTimeNanos);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int lineCount = metrics != null ? lines.length : LINE_BUTTONS + 1;
+        int width = (int) Math.ceil(textPaint.measureText("0") * LINE_CAPACITY)
+                + getPaddingLeft() + getPaddingRight();
+        int height = (int) Math.ceil(textPaint.getFontSpacing() * lineCount)
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float x = getPaddingLeft();
+        float y = getPaddingTop() - textPaint.ascent();
+        float spacing = textPaint.getFontSpacing();
+        for (CharLine line : lines) {
+            if (line.length() > 0) {
+                canvas.drawText(line.getChars(), 0, line.length(), x, y, textPaint);
+                y += spacing;
+            }
+        }
+    }
+
+    private void scheduleFrame() {
+        if (attached && (joystick != null || metrics != null)) {
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Posts a frame for when the lines can change without the joystick changing: the next
+     * metrics refresh, and the deadline of the watchdog while it can make the outputs stale, or
+     * fresh again
+     */
+    private void scheduleRefresh(long frameTimeNanos) {
+        long wait = Long.MAX_VALUE;
+        if (metrics != null) {
+            wait = lastMetricsFrameNanos + METRICS_INTERVAL_NANOS - frameTimeNanos;
+        }
+        if (joystick != null) {
+            StalenessWatchdog watchdog = joystick.getWatchdog();
+            boolean canChange = shownStale ? watchdog.isStale(frameTimeNanos)
+                    : state.getQuantized() != 0 || state.getButtons() != 0;
+            if (canChange) {
+                wait = Math.min(wait, watchdog.getDeadline() * NANOS_PER_MILLI);
+            }
+        }
+        if (attached && wait != Long.MAX_VALUE) {
+            frameClock.postFrameCallbackDelayed(this, (wait + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+        }
+    }
+
+    private void formatState() {
+        lines[LINE_PERCENTAGES].clear()
+                .append("x ").appendPadded(state.getPercentageX(), 4).append('%')
+                .append("   y ").appendPadded(state.getPercentageY(), 4).append('%');
+        lines[LINE_POSITIONS].clear()
+                .append("pos ").appendPadded(state.getPosX(), 4).append(',').appendPadded(state.getPosY(), 4)
+                .append("  rel ").appendPadded(state.getRelativePosX(), 4).append(',').appendPadded(state.getRelativePosY(), 4);
+        int angle = QuantizedOutputs.getAngle(state.getQuantized());
+        lines[LINE_STRENGTH].clear()
+                .append("str ").append(state.getStrength(), 1).append('%')
+                .append("  ang ").append(angle * 360.0 / QuantizedOutputs.FULL_TURN, 1);
+        lines[LINE_BUTTONS].clear()
+                .append("btn ").append(state.getButtons())
+                .append("  seq ").append(state.getSequence())
+                .append(state.isStale() ? "  STALE" : "");
+    }
+
+    private void formatMetrics(PipelineMetrics.Snapshot snapshot) {
+        LatencyHistogram publish = snapshot.getInputToPublish();
+        lines[LINE_RATE].clear()
+                .append("rate ").append(Math.round(snapshot.getSamplesPerSecond())).append("/s")
+                .append("  pub p50 ").append(publish.getPercentile(0.5) / 1000)
+                .append(" p99 ").append(publish.getPercentile(0.99) / 1000).append(" us");
+        lines[LINE_TIMES].clear()
+                .append("touch p99 ").append(snapshot.getTouchProcessing().getPercentile(0.99) / 1000)
+                .append("  draw p99 ").append(snapshot.getDraw().getPercentile(0.99) / 1000).append(" us");
+    }
+}
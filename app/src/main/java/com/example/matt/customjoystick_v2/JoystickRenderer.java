@@ -0,0 +1,132 @@
+package com.example.matt.customjoystick_v2;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+
+/**
+ * Draws a joystick: the border and background, cached in a bitmap, and the thumbstick on top.
+ * <p>
+ * Shared by {@link JoystickView}, which draws in onDraw, and {@link JoystickSurfaceView}, which
+ * draws from its render thread, so both look the same. Not thread-safe; each thread drawing
+ * uses its own renderer and copies the style with {@link #set(JoystickRenderer)}. </p>
+ */
+final class JoystickRenderer {
+
+    private final Paint painter = new Paint();
+
+    private int layoutSize;
+    private int canvasPadding;
+    private int joystickColor;
+    private int borderColor;
+    private int borderSize;
+    private int thumbstickColor;
+    private int thumbstickRadius;
+
+    /**
+     * Cached drawing of the border and background; null until drawn or after the size or colors
+     * changed
+     */
+    private Bitmap baseLayer;
+
+    JoystickRenderer() {
+        painter.setStyle(Style.FILL);
+        painter.setAntiAlias(true);
+    }
+
+    /**
+     * Sets the look of the joystick; see the attributes of {@link JoystickView}
+     */
+    void setStyle(int canvasPadding, int joystickColor, int borderColor, int borderSize,
+                  int thumbstickColor, int thumbstickRadius) {
+        if (canvasPadding != this.canvasPadding || joystickColor != this.joystickColor
+                || borderColor != this.borderColor || borderSize != this.borderSize) {
+            releaseBaseLayer();
+        }
+        this.canvasPadding = canvasPadding;
+        this.joystickColor = joystickColor;
+        this.borderColor = borderColor;
+        this.borderSize = borderSize;
+        this.thumbstickColor = thumbstickColor;
+        this.thumbstickRadius = thumbstickRadius;
+    }
+
+    /**
+     * @param layoutSize size of the square the joystick is drawn in
+     */
+    void setLayoutSize(int layoutSize) {
+        if (layoutSize != this.layoutSize) {
+            releaseBaseLayer();
+            this.layoutSize = layoutSize;
+        }
+    }
+
+    /**
+     * Copies the size and look of another renderer
+     */
+    void set(JoystickRenderer other) {
+        setLayoutSize(other.layoutSize);
+        setStyle(other.canvasPadding, other.joystickColor, other.borderColor, other.borderSize,
+                other.thumbstickColor, other.thumbstickRadius);
+    }
+
+    /**
+     * @return radius in pixels of the thumbstick
+     */
+    int getThumbstickRadius() {
+        return thumbstickRadius;
+    }
+
+    /**
+     * Draws the joystick with the thumbstick at the given position
+     */
+    void draw(Canvas canvas, int thumbstickX, int thumbstickY) {
+        if (baseLayer == null) {
+            buildBaseLayer();
+        }
+        if (baseLayer != null) {
+            canvas.drawBitmap(baseLayer, 0, 0, null);
+        }
+
+        //Draw the thumbstick; the only part that changes while the joystick is used
+        painter.setColor(thumbstickColor);
+        canvas.drawCircle(thumbstickX, thumbstickY, thumbstickRadius, painter);
+    }
+
+    /**
+     * Frees the cached border and background; they are drawn again when needed
+     */
+    void releaseBaseLayer() {
+        if (baseLayer != null) {
+            baseLayer.recycle();
+            baseLayer = null;
+        }
+    }
+
+    /**
+     * Draws the parts of the joystick that don't move (border and background) into
+     * {@link #baseLayer} so drawing a frame only has to copy them
+     */
+    private void buildBaseLayer() {
+        if (layoutSize <= 0) {
+            return; //not measured yet
+        }
+        baseLayer = Bitmap.createBitmap(layoutSize, layoutSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(baseLayer);
+
+        //Represents half the width of the layout
+        float halfLayoutWidth = layoutSize / 2.0f;
+
+        //Radius of the circle is half the size of the layout minus half the size of the padding
+        float radius = halfLayoutWidth - (canvasPadding / 2.0f); //background radius
+
+        //Draw the joystick border
+        painter.setColor(borderColor);
+        canvas.drawCircle(halfLayoutWidth, halfLayoutWidth, radius, painter);
+
+        //Draw the joystick background
+        painter.setColor(joystickColor);
+        canvas.drawCircle(halfLayoutWidth, halfLayoutWidth, (radius - borderSize), painter);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.matt.customjoystick_v2;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Draws a {@link JoystickView} on its own surface from a dedicated render thread.
+ * <p>
+ * Redrawing a normal View goes through the whole view hierarchy on the UI thread. This view
+ * draws the joystick on a surface of its own instead: the render thread waits for the next
+ * vsync after the thumbstick moved, draws one frame and posts it, without touching the rest of
+ * the UI. Frames in which the thumbstick didn't move are not drawn at all. </p>
+ * <p>
+ * Place the {@link JoystickView} on top of this view with the same size, e.g. in a
+ * FrameLayout, and call {@link JoystickView#setRenderSurface(JoystickSurfaceView)}. The
+ * JoystickView keeps handling the touches but stops drawing itself and hands the thumbstick
+ * position and its style to this view. </p>
+ * <p>
+ * The surface is a media overlay: it sits above the window it is in, so the transparent
+ * corners show the views behind the joystick, but below other windows such as dialogs, popups
+ * and overlays. </p>
+ */
+public class JoystickSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    /**
+     * Used only by the render thread
+     */
+    private final JoystickRenderer renderer = new JoystickRenderer();
+
+    /**
+     * Style handed over by the UI thread; guarded by itself
+     */
+    private final JoystickRenderer pendingStyle = new JoystickRenderer();
+    private boolean styleChanged;
+
+    /**
+     * Thumbstick position to draw, x in the high and y in the low 32 bits
+     */
+    private volatile long position;
+
+    /**
+     * Position of the last frame drawn; only used by the render thread
+     */
+    private long drawnPosition;
+    private boolean drawnOnce;
+
+    /**
+     * Whether a frame is requested and not drawn yet
+     */
+    private volatile boolean frameRequested;
+
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+
+    /**
+     * Choreographer of the render thread; only used by the render thread
+     */
+    private Choreographer choreographer;
+
+    private SurfaceHolder surfaceHolder;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            drawFrame();
+        }
+    };
+
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (choreographer == null) {
+                choreographer = Choreographer.getInstance(); //of the render thread's looper
+            }
+            choreographer.postFrameCallback(frameCallback);
+        }
+    };
+
+    public JoystickSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().setFormat(PixelFormat.TRANSLUCENT); //the corners show what is behind
+        setZOrderMediaOverlay(true); //above its window but, unlike setZOrderOnTop, below dialogs
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Sets the size and look to draw with; called by {@link JoystickView} on the UI thread
+     */
+    void setStyle(JoystickRenderer style) {
+        synchronized (pendingStyle) {
+            pendingStyle.set(style);
+            styleChanged = true;
+        }
+        requestRender(position);
+    }
+
+    /**
+     * Asks for a frame with the thumbstick at the given position; called by {@link JoystickView}
+     * whenever the thumbstick moves.<!-- --> Cheap when a frame is already requested.
+     */
+    void requestRender(int thumbstickX, int thumbstickY) {
+        requestRender(((long) thumbstickX << 32) | (thumbstickY & 0xFFFFFFFFL));
+    }
+
+    private void requestRender(long newPosition) {
+        position = newPosition;
+        if (frameRequested) {
+            return; //the requested frame picks up the new position
+        }
+        Handler handler = renderHandler;
+        if (handler != null) {
+            frameRequested = true;
+            handler.post(scheduleFrame);
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        surfaceHolder = holder;
+        renderThread = new HandlerThread("JoystickRender");
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        drawnOnce = false;
+        frameRequested = false;
+        requestRender(position);
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        drawnOnce = false; //the new surface has to be drawn even if nothing moved
+        requestRender(position);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        //The surface is gone once this returns, so wait for the render thread to let go of it
+        final HandlerThread thread = renderThread;
+        renderHandler = null;
+        renderThread = null;
+        thread.quitSafely();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        surfaceHolder = null;
+        choreographer = null;
+        renderer.releaseBaseLayer();
+    }
+
+    /**
+     * Draws a frame on the render thread, unless nothing changed since the last one
+     */
+    private void drawFrame() {
+        frameRequested = false;
+        long frame = position;
+
+        boolean restyled;
+        synchronized (pendingStyle) {
+            restyled = styleChanged;
+            if (restyled) {
+                renderer.set(pendingStyle);
+                styleChanged = false;
+            }
+        }
+        if (drawnOnce && !restyled && frame == drawnPosition) {
+            return; //nothing moved; skip the frame
+        }
+
+        SurfaceHolder holder = surfaceHolder;
+        Canvas canvas = holder != null ? holder.lockCanvas() : null;
+        if (canvas == null) {
+            return; //surface not ready
+        }
+        try {
+            canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+            renderer.draw(canvas, (int) (frame >> 32), (int) frame);
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+        drawnPosition = frame;
+        drawnOnce = true;
+    }
+}
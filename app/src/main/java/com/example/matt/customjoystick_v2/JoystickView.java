@@ -3,11 +3,38 @@ package com.example.matt.customjoystick_v2;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Paint.Style;
+import android.graphics.Rect;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.example.matt.customjoystick_v2.core.AdaptiveRate;
+import com.example.matt.customjoystick_v2.core.ControllerAggregator;
+import com.example.matt.customjoystick_v2.core.FrameClock;
+import com.example.matt.customjoystick_v2.core.DeltaFilter;
+import com.example.matt.customjoystick_v2.core.DirectionalPad;
+import com.example.matt.customjoystick_v2.core.ExponentialFilter;
+import com.example.matt.customjoystick_v2.core.InputPipeline;
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickSnapshot;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+import com.example.matt.customjoystick_v2.core.MedianFilter;
+import com.example.matt.customjoystick_v2.core.MotionPredictor;
+import com.example.matt.customjoystick_v2.core.OneEuroFilter;
+import com.example.matt.customjoystick_v2.core.OutputPublisher;
+import com.example.matt.customjoystick_v2.core.PipelineMetrics;
+import com.example.matt.customjoystick_v2.core.RecenterAnimator;
+import com.example.matt.customjoystick_v2.core.ResponseCurve;
+import com.example.matt.customjoystick_v2.core.SampleRingBuffer;
+import com.example.matt.customjoystick_v2.core.SessionRecorder;
+import com.example.matt.customjoystick_v2.core.StalenessWatchdog;
+import com.example.matt.customjoystick_v2.core.TapGestureDetector;
+import com.example.matt.customjoystick_v2.core.TouchFilter;
+import com.example.matt.customjoystick_v2.core.WaitStrategy;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /* JAVADOC EXAMPLE
  * Returns an Image object that can then be painted on the screen.
@@ -31,7 +58,38 @@ import android.view.View;
  * @author Matthew Jordan
  */
 
-public class JoystickView extends View implements Runnable {
+public class JoystickView extends View {
+
+    /**
+     * Receives the outputs of the joystick after they changed
+     */
+    public interface OnJoystickChangeListener {
+
+        /**
+         * Called on the UI thread after touches have been processed
+         *
+         * @param joystick the joystick that changed
+         * @param state    the current outputs; the object is reused, so copy it with
+         *                 {@link JoystickState#set(JoystickState)} to keep it
+         */
+        void onJoystickChange(JoystickView joystick, JoystickState state);
+    }
+
+    /**
+     * Receives the direction of the joystick when used as a D-pad
+     */
+    public interface OnDirectionChangeListener {
+
+        /**
+         * Called on the UI thread only when the direction changed
+         *
+         * @param joystick  the joystick that changed direction
+         * @param direction the sector the thumbstick is in, counter-clockwise from the right, or
+         *                  {@link DirectionalPad#CENTER}
+         * @param flags     the {@link DirectionalPad} FLAG bits of the direction
+         */
+        void onDirectionChange(JoystickView joystick, int direction, int flags);
+    }
 
     /* ATTRIBUTES
      * layoutSize - The size of the view/layout; must be a square; value will be used to change
@@ -46,6 +104,10 @@ public class JoystickView extends View implements Runnable {
      *      after the user lets go of it.
      * autoRecenterDelay - The option to delay the recentering of the thumbstick; will only work if
      *      autoRecenterThumbstick is true.
+     * autoRecenterDuration - The time, in milliseconds, the thumbstick takes to move back to the
+     *      center; 0 jumps to the center
+     * autoRecenterEasing - The speed profile of the move back to the center: linear, easeOutQuad,
+     *      easeOutCubic or easeInOutQuad
      * physicalThreshold - A value from 0-100 representing the percentage the thumbstick must be
      *      pressed before the value output from the joystick will affect the object being
      *      controlled. The purpose of this is to eliminate the need to account for the error that a
@@ -58,13 +120,32 @@ public class JoystickView extends View implements Runnable {
      * enabled - PROBABLY DON'T NEED BECAUSE ANDROID COMES WITH THIS; JUST CHECK THE STATE OF THE
      *      DEFAULT OPTION FOR THIS [MAYBE]
      * doubleTapToPress - Boolean; Option to double tap the joystick to act a button press
+     * holdToPress - Boolean; Option to hold the thumbstick still for the long-press timeout to act
+     *      as a button press; off by default so a resting thumb doesn't press anything
      * doubleTapDelay - The amount of time, in milliseconds, the user has to tap a second time in
      *      order to register a double tap
      * doubleTapError - The amount of time, in milliseconds, the program will wait until looking for
      *      a second tap. MUST BE LESS THAN doubleTapDelay or will default to 10 less than, or a
      *      minimum overall value of [to be determined]
-     * refreshRate - the rate at which the view/layout updates in milliseconds; I think this uses
-     *      thread.sleep(); do more research
+     * refreshRate - the minimum time, in milliseconds, between two outputs published to the
+     *      OutputPublisher listener; publishing follows the display frame clock
+     * responseCurve - The shape of the output between the thresholds: linear, squared, cubic or
+     *      expo
+     * responseExpo - A value from 0-1 blending linear (0) and cubic (1); only used by the expo
+     *      responseCurve
+     * predictionHorizon - The time, in milliseconds, ahead of the touch the outputs are predicted
+     *      for to hide touch and display latency; 0 turns prediction off
+     * predictThumbstick - Boolean; The option to also draw the thumbstick at the predicted position
+     * touchFilter - The filter smoothing the jitter of a still finger out of the outputs: none,
+     *      oneEuro, exponential or median
+     * directionCount - The number of directions of the D-pad mode, e.g. 4 or 8; 0 turns it off,
+     *      1 is taken as 2 and more than 64 as 64
+     * directionDeadZone - A value from 0-100; the strength below which the direction is the center
+     * directionHysteresis - The angle, in degrees, the thumbstick must move past the edge of a
+     *      direction before the next direction is taken
+     * staleDeadline - The time, in milliseconds, the outputs stay fresh without a touch sample or
+     *      a frame with the finger resting on the joystick; after it readers get neutral outputs
+     *      marked stale
      */
 
     /* ADDITIONAL CONSIDERATIONS
@@ -121,6 +202,17 @@ public class JoystickView extends View implements Runnable {
      */
     private final int DEFAULT_AUTO_RECENTER_DELAY = 10;
 
+    /**
+     * Default time the thumbstick takes to move back to the center
+     */
+    private final int DEFAULT_AUTO_RECENTER_DURATION = 150; //milliseconds
+
+    /**
+     * Default speed profile of the move back to the center; index into
+     * {@link RecenterAnimator.Easing}
+     */
+    private final int DEFAULT_AUTO_RECENTER_EASING = 1; //easeOutQuad
+
     /**
      * Default physical threshold value
      */
@@ -141,6 +233,11 @@ public class JoystickView extends View implements Runnable {
      */
     private final boolean DEFAULT_DOUBLE_TAP_TO_PRESS = false;
 
+    /**
+     * Default state for the press-and-hold option
+     */
+    private final boolean DEFAULT_HOLD_TO_PRESS = false;
+
     /**
      * Default double tap delay time
      */
@@ -156,6 +253,78 @@ public class JoystickView extends View implements Runnable {
      */
     private final int DEFAULT_REFRESH_RATE = 20; //milliseconds
 
+    /**
+     * Default response curve; index into {@link ResponseCurve.Shape}
+     */
+    private final int DEFAULT_RESPONSE_CURVE = 0; //linear
+
+    /**
+     * Default blend between linear and cubic for the expo response curve
+     */
+    private final float DEFAULT_RESPONSE_EXPO = 0.5f;
+
+    /**
+     * Number of touch samples kept for consumers that have not drained them yet; about half a
+     * second at 240 Hz
+     */
+    private final int DEFAULT_SAMPLE_BUFFER_CAPACITY = 128;
+
+    /**
+     * Number of touch samples that can wait for the input pipeline thread before new ones are
+     * dropped
+     */
+    private final int DEFAULT_PIPELINE_CAPACITY = 256;
+
+    /**
+     * Default prediction horizon; prediction is off
+     */
+    private final int DEFAULT_PREDICTION_HORIZON = 0; //milliseconds
+
+    /**
+     * Default state for drawing the thumbstick at the predicted position
+     */
+    private final boolean DEFAULT_PREDICT_THUMBSTICK = false;
+
+    /**
+     * Default touch filter; none
+     */
+    private final int DEFAULT_TOUCH_FILTER = 0;
+
+    /**
+     * Time constant of the exponential touch filter
+     */
+    private final float DEFAULT_EXPONENTIAL_FILTER_TIME_CONSTANT = 20; //milliseconds
+
+    /**
+     * Number of samples the median touch filter takes the median of
+     */
+    private final int DEFAULT_MEDIAN_FILTER_SIZE = 5;
+
+    /**
+     * Default number of D-pad directions; the D-pad mode is off
+     */
+    private final int DEFAULT_DIRECTION_COUNT = 0;
+
+    /**
+     * Default D-pad dead zone
+     */
+    private final int DEFAULT_DIRECTION_DEAD_ZONE = 20;
+
+    /**
+     * How far above the D-pad dead zone the strength has to rise to leave it
+     */
+    private final int DEFAULT_DIRECTION_DEAD_ZONE_HYSTERESIS = 5;
+
+    /**
+     * Default D-pad hysteresis
+     */
+    private final int DEFAULT_DIRECTION_HYSTERESIS = 10; //degrees
+
+    /**
+     * Default time the outputs stay fresh without a sample or heartbeat
+     */
+    private final int DEFAULT_STALE_DEADLINE = 200; //milliseconds
+
     /*
     SETTINGS VARIABLES
      */
@@ -206,6 +375,16 @@ public class JoystickView extends View implements Runnable {
      */
     private int mAutoRecenterDelay;
 
+    /**
+     * Time in milliseconds the thumbstick takes to move back to the center
+     */
+    private int mAutoRecenterDuration;
+
+    /**
+     * Speed profile of the move back to the center
+     */
+    private RecenterAnimator.Easing mAutoRecenterEasing;
+
     /**
      * Value from 0-100 representing the percentage the thumbstick must be
      * pressed before the value output from the joystick will affect the object being
@@ -241,6 +420,11 @@ public class JoystickView extends View implements Runnable {
      */
     private boolean mDoubleTapToPress;
 
+    /**
+     * State for whether or not holding the thumbstick still acts a button press
+     */
+    private boolean mHoldToPress;
+
     /**
      * Value in milliseconds the user has to tap a second time in order to register a double tap
      */
@@ -254,74 +438,302 @@ public class JoystickView extends View implements Runnable {
     private int mDoubleTapError;
 
     /**
-     * Value in milliseconds representing the refresh rate of the joystick object
+     * Value in milliseconds representing the refresh rate of the joystick object; the minimum
+     * time between two published outputs
      */
     private int mRefreshRate;
 
+    /**
+     * Shape of the output between the give and physical thresholds
+     */
+    private ResponseCurve.Shape mResponseCurve;
+
+    /**
+     * Value from 0-1 blending linear (0) and cubic (1) for the expo response curve
+     */
+    private float mResponseExpo;
+
+    /**
+     * Time in milliseconds ahead of the touch the outputs are predicted for; 0 is off
+     */
+    private int mPredictionHorizon;
+
+    /**
+     * State for whether or not the thumbstick is drawn at the predicted position
+     */
+    private boolean mPredictThumbstick;
+
+    /**
+     * Filter smoothing the touch before it is run through the kernel, or null
+     */
+    private TouchFilter mTouchFilter;
+
+    /**
+     * Number of directions of the D-pad mode; 0 is off
+     */
+    private int mDirectionCount;
+
+    /**
+     * Value from 0-100; strength below which the D-pad direction is the center
+     */
+    private int mDirectionDeadZone;
+
+    /**
+     * Angle in degrees the thumbstick must move past the edge of a D-pad direction to leave it
+     */
+    private int mDirectionHysteresis;
+
+    /**
+     * Time in milliseconds the outputs stay fresh without a sample or heartbeat
+     */
+    private int mStaleDeadline;
+
     /*
      LOCAL VARIABLES
      */
 
     /**
-     * Value of the x-axis position of the thumbstick
+     * Size of the square the joystick is drawn in
+     */
+    private int layoutSize;
+
+    /**
+     * Position math of the joystick; runs on every touch sample
      */
-    private int posX;
+    private final JoystickKernel kernel = new JoystickKernel();
 
     /**
-     * Value of the y-axis position of the thumbstick
+     * Applies the give and physical thresholds and the response curve to the outputs
      */
-    private int posY;
+    private final ResponseCurve responseCurve = new ResponseCurve();
 
     /**
-     * How from the the center the thumbstick is
+     * Output values of the joystick; written by {@link #kernel}
      */
-    private float distanceFromCenter; //acts as "strength" in a sense; useful for diagonal movements
+    private final JoystickState state = new JoystickState();
 
     /**
-     * Angle of the thumbstick.<!-- --> Positive x-axis is zero.<!-- --> Default angle is
-     * referenced clockwise.
+     * Predicts the touch ahead of the latest sample while mPredictionHorizon is set
      */
-    private float angle;
+    private final MotionPredictor predictor = new MotionPredictor();
 
-    //TODO: Javadoc this
-    private int layoutSize;
-    private int center;
-    private float joystickRadius;
-    private int relativePosX;
-    private int relativePosY;
-    private int percentageX;
-    private int percentageY;
-    private float strength;
-
-    //Used to draw the image of the joystick
-    private Paint painter;
-
-    private Thread mThread = new Thread(this);
-
-    public void run() {
-        while (!Thread.interrupted()) {
-            //    System.out.println("X: " + posX + "  Y: " + posY);
-            //    System.out.println("distance from center: " + distanceFromCenter);
-            //    System.out.println("Joystick Radius: " + joystickRadius);
-            System.out.println("Angle: " + angle);
-            try {
-                Thread.sleep(mRefreshRate);
-            } catch (InterruptedException e) {
-                break;
+    /**
+     * Outputs of the touch itself while predicting; the thumbstick is drawn here unless
+     * mPredictThumbstick is set, and recentering starts from here
+     */
+    private final JoystickState unpredicted = new JoystickState();
+
+    /**
+     * Draws the joystick, with the border and background cached in a bitmap
+     */
+    private final JoystickRenderer renderer = new JoystickRenderer();
+
+    /**
+     * Surface the joystick is drawn on from a render thread instead of onDraw, or null
+     */
+    private JoystickSurfaceView renderSurface;
+
+    /**
+     * Area the thumbstick was last drawn in
+     */
+    private final Rect thumbstickBounds = new Rect();
+
+    /**
+     * Reused to invalidate the old and new area of the thumbstick
+     */
+    private final Rect dirtyRegion = new Rect();
+
+    /**
+     * Every processed touch sample, including the historical ones batched into move events
+     */
+    private final SampleRingBuffer samples = new SampleRingBuffer(DEFAULT_SAMPLE_BUFFER_CAPACITY);
+
+    /**
+     * Whether samples go into {@link #samples}; only while a consumer drains them, otherwise the
+     * buffer fills up once and keeps the first samples for good
+     */
+    private boolean sampleBufferEnabled;
+
+    /**
+     * Copy of the outputs that other threads can read without tearing
+     */
+    private final JoystickSnapshot snapshot = new JoystickSnapshot();
+
+    /**
+     * Numbers the outputs; shared with the pipeline so the numbers keep increasing across it
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Tells readers whether the outputs are still fresh; fed by every sample and, while a finger
+     * is on the joystick, by {@link #heartbeat} on every frame.<!-- --> Disarmed when the finger
+     * is lifted, so a thumbstick resting off-center doesn't go stale.
+     */
+    private final StalenessWatchdog watchdog;
+
+    /**
+     * Whether a finger is on the joystick, from the down until the up or cancel
+     */
+    private boolean touching;
+
+    /**
+     * Feeds the watchdog while a finger rests on the joystick, since no samples come then
+     */
+    private final FrameClock.Callback heartbeat = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (touching) {
+                watchdog.heartbeat(System.nanoTime());
+                frameClock.postFrameCallback(this);
+            }
+        }
+    };
+
+    private final FrameClock frameClock;
+
+    /**
+     * Publishes the outputs to the listener on display frames while they change
+     */
+    private final OutputPublisher publisher;
+
+    /**
+     * Publishes the outputs to the {@link OnJoystickChangeListener} through {@link #changeFilter}
+     */
+    private final OutputPublisher changePublisher;
+
+    /**
+     * Holds back outputs that didn't change by the minimum delta of the change listener
+     */
+    private final DeltaFilter changeFilter;
+
+    private OnJoystickChangeListener changeListener;
+
+    /**
+     * Maps the outputs to a D-pad direction while mDirectionCount is set
+     */
+    private final DirectionalPad directionalPad;
+
+    private OnDirectionChangeListener directionListener;
+
+    /**
+     * Publishes the outputs together with other controls while set
+     */
+    private ControllerAggregator controller;
+
+    /**
+     * Shows the outputs while set; told about every change so it doesn't poll
+     */
+    private DebugOverlayView debugOverlay;
+
+    /**
+     * Index of the joystick in {@link #controller}
+     */
+    private int controllerIndex;
+
+    /**
+     * Moves the thumbstick back to the center after it is let go of
+     */
+    private final RecenterAnimator recenterAnimator;
+
+    /**
+     * Recognizes taps, double taps, holds and tap-then-drags; its button flags are copied into
+     * the outputs
+     */
+    private final TapGestureDetector gestureDetector;
+
+    /**
+     * Receives the gestures recognized by {@link #gestureDetector}
+     */
+    private TapGestureDetector.Listener gestureListener;
+
+    /**
+     * Records every processed sample while set
+     */
+    private SessionRecorder recorder;
+
+    /**
+     * Measures the pipeline while set
+     */
+    private PipelineMetrics metrics;
+
+    /**
+     * Processes the touches on its own thread while set; the UI thread only hands samples over
+     */
+    private InputPipeline pipeline;
+
+    /**
+     * What the pipeline was started with; a change of the settings it copied restarts it with
+     * them
+     */
+    private WaitStrategy pipelineWaitStrategy;
+    private OutputPublisher.Listener pipelineStage;
+
+    /**
+     * Last pipeline stopped; its thread may still be finishing a batch, feeding the sample
+     * buffer and the recorder, until it is terminated
+     */
+    private InputPipeline stoppedPipeline;
+
+    /**
+     * Version of the pipeline outputs last copied into {@link #state}
+     */
+    private int pipelineVersion;
+
+    /**
+     * Asks for a redraw from the pipeline thread after every batch it processed
+     */
+    private final OutputPublisher.Listener pipelineRedraw = new OutputPublisher.Listener() {
+        @Override
+        public void onPublish(JoystickState state, long frameTimeNanos) {
+            postInvalidateOnAnimation(); //no-op while detached
+        }
+    };
+
+    /**
+     * Feeds the sample buffer and the recorder on the pipeline thread.<!-- --> Both are fixed
+     * for the pipeline; changing them restarts it.
+     */
+    private static final class PipelineSamples implements InputPipeline.SampleListener {
+
+        private final SampleRingBuffer buffer;
+        private final SessionRecorder recorder;
+
+        /**
+         * @param buffer   buffer to offer the samples to, or null
+         * @param recorder recorder to record the samples into, or null
+         */
+        PipelineSamples(SampleRingBuffer buffer, SessionRecorder recorder) {
+            this.buffer = buffer;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void onSample(int action, float x, float y, JoystickState state) {
+            if (buffer != null) {
+                buffer.offer(state);
+            }
+            if (recorder != null) {
+                recorder.record(action, x, y, state); //geometry changes included
             }
         }
     }
 
     public JoystickView(Context context, AttributeSet attrs) {
+        this(context, attrs, new ChoreographerFrameClock());
+    }
+
+    /**
+     * @param frameClock clock that drives publishing the outputs; the view uses the display
+     *                   frame clock when inflated from a layout
+     */
+    public JoystickView(Context context, AttributeSet attrs, FrameClock frameClock) {
         super(context, attrs);
+        this.frameClock = frameClock;
 
         //TODO: Figure out how to upgrade API if you want to use this
         //Overlapping rendering is for when a canvas is rendered opaquely on top of another canvas
         //this.forceHasOverlappingRendering(false); //Saves processing power
 
-        //Paint objects for drawing in onDraw
-        painter = new Paint();
-
         //Get the attributes specified in attrs.xml
         TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(attrs,
                 R.styleable.JoystickView, 0, 0);
@@ -334,7 +746,10 @@ public class JoystickView extends View implements Runnable {
             mAutoRecenterThumbstick = styledAttributes.getBoolean(R.styleable.JoystickView_autoRecenterThumbstick, DEFAULT_AUTO_RECENTER_THUMBSTICK);
             mEnabled                = styledAttributes.getBoolean(R.styleable.JoystickView_enabled,                DEFAULT_ENABLED);
             mDoubleTapToPress       = styledAttributes.getBoolean(R.styleable.JoystickView_doubleTapToPress,       DEFAULT_DOUBLE_TAP_TO_PRESS);
+            mHoldToPress            = styledAttributes.getBoolean(R.styleable.JoystickView_holdToPress,            DEFAULT_HOLD_TO_PRESS);
             mAutoRecenterDelay      = styledAttributes.getInteger(R.styleable.JoystickView_autoRecenterDelay, DEFAULT_AUTO_RECENTER_DELAY);
+            mAutoRecenterDuration   = styledAttributes.getInteger(R.styleable.JoystickView_autoRecenterDuration, DEFAULT_AUTO_RECENTER_DURATION);
+            mAutoRecenterEasing     = RecenterAnimator.Easing.values()[styledAttributes.getInt(R.styleable.JoystickView_autoRecenterEasing, DEFAULT_AUTO_RECENTER_EASING)];
             mPhysicalThreshold      = styledAttributes.getInteger(R.styleable.JoystickView_physicalThreshold, DEFAULT_PHYSICAL_THRESHOLD);
             mGiveThreshold          = styledAttributes.getInteger(R.styleable.JoystickView_giveThreshold,     DEFAULT_GIVE_THRESHOLD);
             mDoubleTapDelay         = styledAttributes.getInteger(R.styleable.JoystickView_doubleTapDelay,    DEFAULT_DOUBLE_TAP_DELAY);
@@ -343,23 +758,128 @@ public class JoystickView extends View implements Runnable {
             mJoystickColor          = styledAttributes.getColor(R.styleable.JoystickView_joystickColor,   DEFAULT_JOYSTICK_COLOR);
             mBorderColor            = styledAttributes.getColor(R.styleable.JoystickView_borderColor,     DEFAULT_BORDER_COLOR);
             mThumbstickColor        = styledAttributes.getColor(R.styleable.JoystickView_thumbstickColor, DEFUALT_THUMBSTICK_COLOR);
+            mResponseCurve          = ResponseCurve.Shape.values()[styledAttributes.getInt(R.styleable.JoystickView_responseCurve, DEFAULT_RESPONSE_CURVE)];
+            mResponseExpo           = styledAttributes.getFloat(R.styleable.JoystickView_responseExpo, DEFAULT_RESPONSE_EXPO);
+            mPredictionHorizon      = styledAttributes.getInteger(R.styleable.JoystickView_predictionHorizon, DEFAULT_PREDICTION_HORIZON);
+            mPredictThumbstick      = styledAttributes.getBoolean(R.styleable.JoystickView_predictThumbstick, DEFAULT_PREDICT_THUMBSTICK);
+            mTouchFilter            = createTouchFilter(styledAttributes.getInt(R.styleable.JoystickView_touchFilter, DEFAULT_TOUCH_FILTER));
+            mDirectionCount         = DirectionalPad.clampSectors(styledAttributes.getInteger(R.styleable.JoystickView_directionCount, DEFAULT_DIRECTION_COUNT));
+            mDirectionDeadZone      = styledAttributes.getInteger(R.styleable.JoystickView_directionDeadZone,   DEFAULT_DIRECTION_DEAD_ZONE);
+            mDirectionHysteresis    = styledAttributes.getInteger(R.styleable.JoystickView_directionHysteresis, DEFAULT_DIRECTION_HYSTERESIS);
+            mStaleDeadline          = styledAttributes.getInteger(R.styleable.JoystickView_staleDeadline,       DEFAULT_STALE_DEADLINE);
         } finally {
             styledAttributes.recycle();
         }
 
-        //These variables are set in onSizeChanged
-        center         = 0;
-        posX           = 0;
-        posY           = 0;
-        joystickRadius = 0;
-        relativePosX   = 0;
-        relativePosY   = 0;
+        updateRendererStyle();
+
+        //Precompute the response curve; applying it to a sample is then a table lookup
+        responseCurve.setThresholds(mGiveThreshold, mPhysicalThreshold);
+        responseCurve.setExpo(mResponseExpo);
+        responseCurve.setShape(mResponseCurve);
+        kernel.setResponseCurve(responseCurve);
+
+        predictor.setHorizon(mPredictionHorizon);
+
+        watchdog = new StalenessWatchdog(mStaleDeadline);
+
+        publisher = new OutputPublisher(frameClock, state, mRefreshRate);
+
+        changeFilter = new DeltaFilter(new OutputPublisher.Listener() {
+            @Override
+            public void onPublish(JoystickState state, long frameTimeNanos) {
+                if (changeListener != null) {
+                    changeListener.onJoystickChange(JoystickView.this, state);
+                }
+            }
+        });
+        changePublisher = new OutputPublisher(frameClock, state, 0);
+
+        directionalPad = new DirectionalPad(new DirectionalPad.Listener() {
+            @Override
+            public void onDirectionChange(int direction, int flags, long eventTime) {
+                if (directionListener != null) {
+                    directionListener.onDirectionChange(JoystickView.this, direction, flags);
+                }
+            }
+        });
+        directionalPad.setDeadZone(mDirectionDeadZone, DEFAULT_DIRECTION_DEAD_ZONE_HYSTERESIS);
+        directionalPad.setHysteresis(mDirectionHysteresis);
+        if (mDirectionCount > 0) {
+            directionalPad.setSectors(mDirectionCount);
+        }
+
+        recenterAnimator = new RecenterAnimator(frameClock, kernel, state, new RecenterAnimator.Listener() {
+            @Override
+            public void onRecenterStep(JoystickState state, boolean finished) {
+                //Every step is an output so whatever is controlled ramps down with the thumbstick
+                unpredicted.set(state);
+                onSampleProcessed(SessionRecorder.ACTION_RECENTER, state.getPosX(), state.getPosY());
+                onStateChanged();
+                invalidateThumbstick();
+            }
+        });
+        recenterAnimator.setDelay(mAutoRecenterDelay);
+        recenterAnimator.setDuration(mAutoRecenterDuration);
+        recenterAnimator.setEasing(mAutoRecenterEasing);
+
+        ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
+        gestureDetector = new TapGestureDetector(frameClock);
+        gestureDetector.setDoubleTapEnabled(mDoubleTapToPress);
+        gestureDetector.setHoldEnabled(mHoldToPress);
+        gestureDetector.setDoubleTapTiming(mDoubleTapDelay, mDoubleTapError);
+        gestureDetector.setTouchSlop(viewConfiguration.getScaledTouchSlop());
+        gestureDetector.setTimeouts(ViewConfiguration.getTapTimeout(), ViewConfiguration.getLongPressTimeout());
+        gestureDetector.setListener(new TapGestureDetector.Listener() {
+            @Override
+            public void onGesture(int gesture, long eventTime) {
+                //Holds and single taps can be recognized on a frame, without a touch event
+                if (state.getButtons() != gestureDetector.getButtons()) {
+                    state.setButtons(gestureDetector.getButtons());
+                    state.setSequence(sequence.incrementAndGet()); //a new output without a sample
+                    watchdog.onSample(state, System.nanoTime()); //a held button can go stale too
+                    onStateChanged();
+                }
+                if (gestureListener != null) {
+                    gestureListener.onGesture(gesture, eventTime);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        publisher.start();
+        changePublisher.start();
+    }
 
-        percentageX = 0;
-        percentageY = 0;
-        strength = 0;
+    @Override
+    protected void onDetachedFromWindow() {
+        if (touching) {
+            cancelTouch(SystemClock.uptimeMillis()); //the up will never come
+        } else if (recenterAnimator.isRunning()) { //no frames while detached; finish right away
+            recenterAnimator.cancel();
+            kernel.recenter(SystemClock.uptimeMillis(), state);
+            unpredicted.set(state);
+            onSampleProcessed(SessionRecorder.ACTION_RECENTER, kernel.getCenter(), kernel.getCenter());
+            onStateChanged();
+        }
+        gestureDetector.onCancel(SystemClock.uptimeMillis()); //drops pending timeouts
+        publisher.stop();
+        changePublisher.stop();
+        renderer.releaseBaseLayer(); //rebuilt when drawn again
+        super.onDetachedFromWindow();
+    }
 
-        mThread.start();
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (!hasWindowFocus && touching) {
+            //E.g. a dialog or the notification shade took over, or the app went to the background;
+            //the rest of the touch may never be delivered
+            cancelTouch(SystemClock.uptimeMillis());
+        }
     }
 
     @Override
@@ -369,39 +889,95 @@ public class JoystickView extends View implements Runnable {
         //TODO: Test whether max or min is better
         layoutSize = Math.min(w, h); //onDraw is called AFTER onSizeChanged so this is the best place to measure the layout
 
-        //All of these variables are dependent on layoutSize so they don't get set until here
-        center = layoutSize / 2;
-        posX = center;
-        posY = center;
-        relativePosX = center;
-        relativePosY = center;
-        joystickRadius = (layoutSize - mCanvasPadding) / 2.0f;
+        //The joystick geometry is dependent on layoutSize so it doesn't get set until here
+        kernel.setGeometry(layoutSize, mCanvasPadding);
+        kernel.recenter(SystemClock.uptimeMillis(), state);
+        state.setSequence(sequence.incrementAndGet());
+        unpredicted.set(state);
+        if (recorder != null && feedsSamples()) {
+            recorder.recordGeometry(layoutSize, mCanvasPadding, state);
+        }
+        if (pipeline != null) {
+            //The pipeline thread records the change itself
+            pipeline.offerGeometry(layoutSize, mCanvasPadding, SystemClock.uptimeMillis());
+        }
+        onStateChanged();
+
+        invalidateThumbstick(); //moves the thumbstick of the render surface too
+        invalidateBaseLayer();
     }
 
     @Override
     protected void onDraw(Canvas canvas){
-        //Represents half the width of the layout
-        float halfLayoutWidth = layoutSize / 2.0f;
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+
+        if (pipeline != null && pipeline.getVersion() != pipelineVersion) {
+            //The pipeline thread processed new samples; take its outputs for this frame
+            pipelineVersion = pipeline.readSnapshot(state);
+            if (touching) {
+                watchdog.onSample(state, System.nanoTime());
+            } else {
+                watchdog.onRelease(System.nanoTime()); //the touch ended; the outputs rest
+            }
+            unpredicted.set(state);
+            onStateChanged();
+            invalidateThumbstick(); //redraws the surface, if any; this frame covers the view
+        }
+
+        if (renderSurface == null) { //otherwise drawn by the render thread of the surface
+            JoystickState thumbstick = getDrawnState();
+            renderer.draw(canvas, thumbstick.getPosX(), thumbstick.getPosY());
+        }
 
-        //Prepare the painter
-        painter.setStyle(Style.FILL);
-        painter.setAntiAlias(true);
+        if (metrics != null) {
+            metrics.recordDraw(System.nanoTime() - startNanos);
+        }
+    }
 
-        //Radius of the circle is half the size of the layout minus half the size of the padding
-        float radius = halfLayoutWidth - (mCanvasPadding / 2.0f); //background radius
+    /**
+     * Hands the current size and colors to the renderer, and to the render surface if there is
+     * one
+     */
+    private void updateRendererStyle() {
+        renderer.setLayoutSize(layoutSize);
+        renderer.setStyle(mCanvasPadding, mJoystickColor, mBorderColor, mBorderSize,
+                mThumbstickColor, mThumbstickRadius);
+        if (renderSurface != null) {
+            renderSurface.setStyle(renderer);
+        }
+    }
 
-        //Draw the joystick border
-        painter.setColor(mBorderColor);
-        canvas.drawCircle(halfLayoutWidth, halfLayoutWidth, radius, painter);
+    /**
+     * Draws the joystick again with the current size and colors
+     */
+    private void invalidateBaseLayer() {
+        updateRendererStyle();
+        invalidate();
+    }
 
-        //Draw the joystick background
-        painter.setColor(mJoystickColor);
-        canvas.drawCircle(halfLayoutWidth, halfLayoutWidth, (radius - mBorderSize), painter);
+    /**
+     * Redraws only the area the thumbstick moved out of and into
+     */
+    private void invalidateThumbstick() {
+        if (renderSurface != null) {
+            JoystickState thumbstick = getDrawnState();
+            renderSurface.requestRender(thumbstick.getPosX(), thumbstick.getPosY());
+            return;
+        }
+        dirtyRegion.set(thumbstickBounds);
+        updateThumbstickBounds();
+        dirtyRegion.union(thumbstickBounds);
+        invalidate(dirtyRegion);
+    }
 
-        //TODO: This is the only circle required to be redrawn, see if I can take it out of onDraw
-        //Draw the thumbstick
-        painter.setColor(mThumbstickColor);
-        canvas.drawCircle(posX, posY, mThumbstickRadius, painter);
+    /**
+     * Sets {@link #thumbstickBounds} to the area the thumbstick is drawn in
+     */
+    private void updateThumbstickBounds() {
+        int radius = mThumbstickRadius + 1; //anti-aliasing can draw one pixel further out
+        JoystickState thumbstick = getDrawnState();
+        thumbstickBounds.set(thumbstick.getPosX() - radius, thumbstick.getPosY() - radius,
+                thumbstick.getPosX() + radius, thumbstick.getPosY() + radius);
     }
 
     //TODO: Make this process smoother - currently it is glitchy and I don't fully understand it
@@ -425,83 +1001,480 @@ public class JoystickView extends View implements Runnable {
 
     @Override //Runs when user is touching the View
     public boolean onTouchEvent(MotionEvent event) {
-        if (event.getAction() == MotionEvent.ACTION_UP) { //User releases their touch
-            if (mAutoRecenterThumbstick){
-                //TODO: Figure out how to add the autoRecenterDelay in here; Does it need a delay?
-                posX = center;
-                posY = center;
-            }
-            //TODO: Consider looking for double tap here?
-        } else {
-            posX = (int) event.getX();
-            posY = (int) event.getY();
-            System.out.println("event.getX() = " + posX);
-            System.out.println("event.getY() = " + posY);
-        }
-
-        relativePosX = posX - center;
-        relativePosY = center - posY; //because relative, flip positive direction
-
-        percentageX = (int) (relativePosX / joystickRadius * 100);
-        percentageY = (int) (relativePosY / joystickRadius * 100);
+        long startNanos = metrics != null ? System.nanoTime() : 0;
 
-        distanceFromCenter = (float) Math.sqrt((float) (Math.pow(relativePosX, 2) + Math.pow(relativePosY, 2)));
-
-        strength = distanceFromCenter / joystickRadius * 100;
-        if (strength > 100) { strength = 100; }
-
-        angle = (float) Math.atan2(relativePosY, relativePosX) * 100;
-
-        if (distanceFromCenter > joystickRadius) {
-            //Math to make the thumbstick not be drawn outside the bounds of the joystick
-            posX = (int) ( relativePosX * joystickRadius / distanceFromCenter + center);
-            posY = (int) (-relativePosY * joystickRadius / distanceFromCenter + center); //requires negative to draw correctly
+        if (!touching && event.getActionMasked() != MotionEvent.ACTION_DOWN) {
+            return true; //rest of a touch cancelled by a focus loss; wait for the next down
+        }
 
-            //Re-calculate position values based off new bounds (within joystickRadius)
-            relativePosX = posX - center;
-            relativePosY = center - posY; //because relative, flip positive direction
+        //Taps are recognized from the same touches that move the thumbstick
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                touching = true;
+                frameClock.postFrameCallback(heartbeat);
+                predictor.reset(); //a new touch; the old velocity doesn't apply
+                if (mTouchFilter != null) {
+                    mTouchFilter.reset();
+                }
+                gestureDetector.onDown(event.getX(), event.getY(), event.getEventTime());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                gestureDetector.onMove(event.getX(), event.getY(), event.getEventTime());
+                break;
+            case MotionEvent.ACTION_UP:
+                touching = false;
+                gestureDetector.onUp(event.getEventTime());
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                touching = false;
+                gestureDetector.onCancel(event.getEventTime());
+                break;
+        }
+        boolean buttonsChanged = state.getButtons() != gestureDetector.getButtons();
+        state.setButtons(gestureDetector.getButtons());
+
+        if (pipeline != null) {
+            //Only hand the samples over; the pipeline thread processes them and asks for a redraw
+            int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                offerToPipeline(MotionEvent.ACTION_MOVE, event.getHistoricalX(h), event.getHistoricalY(h),
+                        event.getHistoricalEventTime(h));
+            }
+            offerToPipeline(event.getActionMasked(), event.getX(), event.getY(), event.getEventTime());
+        } else if (event.getAction() == MotionEvent.ACTION_UP) { //User releases their touch
+            if (buttonsChanged) {
+                state.setSequence(sequence.incrementAndGet()); //a new output without a sample
+            }
+            //The thumbstick rests where it was let go of, or waits to recenter; that isn't a hang
+            watchdog.onRelease(System.nanoTime());
+            if (recorder != null && feedsSamples()) {
+                recorder.record(MotionEvent.ACTION_UP, event.getX(), event.getY(), state);
+            }
+            if (mAutoRecenterThumbstick){
+                //Waits autoRecenterDelay, then eases back to the center on the frame clock; from
+                //where the finger really was, not from ahead of it
+                JoystickState released = mPredictionHorizon > 0 ? unpredicted : state;
+                recenterAnimator.start(event.getEventTime() * 1000000L, released.getPosX(), released.getPosY());
+            }
+        } else if (event.getActionMasked() == MotionEvent.ACTION_CANCEL) {
+            //The touch was taken away, e.g. by a parent that intercepted it; don't leave the
+            //thumbstick where the finger was
+            neutralize(event.getEventTime());
+        } else {
+            recenterAnimator.cancel(); //the finger is back on the thumbstick
+
+            //A move event batches every sample since the last frame; process all of them in order
+            int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                processSample(MotionEvent.ACTION_MOVE, event.getHistoricalX(h), event.getHistoricalY(h),
+                        event.getHistoricalEventTime(h));
+            }
+
+            processSample(event.getActionMasked(), event.getX(), event.getY(), event.getEventTime());
+        }
+
+        if (pipeline == null) {
+            onStateChanged();
+            invalidateThumbstick();
+        }
+
+        if (metrics != null) {
+            metrics.recordTouchProcessing(System.nanoTime() - startNanos);
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs a touch sample through {@link #kernel}; while predicting, the outputs are computed for
+     * where the touch is predicted to be instead.<!-- --> The sample is kept with the coordinates
+     * the outputs were computed from, so a replay of a recording gets the same outputs.
+     */
+    private void processSample(int action, float x, float y, long eventTime) {
+        if (mTouchFilter != null) {
+            mTouchFilter.update(x, y, eventTime);
+            x = mTouchFilter.getX();
+            y = mTouchFilter.getY();
+        }
+
+        if (mPredictionHorizon <= 0) {
+            kernel.process(x, y, eventTime, state);
+            onSampleProcessed(action, x, y);
+            return;
+        }
+
+        predictor.update(x, y, eventTime);
+        float predictedX = predictor.getPredictedX();
+        float predictedY = predictor.getPredictedY();
+        kernel.process(predictedX, predictedY, eventTime, state);
+        //Drawn here unless mPredictThumbstick is set, and the recenter starts from here either way
+        kernel.process(x, y, eventTime, unpredicted);
+        onSampleProcessed(action, predictedX, predictedY);
+    }
+
+    /**
+     * Puts the thumbstick back to the center right away, with the buttons released, and marks
+     * the outputs stale
+     */
+    private void neutralize(long eventTime) {
+        recenterAnimator.cancel();
+        kernel.recenter(eventTime, state);
+        state.setButtons(0);
+        state.setStale(true);
+        unpredicted.set(state);
+        onSampleProcessed(SessionRecorder.ACTION_RECENTER, kernel.getCenter(), kernel.getCenter());
+    }
+
+    /**
+     * Ends the touch in progress as if it was cancelled; for when the rest of it won't be
+     * delivered
+     */
+    private void cancelTouch(long eventTime) {
+        touching = false;
+        frameClock.removeFrameCallback(heartbeat);
+        gestureDetector.onCancel(eventTime);
+        if (pipeline != null) {
+            offerToPipeline(MotionEvent.ACTION_CANCEL, kernel.getCenter(), kernel.getCenter(), eventTime);
+            return;
+        }
+        neutralize(eventTime);
+        onStateChanged();
+        invalidateThumbstick();
+    }
+
+    /**
+     * Hands a touch sample to the pipeline thread
+     */
+    private void offerToPipeline(int action, float x, float y, long eventTime) {
+        boolean offered = pipeline.offer(action, x, y, eventTime, state.getButtons());
+        if (metrics != null) {
+            metrics.onSample();
+            if (!offered) {
+                metrics.onDropped();
+            }
+        }
+    }
 
-            //Ensures percentages stay within -100 to 100
-            percentageX = (int) Math.ceil(relativePosX / joystickRadius * 100);
-            percentageY = (int) Math.ceil(relativePosY / joystickRadius * 100);
+    /**
+     * @param filter index of the touchFilter attribute: none, oneEuro, exponential or median
+     * @return the filter with its default settings, or null for none
+     */
+    private TouchFilter createTouchFilter(int filter) {
+        switch (filter) {
+            case 1:
+                return new OneEuroFilter();
+            case 2:
+                return new ExponentialFilter(DEFAULT_EXPONENTIAL_FILTER_TIME_CONSTANT);
+            case 3:
+                return new MedianFilter(DEFAULT_MEDIAN_FILTER_SIZE);
+            default:
+                return null;
         }
+    }
 
-        invalidate(); //Redraws everything
+    /**
+     * @return the outputs the thumbstick is drawn at
+     */
+    private JoystickState getDrawnState() {
+        return mPredictionHorizon > 0 && !mPredictThumbstick ? unpredicted : state;
+    }
 
+    /**
+     * Keeps the outputs just computed from a sample; called after every sample run through
+     * {@link #kernel}
+     *
+     * @param action MotionEvent action of the sample or one of the SessionRecorder ACTION constants
+     * @param x      x the outputs were computed from
+     * @param y      y the outputs were computed from
+     */
+    private void onSampleProcessed(int action, float x, float y) {
+        state.setSequence(sequence.incrementAndGet());
+        watchdog.onSample(state, System.nanoTime());
+        if (metrics != null) {
+            metrics.onSample();
+        }
+        if ((sampleBufferEnabled || recorder != null) && feedsSamples()) {
+            if (sampleBufferEnabled) {
+                samples.offer(state); //overflow is counted by the buffer, not as a dropped sample
+            }
+            if (recorder != null) {
+                recorder.record(action, x, y, state);
+            }
+        }
+    }
+
+    /**
+     * @return whether the UI thread feeds the sample buffer and the recorder: not while a
+     *         pipeline thread does, nor until a stopped one finished its last batch, since both
+     *         only take one writer
+     */
+    private boolean feedsSamples() {
+        if (pipeline != null) {
+            return false;
+        }
+        if (stoppedPipeline != null) {
+            if (!stoppedPipeline.isTerminated()) {
+                return false; //drops the samples of the few microseconds left of its batch
+            }
+            stoppedPipeline = null;
+        }
         return true;
     }
 
+    /**
+     * Shares new outputs with other threads and the publisher; called after every change to
+     * {@link #state}
+     */
+    private void onStateChanged() {
+        snapshot.write(state);
+        publisher.markChanged();
+        if (changeListener != null) {
+            changePublisher.markChanged();
+        }
+        if (mDirectionCount > 0) {
+            directionalPad.update(state); //reports only a change of direction
+        }
+        if (controller != null) {
+            controller.markChanged(controllerIndex);
+        }
+        if (debugOverlay != null) {
+            debugOverlay.onJoystickChanged();
+        }
+    }
+
     /*
     GETTERS
     TODO: Determine whether getters for attribute values are needed or if there is a built-in way
+    The value getters read the live state and must be called from the UI thread; other threads
+    use readSnapshot
+     */
+
+    /**
+     * Copies every output value, all from the same touch sample.<!-- --> Safe to call from any
+     * thread; never blocks the UI thread. Outputs that went stale, see {@link #isStale()}, are
+     * copied as neutral outputs with {@link JoystickState#isStale()} set.
+     *
+     * @param out the state to copy the values into
+     * @return the version of the values; it changes every time the outputs change
+     */
+    public int readSnapshot(JoystickState out){
+        int version = snapshot.read(out);
+        watchdog.apply(out, System.nanoTime());
+        return version;
+    }
+
+    /**
+     * Tells whether the outputs can still be trusted.<!-- --> They are stale after a touch ended
+     * without being let go of (a cancel, a loss of window focus or the view being detached), or
+     * when, away from neutral, neither a sample nor a frame with the finger on the joystick came
+     * within the stale deadline, e.g. because the UI thread hangs. Safe to call from any thread.
+     *
+     * @return whether the outputs are stale; they are or will be neutral then
+     */
+    public boolean isStale(){
+        return snapshot.isStale() || watchdog.isStale(System.nanoTime());
+    }
+
+    /**
+     * @return the watchdog of the outputs, e.g. for
+     *         {@link com.example.matt.customjoystick_v2.core.UdpTransport#setWatchdog}
+     */
+    public StalenessWatchdog getWatchdog(){
+        return watchdog;
+    }
+
+    /**
+     * Returns the buffer holding every processed touch sample with its timestamp, including the
+     * intermediate samples Android batches into a single move event.<!-- --> A single consumer
+     * thread can drain it; samples are dropped, and counted, while the buffer is full. Samples
+     * only go into it while {@link #setSampleBufferEnabled(boolean) enabled}.
+     *
+     * @return the sample buffer
+     */
+    public SampleRingBuffer getSampleBuffer(){
+        return samples;
+    }
+
+    /**
+     * Starts or stops filling the {@link #getSampleBuffer() sample buffer}.<!-- --> Enable it
+     * while a consumer drains the buffer; nothing is kept otherwise, so a consumer attaching later
+     * gets recent samples instead of the first ones of the session.
+     *
+     * @param enabled whether processed samples go into the buffer
+     */
+    public void setSampleBufferEnabled(boolean enabled){
+        sampleBufferEnabled = enabled;
+        restartInputPipeline();
+    }
+
+    /**
+     * Draws the joystick on a {@link JoystickSurfaceView} from its render thread instead of in
+     * onDraw, so moving the thumbstick no longer redraws the view hierarchy.<!-- --> Place this
+     * view on top of the surface view, with the same size; it keeps handling the touches.
+     *
+     * @param surface the surface to draw on, or null to draw in onDraw again
+     */
+    public void setRenderSurface(JoystickSurfaceView surface){
+        renderSurface = surface;
+        if (surface != null) {
+            surface.setStyle(renderer);
+            invalidateThumbstick();
+            renderer.releaseBaseLayer(); //not drawn by this view anymore
+        }
+        invalidate();
+    }
+
+    /**
+     * Moves the processing of the touches to a dedicated thread.<!-- --> From then on the UI
+     * thread only hands raw samples to an {@link InputPipeline}; its thread runs the touch
+     * filter, the response curve and the given stage (e.g. encoding and sending the outputs), and
+     * the view draws whatever it last processed. Slow stages only make the pipeline fall behind,
+     * which {@link InputPipeline#getBacklog()} and {@link InputPipeline#getDroppedCount()} show,
+     * instead of making the UI jank.
+     * <p>
+     * The pipeline thread also feeds the {@link #getSampleBuffer() sample buffer} and the
+     * {@link #setSessionRecorder(SessionRecorder) recorder}. It works on copies of the touch
+     * filter and the response curve; changing them, the auto recentering, the sample buffer or
+     * the recorder restarts it with the new settings, dropping the samples still waiting for it.
+     * The thumbstick is recentered right away when let go of; the recenter animation and
+     * prediction only run without a pipeline. </p>
+     *
+     * @param waitStrategy how the pipeline thread waits for samples, e.g.
+     *                     {@link com.example.matt.customjoystick_v2.core.ParkingWaitStrategy}
+     * @param stage        gets the outputs on the pipeline thread after every batch of samples,
+     *                     or null
+     * @return the started pipeline; a restart replaces it, see {@link #getInputPipeline()}
+     */
+    public InputPipeline startInputPipeline(WaitStrategy waitStrategy, OutputPublisher.Listener stage){
+        stopInputPipeline();
+        pipelineWaitStrategy = waitStrategy;
+        pipelineStage = stage;
+
+        //The pipeline thread gets its own copy of the math; the view's keeps drawing recenters
+        JoystickKernel pipelineKernel = new JoystickKernel();
+        ResponseCurve pipelineCurve = new ResponseCurve();
+        pipelineCurve.set(responseCurve);
+        pipelineKernel.setResponseCurve(pipelineCurve);
+
+        pipeline = new InputPipeline(pipelineKernel, DEFAULT_PIPELINE_CAPACITY, waitStrategy);
+        pipeline.setSequence(sequence); //numbering continues on the pipeline thread
+        pipeline.setTouchFilter(mTouchFilter != null ? mTouchFilter.copy() : null);
+        pipeline.setAutoRecenter(mAutoRecenterThumbstick);
+        if (sampleBufferEnabled || recorder != null) {
+            pipeline.setSampleListener(new PipelineSamples(sampleBufferEnabled ? samples : null, recorder));
+        }
+        //The stages and the sample listener only run on one thread at a time
+        pipeline.setPrevious(stoppedPipeline);
+        if (stage != null) {
+            pipeline.addStage(stage);
+        }
+        pipeline.addStage(pipelineRedraw);
+        pipeline.start();
+
+        recenterAnimator.cancel();
+        pipelineVersion = pipeline.getVersion();
+        if (layoutSize > 0) {
+            pipeline.offerGeometry(layoutSize, mCanvasPadding, SystemClock.uptimeMillis());
+        }
+        return pipeline;
+    }
+
+    /**
+     * Stops the pipeline thread, if any, and processes the touches on the UI thread again.<!-- -->
+     * Doesn't wait for the pipeline thread; it finishes its batch on its own copies of the math,
+     * and the UI thread only feeds the sample buffer and the recorder again once it has.
+     */
+    public void stopInputPipeline(){
+        if (pipeline != null) {
+            pipeline.close();
+            stoppedPipeline = pipeline;
+            pipeline = null;
+            if (mTouchFilter != null) {
+                mTouchFilter.reset();
+            }
+        }
+    }
+
+    /**
+     * Restarts the pipeline thread, if any, so it picks up changed settings
      */
+    private void restartInputPipeline(){
+        if (pipeline != null) {
+            startInputPipeline(pipelineWaitStrategy, pipelineStage);
+        }
+    }
+
+    /**
+     * @return the pipeline processing the touches, or null while they are processed on the UI
+     *         thread
+     */
+    public InputPipeline getInputPipeline(){
+        return pipeline;
+    }
+
+    /**
+     * Starts or stops measuring the latency and throughput of the view: input to publish, touch
+     * processing and draw times and processed, dropped and coalesced samples.<!-- --> Take
+     * snapshots of the metrics from any thread.
+     *
+     * @param metrics the metrics to record into, or null to stop measuring
+     */
+    public void setMetrics(PipelineMetrics metrics){
+        this.metrics = metrics;
+        publisher.setMetrics(metrics);
+    }
+
+    /**
+     * Starts or stops recording the touch samples and the outputs computed from them, e.g. to
+     * replay a session with {@link com.example.matt.customjoystick_v2.core.SessionReplayer}.<!-- -->
+     * Create, flush and close the recorder off the UI thread; while an input pipeline runs,
+     * only close it once the pipeline it was handed to is
+     * {@link InputPipeline#isTerminated() terminated}.
+     *
+     * @param recorder the recorder to record into, or null to stop recording
+     */
+    public void setSessionRecorder(SessionRecorder recorder){
+        this.recorder = recorder;
+        if (pipeline != null) {
+            restartInputPipeline(); //the new pipeline records the geometry first
+        } else if (recorder != null && layoutSize > 0 && feedsSamples()) {
+            recorder.recordGeometry(layoutSize, mCanvasPadding, state); //replays need the geometry the samples were made with
+        }
+    }
 
     /**
      * @return the x-axis value of the thumbstick
      */
     public int getXPos(){
-        return posX;
+        return state.getPosX();
     }
 
     /**
      * @return the y-axis value of the thumbstick
      */
     public int getYPos(){
-        return posY;
+        return state.getPosY();
     }
 
     /**
      * @return the distance the thumbstick is from the center of the joystick
      */
     public float getDistanceFromCenter(){
-        return distanceFromCenter;
+        return state.getDistanceFromCenter();
+    }
+
+    /**
+     * @return the percentage, from 0 to 100, the thumbstick is pushed away from the center
+     */
+    public float getStrength(){
+        return state.getStrength();
     }
 
     /**
      * @return the angle (relative clockwise) the thumbstick is at
      */
     public float getAngle(){
-        return angle;
+        return state.getAngle();
     }
 
     /**
@@ -510,32 +1483,385 @@ public class JoystickView extends View implements Runnable {
      */
     public float getAngle(boolean clockwise){
         if (clockwise) {
-            return angle;
+            return state.getAngle();
         } else {
-            return 360 - angle;
+            return 360 - state.getAngle();
         }
     }
 
     //TODO: Javadoc
     public int getPercentageX(){
-        return percentageX;
+        return state.getPercentageX();
     }
 
     //TODO: Javadoc
     public int getPercentageY(){
-        return percentageY;
+        return state.getPercentageY();
     }
 
     //TODO: Javadoc
     public int getRelativePosX(){
-        return relativePosX;
+        return state.getRelativePosX();
     }
 
     //TODO: Javadoc
     public int getRelativePosY(){
-        return relativePosY;
+        return state.getRelativePosY();
+    }
+
+    /**
+     * @return the axes, strength and angle as fixed-point integers packed into one long; unpack
+     *         them with {@link com.example.matt.customjoystick_v2.core.QuantizedOutputs}
+     */
+    public long getQuantizedOutputs(){
+        return state.getQuantized();
+    }
+
+    /**
+     * @return the number of the latest output; one higher for every processed sample
+     */
+    public long getSequence(){
+        return state.getSequence();
+    }
+
+    /**
+     * @return the D-pad direction, counter-clockwise from the right, or
+     *         {@link DirectionalPad#CENTER}; always the center while the D-pad mode is off
+     */
+    public int getDirection(){
+        return directionalPad.getDirection();
+    }
+
+    /**
+     * @return the {@link DirectionalPad} FLAG bits of the D-pad direction
+     */
+    public int getDirectionFlags(){
+        return directionalPad.getFlags();
     }
     /* SETTERS
      * TODO: Determine whether setters for attribute values are need or if there is a built-in way
      */
+
+    /**
+     * Sets the listener that receives the outputs.<!-- --> Outputs are published on display
+     * frames, at most once every refreshRate milliseconds and only while they change.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setOnPublishListener(OutputPublisher.Listener listener){
+        publisher.setListener(listener);
+    }
+
+    /**
+     * Publishes the outputs to the publish listener at a rate that follows the motion of the
+     * thumbstick instead of every refreshRate milliseconds: fast while it moves, decaying to a
+     * slow rate while it is nearly still, and right away once it is back at the center
+     *
+     * @param rate the rates and thresholds, or null to publish every refreshRate milliseconds
+     */
+    public void setAdaptivePublishRate(AdaptiveRate rate){
+        publisher.setAdaptiveRate(rate);
+    }
+
+    /**
+     * Sets the listener that receives the outputs after every change, at most once per display
+     * frame.<!-- --> Changes between two callbacks are coalesced: the listener only gets the
+     * latest outputs, so a slow listener never falls behind.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setOnJoystickChangeListener(OnJoystickChangeListener listener){
+        setOnJoystickChangeListener(listener, 0, 0, 0);
+    }
+
+    /**
+     * Sets the listener that receives the outputs after they changed by a minimum delta, at most
+     * maxRate times per second.<!-- --> Changes between two callbacks are coalesced: the listener
+     * only gets the latest outputs, so a slow listener never falls behind. Button changes and
+     * the thumbstick getting back to the center are always reported.
+     *
+     * @param listener  the listener, or null to remove it
+     * @param minDeltaX smallest change of the x-axis percentage reported
+     * @param minDeltaY smallest change of the y-axis percentage reported
+     * @param maxRate   most callbacks per second; 0 allows one every display frame
+     */
+    public void setOnJoystickChangeListener(OnJoystickChangeListener listener, int minDeltaX,
+                                            int minDeltaY, int maxRate){
+        changeListener = listener;
+        changeFilter.setMinimumDelta(minDeltaX, minDeltaY);
+        changeFilter.reset();
+        changePublisher.setRefreshRate(maxRate > 0 ? 1000 / maxRate : 0);
+        changePublisher.setListener(listener != null ? changeFilter : null);
+        if (listener != null) {
+            changePublisher.markChanged(); //reports the current outputs
+        }
+    }
+
+    /**
+     * Publishes the outputs of the joystick on the shared tick of a controller, together with
+     * every other control registered with it, instead of on a stream of their own.<!-- --> A
+     * joystick can only be added to one controller and stays in it. The controller publishes the
+     * outputs stale once {@link #getWatchdog() the watchdog} says so.
+     *
+     * @param controller the controller; it has to run on the UI thread's frame clock
+     * @return the index of the joystick in the controller
+     */
+    public int addToController(ControllerAggregator controller){
+        if (this.controller != null) {
+            throw new IllegalStateException("Already added to a controller");
+        }
+        controllerIndex = controller.register(snapshot, watchdog);
+        this.controller = controller;
+        return controllerIndex;
+    }
+
+    /**
+     * @param overlay the overlay showing the outputs, or null; set by
+     *                {@link DebugOverlayView#setJoystick(JoystickView)}
+     */
+    void setDebugOverlay(DebugOverlayView overlay){
+        debugOverlay = overlay;
+    }
+
+    /**
+     * Sets the listener that receives the D-pad direction every time it changes; set the number
+     * of directions with {@link #setDirectionCount(int)}
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setOnDirectionChangeListener(OnDirectionChangeListener listener){
+        directionListener = listener;
+    }
+
+    /**
+     * Sets the listener that receives taps, double taps, holds and tap-then-drags.<!-- --> The
+     * gestures are also in the outputs as {@link TapGestureDetector#BUTTON_PRESS} (second touch of
+     * a double tap) and {@link TapGestureDetector#BUTTON_HOLD} button flags.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setOnGestureListener(TapGestureDetector.Listener listener){
+        gestureListener = listener;
+    }
+
+    /**
+     * @param doubleTapToPress whether double tapping the joystick acts as a button press
+     */
+    public void setDoubleTapToPress(boolean doubleTapToPress){
+        mDoubleTapToPress = doubleTapToPress;
+        gestureDetector.setDoubleTapEnabled(doubleTapToPress);
+    }
+
+    /**
+     * @param holdToPress whether holding the thumbstick still for the long-press timeout acts as
+     *                    a button press
+     */
+    public void setHoldToPress(boolean holdToPress){
+        mHoldToPress = holdToPress;
+        gestureDetector.setHoldEnabled(holdToPress);
+    }
+
+    /**
+     * @param autoRecenterThumbstick whether the thumbstick goes back to the center when let go of
+     */
+    public void setAutoRecenterThumbstick(boolean autoRecenterThumbstick){
+        mAutoRecenterThumbstick = autoRecenterThumbstick;
+        restartInputPipeline();
+    }
+
+    /**
+     * @param delay time in milliseconds the thumbstick waits before moving back to the center
+     */
+    public void setAutoRecenterDelay(int delay){
+        mAutoRecenterDelay = delay;
+        recenterAnimator.setDelay(delay);
+    }
+
+    /**
+     * @param duration time in milliseconds the thumbstick takes to move back to the center
+     */
+    public void setAutoRecenterDuration(int duration){
+        mAutoRecenterDuration = duration;
+        recenterAnimator.setDuration(duration);
+    }
+
+    /**
+     * @param easing speed profile of the move back to the center
+     */
+    public void setAutoRecenterEasing(RecenterAnimator.Easing easing){
+        mAutoRecenterEasing = easing;
+        recenterAnimator.setEasing(easing);
+    }
+
+    /**
+     * @param giveThreshold value from 0-100 representing the percentage the thumbstick must be
+     *                      pressed before the joystick values increase above 0
+     */
+    public void setGiveThreshold(int giveThreshold){
+        mGiveThreshold = giveThreshold;
+        responseCurve.setThresholds(mGiveThreshold, mPhysicalThreshold);
+        restartInputPipeline();
+    }
+
+    /**
+     * @param physicalThreshold value from 0-100 the joystick values jump to once they increase
+     *                          above 0
+     */
+    public void setPhysicalThreshold(int physicalThreshold){
+        mPhysicalThreshold = physicalThreshold;
+        responseCurve.setThresholds(mGiveThreshold, mPhysicalThreshold);
+        restartInputPipeline();
+    }
+
+    /**
+     * @param shape shape of the output between the thresholds; use
+     *              {@link #setResponseCurvePoints(float[], float[])} for a custom shape
+     */
+    public void setResponseCurve(ResponseCurve.Shape shape){
+        mResponseCurve = shape;
+        responseCurve.setShape(shape);
+        restartInputPipeline();
+    }
+
+    /**
+     * @param expo value from 0-1 blending linear (0) and cubic (1) for the expo response curve
+     */
+    public void setResponseExpo(float expo){
+        mResponseExpo = expo;
+        responseCurve.setExpo(expo);
+        restartInputPipeline();
+    }
+
+    /**
+     * Uses a custom response curve made of straight lines between the given points
+     *
+     * @param inputs  how far the thumbstick is pushed, 0 to 1, in increasing order
+     * @param outputs the output for each input, 0 to 1
+     */
+    public void setResponseCurvePoints(float[] inputs, float[] outputs){
+        responseCurve.setPoints(inputs, outputs);
+        mResponseCurve = ResponseCurve.Shape.CUSTOM;
+        restartInputPipeline();
+    }
+
+    /**
+     * @param horizon time in milliseconds ahead of the touch the outputs are predicted for, to
+     *                hide touch and display latency; 0 turns prediction off
+     */
+    public void setPredictionHorizon(int horizon){
+        mPredictionHorizon = horizon;
+        predictor.setHorizon(horizon);
+        predictor.reset();
+        unpredicted.set(state);
+    }
+
+    /**
+     * @param predictThumbstick option to also draw the thumbstick at the predicted position
+     *                          instead of under the finger
+     */
+    public void setPredictThumbstick(boolean predictThumbstick){
+        mPredictThumbstick = predictThumbstick;
+        unpredicted.set(state);
+        invalidateThumbstick();
+    }
+
+    /**
+     * Smooths the jitter of a still finger out of the outputs; every output is computed from the
+     * filtered touch.<!-- --> Use e.g. {@link OneEuroFilter}, {@link ExponentialFilter} or
+     * {@link MedianFilter}.
+     *
+     * @param filter the filter, or null to use the touch as it is
+     */
+    public void setTouchFilter(TouchFilter filter){
+        mTouchFilter = filter;
+        if (filter != null) {
+            filter.reset(); //the UI thread's; a pipeline thread filters with a copy
+        }
+        restartInputPipeline();
+    }
+
+    /**
+     * @param count number of D-pad directions, e.g. 4 or 8; clamped to
+     *              {@link DirectionalPad#MIN_SECTORS} to {@link DirectionalPad#MAX_SECTORS}.
+     *              <!-- -->0 or less turns the D-pad mode off
+     */
+    public void setDirectionCount(int count){
+        count = DirectionalPad.clampSectors(count);
+        mDirectionCount = count;
+        if (count > 0) {
+            directionalPad.setSectors(count);
+            directionalPad.update(state); //reports the current direction
+        } else {
+            directionalPad.reset();
+        }
+    }
+
+    /**
+     * @param deadZone value from 0-100; the strength below which the D-pad direction is the
+     *                 center
+     */
+    public void setDirectionDeadZone(int deadZone){
+        mDirectionDeadZone = deadZone;
+        directionalPad.setDeadZone(deadZone, DEFAULT_DIRECTION_DEAD_ZONE_HYSTERESIS);
+    }
+
+    /**
+     * @param hysteresis angle in degrees the thumbstick must move past the edge of a D-pad
+     *                   direction before the next direction is taken
+     */
+    public void setDirectionHysteresis(int hysteresis){
+        mDirectionHysteresis = hysteresis;
+        directionalPad.setHysteresis(hysteresis);
+    }
+
+    /**
+     * @param deadline time in milliseconds the outputs stay fresh without a sample or a frame
+     *                 with the finger on the joystick; see {@link #isStale()}
+     */
+    public void setStaleDeadline(int deadline){
+        mStaleDeadline = deadline;
+        watchdog.setDeadline(deadline);
+    }
+
+    /**
+     * @param color color of the joystick background
+     */
+    public void setJoystickColor(int color){
+        mJoystickColor = color;
+        invalidateBaseLayer();
+    }
+
+    /**
+     * @param color color of the joystick border
+     */
+    public void setBorderColor(int color){
+        mBorderColor = color;
+        invalidateBaseLayer();
+    }
+
+    /**
+     * @param size size in pixels of the border around the background
+     */
+    public void setBorderSize(int size){
+        mBorderSize = size;
+        invalidateBaseLayer();
+    }
+
+    /**
+     * @param color color of the thumbstick
+     */
+    public void setThumbstickColor(int color){
+        mThumbstickColor = color;
+        updateRendererStyle();
+        invalidateThumbstick();
+    }
+
+    /**
+     * @param radius radius in pixels of the thumbstick
+     */
+    public void setThumbstickRadius(int radius){
+        mThumbstickRadius = radius;
+        updateRendererStyle();
+        invalidateThumbstick(); //also erases the old, possibly bigger, thumbstick
+    }
 }
\ No newline at end of file
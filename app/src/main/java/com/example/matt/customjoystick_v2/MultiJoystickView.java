@@ -0,0 +1,403 @@
+package com.example.matt.customjoystick_v2;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.example.matt.customjoystick_v2.core.FrameClock;
+
+import java.util.ArrayList;
+
+/**
+ * Single view hosting any number of joysticks and buttons.
+ * <p>
+ * Every touch is routed by pointer id to the joystick or button it went down on, so several
+ * fingers can control several joysticks at once while all of them share one view, one Paint, one
+ * draw pass and one frame clock. Joysticks and buttons are added in code with positions relative
+ * to the size of the view. </p>
+ */
+public class MultiJoystickView extends View {
+
+    /* ATTRIBUTES
+     * canvasPadding - The size of the padding around each joystick
+     * joystickColor - The color of the joystick backgrounds
+     * borderColor - The color of the border of the joystick backgrounds
+     * borderSize - The size/amount that the border sticks out over the background
+     * thumbstickColor - The color of the thumbsticks
+     * thumbstickRadius - The radius of the thumbsticks
+     * refreshRate - the minimum time, in milliseconds, between two outputs published by a joystick
+     * buttonColor - The color of a button that is not pressed
+     * buttonPressedColor - The color of a button that is pressed
+     */
+
+    /**
+     * Default canvas padding size
+     */
+    private final int DEFAULT_CANVAS_PADDING = 10;
+
+    /**
+     * Default joystick background color
+     */
+    private final int DEFAULT_JOYSTICK_COLOR = 0;
+
+    /**
+     * Default border color
+     */
+    private final int DEFAULT_BORDER_COLOR = 0;
+
+    /**
+     * Default border size
+     */
+    private final int DEFAULT_BORDER_SIZE = 10;
+
+    /**
+     * Default thumbstick color
+     */
+    private final int DEFAULT_THUMBSTICK_COLOR = 0;
+
+    /**
+     * Default thumbstick radius
+     */
+    private final int DEFAULT_THUMBSTICK_RADIUS = 30;
+
+    /**
+     * Default refresh rate time
+     */
+    private final int DEFAULT_REFRESH_RATE = 20; //milliseconds
+
+    /**
+     * Default color of a button that is not pressed
+     */
+    private final int DEFAULT_BUTTON_COLOR = 0xFF888888;
+
+    /**
+     * Default color of a button that is pressed
+     */
+    private final int DEFAULT_BUTTON_PRESSED_COLOR = 0xFF444444;
+
+    private int mCanvasPadding;
+    private int mJoystickColor;
+    private int mBorderColor;
+    private int mBorderSize;
+    private int mThumbstickColor;
+    private int mThumbstickRadius;
+    private int mRefreshRate;
+    private int mButtonColor;
+    private int mButtonPressedColor;
+
+    /**
+     * Drives the publishers of every joystick
+     */
+    private final FrameClock frameClock;
+
+    private final ArrayList<VirtualJoystick> joysticks = new ArrayList<>();
+    private final ArrayList<VirtualButton> buttons = new ArrayList<>();
+
+    /**
+     * Bit flags of the pressed buttons
+     */
+    private int buttonFlags;
+
+    /**
+     * Whether the view is attached to a window; joysticks only publish while it is
+     */
+    private boolean attached;
+
+    //Used to draw every joystick and button
+    private final Paint painter = new Paint();
+
+    /**
+     * Cached drawing of the joystick borders and backgrounds; null until drawn or after the
+     * layout changed
+     */
+    private Bitmap baseLayer;
+
+    public MultiJoystickView(Context context, AttributeSet attrs) {
+        this(context, attrs, new ChoreographerFrameClock());
+    }
+
+    /**
+     * @param frameClock clock that drives publishing the outputs; the view uses the display
+     *                   frame clock when inflated from a layout
+     */
+    public MultiJoystickView(Context context, AttributeSet attrs, FrameClock frameClock) {
+        super(context, attrs);
+        this.frameClock = frameClock;
+
+        painter.setStyle(Style.FILL);
+        painter.setAntiAlias(true);
+
+        TypedArray styledAttributes = context.getTheme().obtainStyledAttributes(attrs,
+                R.styleable.MultiJoystickView, 0, 0);
+
+        try {
+            mCanvasPadding      = styledAttributes.getDimensionPixelSize(R.styleable.MultiJoystickView_canvasPadding,    DEFAULT_CANVAS_PADDING);
+            mBorderSize         = styledAttributes.getDimensionPixelSize(R.styleable.MultiJoystickView_borderSize,       DEFAULT_BORDER_SIZE);
+            mThumbstickRadius   = styledAttributes.getDimensionPixelSize(R.styleable.MultiJoystickView_thumbstickRadius, DEFAULT_THUMBSTICK_RADIUS);
+            mRefreshRate        = styledAttributes.getInteger(R.styleable.MultiJoystickView_refreshRate, DEFAULT_REFRESH_RATE);
+            mJoystickColor      = styledAttributes.getColor(R.styleable.MultiJoystickView_joystickColor,      DEFAULT_JOYSTICK_COLOR);
+            mBorderColor        = styledAttributes.getColor(R.styleable.MultiJoystickView_borderColor,        DEFAULT_BORDER_COLOR);
+            mThumbstickColor    = styledAttributes.getColor(R.styleable.MultiJoystickView_thumbstickColor,    DEFAULT_THUMBSTICK_COLOR);
+            mButtonColor        = styledAttributes.getColor(R.styleable.MultiJoystickView_buttonColor,        DEFAULT_BUTTON_COLOR);
+            mButtonPressedColor = styledAttributes.getColor(R.styleable.MultiJoystickView_buttonPressedColor, DEFAULT_BUTTON_PRESSED_COLOR);
+        } finally {
+            styledAttributes.recycle();
+        }
+    }
+
+    /**
+     * Adds a joystick
+     *
+     * @param centerX center as a fraction, 0 to 1, of the width of the view
+     * @param centerY center as a fraction, 0 to 1, of the height of the view
+     * @param size    size as a fraction, 0 to 1, of the smaller of the width and height of the view
+     * @return the joystick, to configure it and read its outputs
+     */
+    public VirtualJoystick addJoystick(float centerX, float centerY, float size) {
+        VirtualJoystick joystick = new VirtualJoystick(frameClock, mRefreshRate, centerX, centerY, size);
+        joysticks.add(joystick);
+        if (getWidth() > 0) {
+            joystick.layout(getWidth(), getHeight(), mCanvasPadding, SystemClock.uptimeMillis());
+            invalidateBaseLayer();
+        }
+        if (attached) {
+            joystick.start();
+        }
+        return joystick;
+    }
+
+    /**
+     * Adds a button; its bit in the button flags is the number of buttons added before it
+     *
+     * @param left   left edge as a fraction, 0 to 1, of the width of the view
+     * @param top    top edge as a fraction, 0 to 1, of the height of the view
+     * @param right  right edge as a fraction, 0 to 1, of the width of the view
+     * @param bottom bottom edge as a fraction, 0 to 1, of the height of the view
+     * @return the button
+     */
+    public VirtualButton addButton(float left, float top, float right, float bottom) {
+        if (buttons.size() >= Integer.SIZE) {
+            throw new IllegalStateException("At most " + Integer.SIZE + " buttons are supported");
+        }
+        VirtualButton button = new VirtualButton(buttons.size(), left, top, right, bottom);
+        buttons.add(button);
+        button.layout(getWidth(), getHeight());
+        invalidate();
+        return button;
+    }
+
+    /**
+     * @return bit flags of the pressed buttons; bit n is the n-th added button
+     */
+    public int getButtons() {
+        return buttonFlags;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        for (int i = 0; i < joysticks.size(); i++) {
+            joysticks.get(i).start();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        attached = false;
+        for (int i = 0; i < joysticks.size(); i++) {
+            joysticks.get(i).stop();
+        }
+        if (baseLayer != null) { //rebuilt when drawn again
+            baseLayer.recycle();
+            baseLayer = null;
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldW, int oldH) {
+        super.onSizeChanged(w, h, oldW, oldH);
+
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < joysticks.size(); i++) {
+            joysticks.get(i).layout(w, h, mCanvasPadding, now);
+        }
+        for (int i = 0; i < buttons.size(); i++) {
+            buttons.get(i).layout(w, h);
+        }
+        invalidateBaseLayer();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (baseLayer == null) {
+            buildBaseLayer();
+        }
+        if (baseLayer != null) {
+            canvas.drawBitmap(baseLayer, 0, 0, null);
+        }
+
+        for (int i = 0; i < buttons.size(); i++) {
+            VirtualButton button = buttons.get(i);
+            painter.setColor(button.isPressed() ? mButtonPressedColor : mButtonColor);
+            canvas.drawRect(button.bounds, painter);
+        }
+
+        painter.setColor(mThumbstickColor);
+        for (int i = 0; i < joysticks.size(); i++) {
+            VirtualJoystick joystick = joysticks.get(i);
+            canvas.drawCircle(joystick.left + joystick.state.getPosX(),
+                    joystick.top + joystick.state.getPosY(), mThumbstickRadius, painter);
+        }
+    }
+
+    /**
+     * Draws the parts of the joysticks that don't move into {@link #baseLayer}
+     */
+    private void buildBaseLayer() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return; //not measured yet
+        }
+        baseLayer = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(baseLayer);
+
+        for (int i = 0; i < joysticks.size(); i++) {
+            VirtualJoystick joystick = joysticks.get(i);
+            float half = joystick.size / 2.0f;
+            float radius = half - (mCanvasPadding / 2.0f); //background radius
+
+            painter.setColor(mBorderColor);
+            canvas.drawCircle(joystick.left + half, joystick.top + half, radius, painter);
+
+            painter.setColor(mJoystickColor);
+            canvas.drawCircle(joystick.left + half, joystick.top + half, radius - mBorderSize, painter);
+        }
+    }
+
+    private void invalidateBaseLayer() {
+        if (baseLayer != null) {
+            baseLayer.recycle();
+            baseLayer = null;
+        }
+        invalidate();
+    }
+
+    @Override //Runs when user is touching the View
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                pointerDown(event, event.getActionIndex());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                for (int p = 0; p < event.getPointerCount(); p++) {
+                    pointerMove(event, p);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+                pointerUp(event.getPointerId(event.getActionIndex()), event.getEventTime(), false);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                for (int p = 0; p < event.getPointerCount(); p++) {
+                    pointerUp(event.getPointerId(p), event.getEventTime(), true);
+                }
+                break;
+            default:
+                return false;
+        }
+
+        invalidate(); //a single pass draws every joystick
+        return true;
+    }
+
+    /**
+     * Gives a new pointer to the free joystick or button it went down on, if any
+     */
+    private void pointerDown(MotionEvent event, int pointerIndex) {
+        int id = event.getPointerId(pointerIndex);
+        float x = event.getX(pointerIndex);
+        float y = event.getY(pointerIndex);
+
+        for (int i = 0; i < joysticks.size(); i++) {
+            VirtualJoystick joystick = joysticks.get(i);
+            if (!joystick.isTouched() && joystick.contains(x, y)) {
+                joystick.pointerId = id;
+                joystick.touch(x, y, event.getEventTime());
+                joystick.onStateChanged();
+                return;
+            }
+        }
+
+        for (int i = 0; i < buttons.size(); i++) {
+            VirtualButton button = buttons.get(i);
+            if (!button.isPressed() && button.bounds.contains(x, y)) {
+                button.pointerId = id;
+                setButtonFlags(buttonFlags | (1 << button.getBit()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Feeds every sample of a pointer, including the batched historical ones, to its joystick
+     */
+    private void pointerMove(MotionEvent event, int pointerIndex) {
+        int id = event.getPointerId(pointerIndex);
+        for (int i = 0; i < joysticks.size(); i++) {
+            VirtualJoystick joystick = joysticks.get(i);
+            if (joystick.pointerId == id) {
+                int historySize = event.getHistorySize();
+                for (int h = 0; h < historySize; h++) {
+                    joystick.touch(event.getHistoricalX(pointerIndex, h),
+                            event.getHistoricalY(pointerIndex, h), event.getHistoricalEventTime(h));
+                }
+                joystick.touch(event.getX(pointerIndex), event.getY(pointerIndex), event.getEventTime());
+                joystick.onStateChanged();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases whatever the pointer was controlling
+     *
+     * @param cancelled whether the touch was cancelled instead of lifted
+     */
+    private void pointerUp(int id, long eventTime, boolean cancelled) {
+        for (int i = 0; i < joysticks.size(); i++) {
+            VirtualJoystick joystick = joysticks.get(i);
+            if (joystick.pointerId == id) {
+                joystick.release(eventTime, cancelled);
+                return;
+            }
+        }
+
+        for (int i = 0; i < buttons.size(); i++) {
+            VirtualButton button = buttons.get(i);
+            if (button.pointerId == id) {
+                button.pointerId = MotionEvent.INVALID_POINTER_ID;
+                setButtonFlags(buttonFlags & ~(1 << button.getBit()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Updates the button flags in the outputs of every joystick
+     */
+    private void setButtonFlags(int flags) {
+        buttonFlags = flags;
+        for (int i = 0; i < joysticks.size(); i++) {
+            joysticks.get(i).setButtons(flags);
+        }
+    }
+}
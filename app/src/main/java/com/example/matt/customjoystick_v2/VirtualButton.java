@@ -0,0 +1,62 @@
+package com.example.matt.customjoystick_v2;
+
+import android.graphics.RectF;
+import android.view.MotionEvent;
+
+/**
+ * A button hosted by a {@link MultiJoystickView}.<!-- --> Its bounds are fractions of the
+ * hosting view so the layout follows the size of the view.
+ */
+public class VirtualButton {
+
+    /**
+     * Bounds as fractions of the width and height of the view
+     */
+    private final float leftFraction;
+    private final float topFraction;
+    private final float rightFraction;
+    private final float bottomFraction;
+
+    /**
+     * Bit of the button in the button flags of the outputs
+     */
+    private final int bit;
+
+    /**
+     * Bounds in pixels inside the view; set by {@link #layout(int, int)}
+     */
+    final RectF bounds = new RectF();
+
+    /**
+     * Id of the pointer pressing the button, or {@link MotionEvent#INVALID_POINTER_ID}
+     */
+    int pointerId = MotionEvent.INVALID_POINTER_ID;
+
+    VirtualButton(int bit, float leftFraction, float topFraction, float rightFraction,
+                  float bottomFraction) {
+        this.bit = bit;
+        this.leftFraction = leftFraction;
+        this.topFraction = topFraction;
+        this.rightFraction = rightFraction;
+        this.bottomFraction = bottomFraction;
+    }
+
+    void layout(int width, int height) {
+        bounds.set(leftFraction * width, topFraction * height,
+                rightFraction * width, bottomFraction * height);
+    }
+
+    /**
+     * @return the bit of the button in the button flags of the outputs
+     */
+    public int getBit() {
+        return bit;
+    }
+
+    /**
+     * @return whether the button is pressed
+     */
+    public boolean isPressed() {
+        return pointerId != MotionEvent.INVALID_POINTER_ID;
+    }
+}
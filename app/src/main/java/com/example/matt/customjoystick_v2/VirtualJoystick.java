@@ -0,0 +1,227 @@
+package com.example.matt.customjoystick_v2;
+
+import android.view.MotionEvent;
+
+import com.example.matt.customjoystick_v2.core.ControllerAggregator;
+import com.example.matt.customjoystick_v2.core.FrameClock;
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickSnapshot;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+import com.example.matt.customjoystick_v2.core.OutputPublisher;
+import com.example.matt.customjoystick_v2.core.ResponseCurve;
+
+/**
+ * One joystick hosted by a {@link MultiJoystickView}.
+ * <p>
+ * Position and size are fractions of the hosting view so the layout follows the size of the view.
+ * The outputs are read the same ways as from a {@link JoystickView}: the state on the UI thread,
+ * {@link #readSnapshot(JoystickState)} from any thread, or a publish listener. </p>
+ */
+public class VirtualJoystick {
+
+    /**
+     * Position of the center as a fraction of the width and height of the view
+     */
+    private final float centerXFraction;
+    private final float centerYFraction;
+
+    /**
+     * Size of the joystick as a fraction of the smaller of the width and height of the view
+     */
+    private final float sizeFraction;
+
+    final JoystickKernel kernel = new JoystickKernel();
+    final JoystickState state = new JoystickState();
+    private final JoystickSnapshot snapshot = new JoystickSnapshot();
+    private final OutputPublisher publisher;
+
+    /**
+     * Publishes the outputs together with other controls while set
+     */
+    private ControllerAggregator controller;
+    private int controllerIndex;
+
+    /**
+     * Number of the latest outputs; see {@link JoystickState#getSequence()}
+     */
+    private long sequence;
+
+    private boolean autoRecenter = true;
+    private boolean lockX;
+    private boolean lockY;
+
+    /**
+     * Position and size in pixels inside the view; set by {@link #layout(int, int, int, long)}
+     */
+    float left;
+    float top;
+    float size;
+
+    /**
+     * Id of the pointer controlling the joystick, or {@link MotionEvent#INVALID_POINTER_ID}
+     */
+    int pointerId = MotionEvent.INVALID_POINTER_ID;
+
+    VirtualJoystick(FrameClock frameClock, int refreshRate, float centerXFraction,
+                    float centerYFraction, float sizeFraction) {
+        this.centerXFraction = centerXFraction;
+        this.centerYFraction = centerYFraction;
+        this.sizeFraction = sizeFraction;
+        publisher = new OutputPublisher(frameClock, state, refreshRate);
+    }
+
+    /**
+     * Positions the joystick for a new view size and recenters it
+     */
+    void layout(int width, int height, int canvasPadding, long eventTime) {
+        size = sizeFraction * Math.min(width, height);
+        left = centerXFraction * width - size / 2;
+        top = centerYFraction * height - size / 2;
+        kernel.setGeometry((int) size, canvasPadding);
+        kernel.recenter(eventTime, state);
+        state.setSequence(++sequence);
+        onStateChanged();
+    }
+
+    /**
+     * @return whether the point, in view coordinates, is on the joystick
+     */
+    boolean contains(float x, float y) {
+        float half = size / 2;
+        float dx = x - (left + half);
+        float dy = y - (top + half);
+        return dx * dx + dy * dy <= half * half;
+    }
+
+    /**
+     * Processes a touch sample in view coordinates; call {@link #onStateChanged()} after the last
+     * sample of an event
+     */
+    void touch(float x, float y, long eventTime) {
+        float localX = lockX ? kernel.getCenter() : x - left;
+        float localY = lockY ? kernel.getCenter() : y - top;
+        kernel.process(localX, localY, eventTime, state);
+        state.setSequence(++sequence);
+    }
+
+    /**
+     * Lets go of the joystick
+     *
+     * @param cancelled whether the touch was cancelled instead of lifted; the thumbstick is then
+     *                  recentered even without autoRecenter and the outputs are marked stale
+     */
+    void release(long eventTime, boolean cancelled) {
+        pointerId = MotionEvent.INVALID_POINTER_ID;
+        if (autoRecenter || cancelled) {
+            kernel.recenter(eventTime, state);
+        }
+        state.setStale(cancelled); //the touch didn't end on its own
+        state.setSequence(++sequence);
+        onStateChanged();
+    }
+
+    /**
+     * Sets the buttons pressed with the outputs
+     *
+     * @param buttons bit flags of the pressed buttons
+     */
+    void setButtons(int buttons) {
+        state.setButtons(buttons);
+        state.setSequence(++sequence);
+        onStateChanged();
+    }
+
+    /**
+     * Shares new outputs with other threads and the publisher
+     */
+    void onStateChanged() {
+        snapshot.write(state);
+        publisher.markChanged();
+        if (controller != null) {
+            controller.markChanged(controllerIndex);
+        }
+    }
+
+    void start() {
+        publisher.start();
+    }
+
+    void stop() {
+        publisher.stop();
+    }
+
+    /**
+     * @param autoRecenter whether the thumbstick goes back to the center when let go of; turn off
+     *                     for a throttle
+     */
+    public void setAutoRecenter(boolean autoRecenter) {
+        this.autoRecenter = autoRecenter;
+    }
+
+    /**
+     * Keeps axes at the center, e.g. lock the x-axis for a throttle that only moves up and down
+     *
+     * @param lockX whether the x-axis is kept at the center
+     * @param lockY whether the y-axis is kept at the center
+     */
+    public void setLockedAxes(boolean lockX, boolean lockY) {
+        this.lockX = lockX;
+        this.lockY = lockY;
+    }
+
+    /**
+     * @param responseCurve shapes the outputs, or null for linear outputs
+     */
+    public void setResponseCurve(ResponseCurve responseCurve) {
+        kernel.setResponseCurve(responseCurve);
+    }
+
+    /**
+     * Publishes the outputs of the joystick on the shared tick of a controller, together with
+     * every other control registered with it.<!-- --> A joystick can only be added to one
+     * controller and stays in it.
+     *
+     * @param controller the controller; it has to run on the UI thread's frame clock
+     * @return the index of the joystick in the controller
+     */
+    public int addToController(ControllerAggregator controller) {
+        if (this.controller != null) {
+            throw new IllegalStateException("Already added to a controller");
+        }
+        controllerIndex = controller.register(snapshot);
+        this.controller = controller;
+        return controllerIndex;
+    }
+
+    /**
+     * @param listener receives the outputs on display frames while they change, or null
+     */
+    public void setOnPublishListener(OutputPublisher.Listener listener) {
+        publisher.setListener(listener);
+    }
+
+    /**
+     * @return the live outputs; only read them on the UI thread
+     */
+    public JoystickState getState() {
+        return state;
+    }
+
+    /**
+     * Copies every output value, all from the same touch sample.<!-- --> Safe to call from any
+     * thread.
+     *
+     * @param out the state to copy the values into
+     * @return the version of the values; it changes every time the outputs change
+     */
+    public int readSnapshot(JoystickState out) {
+        return snapshot.read(out);
+    }
+
+    /**
+     * @return whether a finger is on the joystick
+     */
+    public boolean isTouched() {
+        return pointerId != MotionEvent.INVALID_POINTER_ID;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.matt.customjoystick_v2;
+
+import android.view.MotionEvent;
+
+import com.example.matt.customjoystick_v2.SyntheticTouchStream.Shape;
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+import com.example.matt.customjoystick_v2.core.LatencyHistogram;
+import com.example.matt.customjoystick_v2.core.ManualFrameClock;
+import com.example.matt.customjoystick_v2.core.PipelineMetrics;
+import com.example.matt.customjoystick_v2.core.ResponseCurve;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test of {@link JoystickView} on the JVM: builds the view at several sizes and drives
+ * {@link JoystickView#onTouchEvent(MotionEvent)} with generated touch streams.
+ * <p>
+ * Every event is checked against a {@link JoystickKernel} set up like the view, and the outputs
+ * have to stay within their ranges and the thumbstick within the joystick. A second, measured,
+ * pass checks that every event was timed and writes events per second, bytes allocated per event
+ * (Robolectric's MotionEvent shadows included, so compare them between runs rather than with
+ * zero) and the percentiles of the time spent in onTouchEvent to a CSV report. </p>
+ * <p>
+ * Settings, as system properties of the test JVM:
+ * <ul>
+ * <li>joystick.loadtest.sampleRate - touch samples per second, default 240</li>
+ * <li>joystick.loadtest.duration - time in milliseconds of every touch, default 2000</li>
+ * <li>joystick.loadtest.maxP99Micros - fails a run whose 99th percentile of onTouchEvent is
+ * above it; 0, the default, only reports</li>
+ * <li>joystick.loadtest.report - file the CSV report is written to; app/build.gradle puts it
+ * next to the test reports, empty writes none</li>
+ * </ul></p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class JoystickViewLoadTest {
+
+    private static final int[] SIZES = {120, 320, 720};
+
+    private static final int SAMPLE_RATE = Integer.getInteger("joystick.loadtest.sampleRate", 240);
+    private static final int DURATION = Integer.getInteger("joystick.loadtest.duration", 2000);
+    private static final int MAX_P99_MICROS = Integer.getInteger("joystick.loadtest.maxP99Micros", 0);
+    private static final String REPORT = System.getProperty("joystick.loadtest.report", "");
+
+    /**
+     * Defaults of the view the reference kernel is set up with
+     */
+    private static final int CANVAS_PADDING = 10;
+    private static final int GIVE_THRESHOLD = 5;
+    private static final int PHYSICAL_THRESHOLD = 20;
+
+    private static final long MS = 1000000L;
+
+    /**
+     * Starts the report over with its header; every measured run adds a line
+     */
+    @BeforeClass
+    public static void startReport() throws IOException {
+        if (REPORT.isEmpty()) {
+            return;
+        }
+        File parent = new File(REPORT).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can't create " + parent);
+        }
+        report(false, "run,events,eventsPerSecond,bytesPerEvent,p50Micros,p99Micros,p999Micros");
+    }
+
+    @Test
+    public void circle() throws Exception {
+        run(Shape.CIRCLE);
+    }
+
+    @Test
+    public void flick() throws Exception {
+        run(Shape.FLICK);
+    }
+
+    @Test
+    public void jitter() throws Exception {
+        run(Shape.JITTER);
+    }
+
+    @Test
+    public void outsideRadius() throws Exception {
+        run(Shape.OUTSIDE_RADIUS);
+    }
+
+    @Test
+    public void multiPointer() throws Exception {
+        run(Shape.MULTI_POINTER);
+    }
+
+    private void run(Shape shape) throws IOException {
+        for (int size : SIZES) {
+            ManualFrameClock clock = new ManualFrameClock();
+            JoystickView view = new JoystickView(RuntimeEnvironment.application, null, clock);
+            view.layout(0, 0, size, size); //onSizeChanged sets the geometry
+
+            ResponseCurve curve = new ResponseCurve();
+            curve.setThresholds(GIVE_THRESHOLD, PHYSICAL_THRESHOLD);
+            JoystickKernel reference = new JoystickKernel();
+            reference.setGeometry(size, CANVAS_PADDING);
+            reference.setResponseCurve(curve);
+
+            MotionEvent[] events = SyntheticTouchStream.generate(shape, reference.getCenter(),
+                    reference.getJoystickRadius(), SAMPLE_RATE, DURATION, size);
+            try {
+                String name = shape + " at " + size + "px";
+                checkOutputs(name, view, clock, reference, events);
+                measure(name, view, clock, events);
+            } finally {
+                for (MotionEvent event : events) {
+                    event.recycle();
+                }
+            }
+        }
+    }
+
+    /**
+     * Dispatches the events, checking the outputs after every one, and lets the thumbstick
+     * recenter; also warms the view up for {@link #measure}
+     */
+    private void checkOutputs(String name, JoystickView view, ManualFrameClock clock,
+                              JoystickKernel reference, MotionEvent[] events) {
+        JoystickState expected = new JoystickState();
+        float radius = reference.getJoystickRadius();
+
+        for (MotionEvent event : events) {
+            assertTrue(view.dispatchTouchEvent(event));
+            if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+                continue; //recentering happens on frames
+            }
+
+            //The joystick follows the first finger; a second finger doesn't move it
+            reference.process(event.getX(0), event.getY(0), event.getEventTime(), expected);
+            String at = name + " at " + event.getEventTime() + " ms";
+            assertEquals(at, expected.getPosX(), view.getXPos());
+            assertEquals(at, expected.getPosY(), view.getYPos());
+            assertEquals(at, expected.getPercentageX(), view.getPercentageX());
+            assertEquals(at, expected.getPercentageY(), view.getPercentageY());
+            assertEquals(at, expected.getQuantized(), view.getQuantizedOutputs());
+
+            assertTrue(at, Math.abs(view.getPercentageX()) <= 100);
+            assertTrue(at, Math.abs(view.getPercentageY()) <= 100);
+            assertTrue(at, view.getStrength() >= 0 && view.getStrength() <= 100);
+            float distance = (float) Math.hypot(view.getRelativePosX(), view.getRelativePosY());
+            assertTrue(at + ": thumbstick " + distance + " from the center", distance <= radius + 1);
+        }
+
+        recenter(clock, events[events.length - 1].getEventTime());
+        assertEquals(name + " recentered", 0, view.getPercentageX());
+        assertEquals(name + " recentered", 0, view.getPercentageY());
+    }
+
+    /**
+     * Dispatches the events again and reports the throughput, allocations and processing times
+     */
+    private void measure(String name, JoystickView view, ManualFrameClock clock,
+                         MotionEvent[] events) throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        view.setMetrics(metrics);
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (MotionEvent event : events) {
+            view.dispatchTouchEvent(event);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        view.setMetrics(null);
+        recenter(clock, events[events.length - 1].getEventTime());
+
+        LatencyHistogram processing = metrics.snapshot(new PipelineMetrics.Snapshot())
+                .getTouchProcessing();
+        long p99 = processing.getPercentile(0.99);
+
+        assertEquals(name, events.length, processing.getCount());
+        assertTrue(name + ": p50 above p99", processing.getPercentile(0.5) <= p99);
+        if (!REPORT.isEmpty()) {
+            report(true, String.format(Locale.ROOT, "%s,%d,%.0f,%s,%.1f,%.1f,%.1f",
+                    name, events.length, events.length * 1e9 / elapsed,
+                    allocatedBefore < 0 ? "" : String.valueOf(allocated / events.length),
+                    processing.getPercentile(0.5) / 1000.0, p99 / 1000.0,
+                    processing.getPercentile(0.999) / 1000.0));
+        }
+        if (MAX_P99_MICROS > 0) {
+            assertTrue(name + ": p99 " + p99 / 1000 + " us", p99 <= MAX_P99_MICROS * 1000L);
+        }
+    }
+
+    /**
+     * Writes a line to the report
+     *
+     * @param append false to start the report over
+     */
+    private static void report(boolean append, String line) throws IOException {
+        FileWriter writer = new FileWriter(REPORT, append);
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Runs frames until the thumbstick is back at the center
+     */
+    private static void recenter(ManualFrameClock clock, long upTime) {
+        long frameTime = upTime * MS;
+        for (int frame = 0; frame < 1000 && clock.hasPending(); frame++) {
+            frameTime += 16 * MS;
+            clock.frame(frameTime);
+        }
+        assertFalse("still animating", clock.hasPending());
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, or -1 if the JVM doesn't tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.matt.customjoystick_v2;
+
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates the MotionEvents of a single touch on a joystick for {@link JoystickViewLoadTest}.
+ * <p>
+ * The finger goes down, follows a shape and lifts. It is sampled at the sample rate, and the
+ * samples are batched into one move event per display frame, with the earlier ones as
+ * historical samples, the way Android delivers them. Every event is created up front, so
+ * dispatching them measures the view and not the generator. </p>
+ */
+final class SyntheticTouchStream {
+
+    /**
+     * Path of the finger
+     */
+    enum Shape {
+        /** Circles at 80% of the joystick radius */
+        CIRCLE,
+        /** Fast pushes from the center to the edge, in a new direction every 100 milliseconds */
+        FLICK,
+        /** A finger held at half the radius, jittering by a couple of pixels */
+        JITTER,
+        /** Circles at 150% of the radius, so every sample is outside the joystick */
+        OUTSIDE_RADIUS,
+        /** Circles with a second finger resting elsewhere for the middle third of the touch */
+        MULTI_POINTER
+    }
+
+    /**
+     * Event time of the first sample in milliseconds
+     */
+    static final long DOWN_TIME = 1000;
+
+    private static final int FRAME_RATE = 60;
+
+    private SyntheticTouchStream() {
+    }
+
+    /**
+     * @param shape      path of the finger
+     * @param center     center of the joystick in view coordinates, on both axes
+     * @param radius     radius of the joystick
+     * @param sampleRate touch samples per second, up to 1000
+     * @param duration   time in milliseconds from down to up
+     * @param seed       seed of the random parts of the shape
+     * @return the events, from down to up; recycle them when done
+     */
+    static MotionEvent[] generate(Shape shape, float center, float radius, int sampleRate,
+                                  int duration, long seed) {
+        Random random = new Random(seed);
+        int sampleCount = Math.max(2, duration * sampleRate / 1000);
+        long[] times = new long[sampleCount];
+        float[] xs = new float[sampleCount];
+        float[] ys = new float[sampleCount];
+
+        double flickAngle = 0;
+        long flickStart = -1;
+        for (int i = 0; i < sampleCount; i++) {
+            long elapsed = (long) i * duration / (sampleCount - 1);
+            double t = elapsed / (double) duration;
+            double angle;
+            double distance;
+            switch (shape) {
+                case FLICK:
+                    if (flickStart < 0 || elapsed - flickStart >= 100) {
+                        flickStart = elapsed;
+                        flickAngle = random.nextDouble() * 2 * Math.PI;
+                    }
+                    angle = flickAngle;
+                    distance = radius * Math.min(1, (elapsed - flickStart) / 30.0);
+                    break;
+                case JITTER:
+                    angle = Math.PI / 4;
+                    distance = radius / 2;
+                    break;
+                case OUTSIDE_RADIUS:
+                    angle = 6 * Math.PI * t;
+                    distance = radius * 1.5;
+                    break;
+                case CIRCLE:
+                case MULTI_POINTER:
+                default:
+                    angle = 6 * Math.PI * t;
+                    distance = radius * 0.8;
+                    break;
+            }
+            times[i] = DOWN_TIME + elapsed;
+            xs[i] = (float) (center + distance * Math.cos(angle));
+            ys[i] = (float) (center - distance * Math.sin(angle));
+            if (shape == Shape.JITTER) {
+                xs[i] += (float) random.nextGaussian();
+                ys[i] += (float) random.nextGaussian();
+            }
+        }
+
+        //The second finger rests in a corner for the middle third of the touch
+        long secondDown = shape == Shape.MULTI_POINTER ? DOWN_TIME + duration / 3 : Long.MAX_VALUE;
+        long secondUp = shape == Shape.MULTI_POINTER ? DOWN_TIME + 2 * duration / 3 : Long.MAX_VALUE;
+        boolean secondFinger = false;
+
+        ArrayList<MotionEvent> events = new ArrayList<>();
+        events.add(obtain(MotionEvent.ACTION_DOWN, times[0], xs[0], ys[0], false));
+
+        long frameMillis = 1000 / FRAME_RATE;
+        long frameEnd = DOWN_TIME + frameMillis;
+        MotionEvent move = null;
+        for (int i = 1; i < sampleCount - 1; i++) {
+            if (!secondFinger && times[i] >= secondDown) {
+                move = flush(events, move);
+                secondFinger = true;
+                events.add(obtain(MotionEvent.ACTION_POINTER_DOWN
+                        | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), times[i], xs[i], ys[i], true));
+                continue;
+            }
+            if (secondFinger && times[i] >= secondUp) {
+                move = flush(events, move);
+                events.add(obtain(MotionEvent.ACTION_POINTER_UP
+                        | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), times[i], xs[i], ys[i], true));
+                secondFinger = false;
+                continue;
+            }
+            if (times[i] > frameEnd) {
+                move = flush(events, move);
+                while (frameEnd < times[i]) {
+                    frameEnd += frameMillis;
+                }
+            }
+            if (move == null) {
+                move = obtain(MotionEvent.ACTION_MOVE, times[i], xs[i], ys[i], secondFinger);
+            } else {
+                move.addBatch(times[i], coords(xs[i], ys[i], secondFinger), 0);
+            }
+        }
+        flush(events, move);
+
+        int last = sampleCount - 1;
+        events.add(obtain(MotionEvent.ACTION_UP, times[last], xs[last], ys[last], false));
+        return events.toArray(new MotionEvent[events.size()]);
+    }
+
+    private static MotionEvent flush(ArrayList<MotionEvent> events, MotionEvent move) {
+        if (move != null) {
+            events.add(move);
+        }
+        return null;
+    }
+
+    private static MotionEvent obtain(int action, long eventTime, float x, float y,
+                                      boolean secondFinger) {
+        int pointerCount = secondFinger ? 2 : 1;
+        PointerProperties[] properties = new PointerProperties[pointerCount];
+        for (int p = 0; p < pointerCount; p++) {
+            properties[p] = new PointerProperties();
+            properties[p].id = p;
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+        }
+        return MotionEvent.obtain(DOWN_TIME, eventTime, action, pointerCount, properties,
+                coords(x, y, secondFinger), 0, 0, 1, 1, 0, 0, 0, 0);
+    }
+
+    private static PointerCoords[] coords(float x, float y, boolean secondFinger) {
+        PointerCoords[] coords = new PointerCoords[secondFinger ? 2 : 1];
+        coords[0] = new PointerCoords();
+        coords[0].x = x;
+        coords[0].y = y;
+        coords[0].pressure = 1;
+        coords[0].size = 1;
+        if (secondFinger) {
+            coords[1] = new PointerCoords();
+            coords[1].pressure = 1;
+            coords[1].size = 1;
+        }
+        return coords;
+    }
+}
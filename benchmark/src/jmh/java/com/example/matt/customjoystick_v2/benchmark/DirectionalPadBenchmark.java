@@ -0,0 +1,61 @@
+package com.example.matt.customjoystick_v2.benchmark;
+
+import com.example.matt.customjoystick_v2.core.DirectionalPad;
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of turning one set of outputs into a direction; added to every sample when the joystick
+ * acts as a directional pad.
+ * <p>
+ * The outputs are precomputed along a circle that dips into the dead zone, so the pad changes
+ * sector, enters and leaves the center and reports to its listener. </p>
+ */
+@State(Scope.Thread)
+public class DirectionalPadBenchmark {
+
+    /**
+     * Number of precomputed outputs; power of two so the index can wrap with a mask
+     */
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final JoystickState[] states = new JoystickState[SAMPLE_COUNT];
+
+    private DirectionalPad pad;
+    private int changes;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        pad = new DirectionalPad(new DirectionalPad.Listener() {
+            @Override
+            public void onDirectionChange(int direction, int flags, long eventTime) {
+                changes++;
+            }
+        });
+        pad.setSectors(8);
+
+        JoystickKernel kernel = new JoystickKernel();
+        kernel.setGeometry(600, 20);
+        float center = kernel.getCenter();
+        float radius = kernel.getJoystickRadius();
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double theta = 2 * Math.PI * i / SAMPLE_COUNT;
+            double distance = radius * (0.05 + 0.9 * ((i * 7) % 64) / 64.0);
+            states[i] = new JoystickState();
+            kernel.process((float) (center + distance * Math.cos(theta)),
+                    (float) (center - distance * Math.sin(theta)), i, states[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean update() {
+        index = (index + 1) & (SAMPLE_COUNT - 1);
+        return pad.update(states[index]);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.matt.customjoystick_v2.benchmark;
+
+import com.example.matt.customjoystick_v2.core.FrameDecoder;
+import com.example.matt.customjoystick_v2.core.FrameEncoder;
+import com.example.matt.customjoystick_v2.core.JoystickFrame;
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cost of turning the joystick outputs into a binary frame and back
+ */
+@State(Scope.Thread)
+public class FrameEncoderBenchmark {
+
+    private final FrameEncoder encoder = new FrameEncoder();
+    private final FrameDecoder decoder = new FrameDecoder();
+    private final JoystickState state = new JoystickState();
+    private final JoystickFrame frame = new JoystickFrame();
+
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() {
+        JoystickKernel kernel = new JoystickKernel();
+        kernel.setGeometry(600, 20);
+        kernel.process(420.5f, 170.25f, 1000L, state);
+        encoded = ByteBuffer.allocate(JoystickFrame.SIZE);
+        encoded.put(encoder.encode(state));
+        encoded.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return encoder.encode(state);
+    }
+
+    @Benchmark
+    public boolean decode() {
+        return decoder.decode(encoded, frame);
+    }
+}
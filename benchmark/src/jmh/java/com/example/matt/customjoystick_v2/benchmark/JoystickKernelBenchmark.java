@@ -0,0 +1,100 @@
+package com.example.matt.customjoystick_v2.benchmark;
+
+import com.example.matt.customjoystick_v2.core.JoystickKernel;
+import com.example.matt.customjoystick_v2.core.JoystickState;
+import com.example.matt.customjoystick_v2.core.ResponseCurve;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of turning one raw touch sample into the joystick outputs; the work done by
+ * JoystickView.onTouchEvent for every sample.
+ * <p>
+ * Samples are precomputed along a circle so the branches in the kernel see realistic input
+ * instead of the same point every time. </p>
+ */
+@State(Scope.Thread)
+public class JoystickKernelBenchmark {
+
+    /**
+     * Number of precomputed samples; power of two so the index can wrap with a mask
+     */
+    private static final int SAMPLE_COUNT = 1024;
+
+    private static final int LAYOUT_SIZE = 600;
+    private static final int CANVAS_PADDING = 20;
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickKernel curvedKernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+
+    //Touches that stay inside the joystick radius
+    private final float[] insideX = new float[SAMPLE_COUNT];
+    private final float[] insideY = new float[SAMPLE_COUNT];
+
+    //Touches that have to be clamped to the joystick radius
+    private final float[] outsideX = new float[SAMPLE_COUNT];
+    private final float[] outsideY = new float[SAMPLE_COUNT];
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        kernel.setGeometry(LAYOUT_SIZE, CANVAS_PADDING);
+
+        //Same geometry with the default thresholds and an expo curve
+        ResponseCurve curve = new ResponseCurve();
+        curve.setThresholds(5, 20);
+        curve.setShape(ResponseCurve.Shape.EXPO);
+        curvedKernel.setGeometry(LAYOUT_SIZE, CANVAS_PADDING);
+        curvedKernel.setResponseCurve(curve);
+        float center = kernel.getCenter();
+        float radius = kernel.getJoystickRadius();
+
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double theta = 2 * Math.PI * i / SAMPLE_COUNT;
+            //Vary the distance as well so the percentages change on both axes
+            double inside = radius * (0.1 + 0.85 * ((i * 7) % SAMPLE_COUNT) / SAMPLE_COUNT);
+            double outside = radius * (1.1 + ((i * 13) % SAMPLE_COUNT) / (double) SAMPLE_COUNT);
+
+            insideX[i]  = (float) (center + inside * Math.cos(theta));
+            insideY[i]  = (float) (center - inside * Math.sin(theta));
+            outsideX[i] = (float) (center + outside * Math.cos(theta));
+            outsideY[i] = (float) (center - outside * Math.sin(theta));
+        }
+    }
+
+    private int next() {
+        return index = (index + 1) & (SAMPLE_COUNT - 1);
+    }
+
+    @Benchmark
+    public JoystickState processInsideRadius() {
+        int i = next();
+        kernel.process(insideX[i], insideY[i], i, state);
+        return state;
+    }
+
+    @Benchmark
+    public JoystickState processOutsideRadius() {
+        int i = next();
+        kernel.process(outsideX[i], outsideY[i], i, state);
+        return state;
+    }
+
+    @Benchmark
+    public JoystickState processWithResponseCurve() {
+        int i = next();
+        curvedKernel.process(insideX[i], insideY[i], i, state);
+        return state;
+    }
+
+    @Benchmark
+    public JoystickState recenter() {
+        kernel.recenter(index, state);
+        return state;
+    }
+}
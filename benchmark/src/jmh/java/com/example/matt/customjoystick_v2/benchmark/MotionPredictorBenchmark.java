@@ -0,0 +1,53 @@
+package com.example.matt.customjoystick_v2.benchmark;
+
+import com.example.matt.customjoystick_v2.core.MotionPredictor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of tracking one touch sample and predicting ahead of it; added to every sample when a
+ * prediction horizon is set
+ */
+@State(Scope.Thread)
+public class MotionPredictorBenchmark {
+
+    /**
+     * Number of precomputed samples; power of two so the index can wrap with a mask
+     */
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final MotionPredictor predictor = new MotionPredictor();
+
+    private final float[] x = new float[SAMPLE_COUNT];
+    private final float[] y = new float[SAMPLE_COUNT];
+    private final long[] eventTime = new long[SAMPLE_COUNT];
+
+    private int index;
+    private long timeOffset;
+
+    @Setup
+    public void setUp() {
+        predictor.setHorizon(16);
+        long time = 0;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double theta = 2 * Math.PI * i / SAMPLE_COUNT;
+            x[i] = (float) (300 + 200 * Math.cos(theta));
+            y[i] = (float) (300 - 200 * Math.sin(theta));
+            time += 4 + (i * 13) % 9; //4 to 12 ms apart
+            eventTime[i] = time;
+        }
+    }
+
+    @Benchmark
+    public float update() {
+        index = (index + 1) & (SAMPLE_COUNT - 1);
+        if (index == 0) {
+            timeOffset += eventTime[SAMPLE_COUNT - 1]; //keeps the event times increasing
+        }
+        predictor.update(x[index], y[index], timeOffset + eventTime[index]);
+        return predictor.getPredictedX() + predictor.getPredictedY();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.matt.customjoystick_v2.benchmark;
+
+import com.example.matt.customjoystick_v2.core.ExponentialFilter;
+import com.example.matt.customjoystick_v2.core.MedianFilter;
+import com.example.matt.customjoystick_v2.core.OneEuroFilter;
+import com.example.matt.customjoystick_v2.core.TouchFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of filtering one touch sample with each of the {@link TouchFilter}s; added to every sample
+ * when a touch filter is set.
+ * <p>
+ * Samples are precomputed along a jittery circle with unevenly spaced event times, so the
+ * time-based smoothing factors are recomputed and the median window isn't already sorted. </p>
+ */
+@State(Scope.Thread)
+public class TouchFilterBenchmark {
+
+    /**
+     * Number of precomputed samples; power of two so the index can wrap with a mask
+     */
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final OneEuroFilter oneEuro = new OneEuroFilter();
+    private final ExponentialFilter exponential = new ExponentialFilter(16);
+    private final MedianFilter median = new MedianFilter(5);
+
+    private final float[] x = new float[SAMPLE_COUNT];
+    private final float[] y = new float[SAMPLE_COUNT];
+    private final long[] eventTime = new long[SAMPLE_COUNT];
+
+    private int index;
+    private long timeOffset;
+
+    @Setup
+    public void setUp() {
+        long time = 0;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double theta = 2 * Math.PI * i / SAMPLE_COUNT;
+            float jitter = ((i * 7) % 5) - 2; //a couple of pixels either way
+            x[i] = (float) (300 + 200 * Math.cos(theta)) + jitter;
+            y[i] = (float) (300 - 200 * Math.sin(theta)) - jitter;
+            time += 4 + (i * 13) % 9; //4 to 12 ms apart
+            eventTime[i] = time;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (SAMPLE_COUNT - 1);
+        if (index == 0) {
+            timeOffset += eventTime[SAMPLE_COUNT - 1]; //keeps the event times increasing
+        }
+        return index;
+    }
+
+    private TouchFilter filter(TouchFilter filter) {
+        int i = next();
+        filter.update(x[i], y[i], timeOffset + eventTime[i]);
+        return filter;
+    }
+
+    @Benchmark
+    public float oneEuro() {
+        return filter(oneEuro).getX();
+    }
+
+    @Benchmark
+    public float exponential() {
+        return filter(exponential).getX();
+    }
+
+    @Benchmark
+    public float median() {
+        return filter(median).getX();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Picks the time between two publishes of an {@link OutputPublisher} from how the thumbstick
+ * moves.
+ * <p>
+ * While the thumbstick moves faster than the velocity threshold, or speeds up or slows down
+ * faster than the acceleration threshold, the outputs are published at the maximum rate. Once it
+ * moves slower, every publish doubles the time to the next one until the minimum rate is reached,
+ * so a thumbstick held nearly still costs a few publishes per second. The outputs getting back to
+ * the center are published right away, so the consumer always gets the settled value without
+ * waiting. Velocity is measured on the percentages and event times of the outputs, in percent per
+ * second, and smoothed over about 50 milliseconds so the whole-percent steps of a slow drift
+ * don't read as bursts of speed; nothing is allocated. </p>
+ */
+public final class AdaptiveRate {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * Time constant, in seconds, of the smoothing of the measured speed
+     */
+    private static final float SMOOTHING_TIME = 0.05f;
+
+    private long fastIntervalNanos;
+    private long slowIntervalNanos;
+    private float velocityThreshold = 100;
+    private float accelerationThreshold = 2000;
+
+    /**
+     * Current time between two publishes
+     */
+    private long intervalNanos;
+
+    /**
+     * Whether the latest change was fast enough for the maximum rate
+     */
+    private boolean moving;
+
+    /**
+     * Outputs of the previous change, to measure the velocity
+     */
+    private int lastX;
+    private int lastY;
+    private long lastEventTime;
+    private float lastSpeed;
+    private boolean tracking;
+
+    /**
+     * Creates a rate of 100 publishes per second while moving and 5 while still
+     */
+    public AdaptiveRate() {
+        setRates(100, 5);
+    }
+
+    /**
+     * @param maxRate publishes per second while the thumbstick moves fast
+     * @param minRate publishes per second the rate decays to while it moves slowly; at most
+     *                maxRate
+     */
+    public void setRates(int maxRate, int minRate) {
+        fastIntervalNanos = NANOS_PER_SECOND / Math.max(1, maxRate);
+        slowIntervalNanos = Math.max(fastIntervalNanos, NANOS_PER_SECOND / Math.max(1, minRate));
+        intervalNanos = slowIntervalNanos;
+    }
+
+    /**
+     * @param velocity     percent per second the thumbstick has to move for the maximum rate
+     * @param acceleration percent per second squared the speed has to change by for the maximum
+     *                     rate
+     */
+    public void setThresholds(float velocity, float acceleration) {
+        velocityThreshold = velocity;
+        accelerationThreshold = acceleration;
+    }
+
+    /**
+     * Forgets the motion measured so far; the rate starts from the minimum
+     */
+    public void reset() {
+        tracking = false;
+        moving = false;
+        intervalNanos = slowIntervalNanos;
+    }
+
+    /**
+     * Measures the motion up to new outputs; called for every change
+     *
+     * @param state the changed outputs
+     */
+    public void onChange(JoystickState state) {
+        int x = state.percentageX;
+        int y = state.percentageY;
+        long eventTime = state.eventTime;
+        if (!tracking) {
+            tracking = true;
+            lastSpeed = 0;
+        } else if (eventTime > lastEventTime) {
+            float seconds = (eventTime - lastEventTime) / 1000f;
+            int dx = x - lastX;
+            int dy = y - lastY;
+            float rawSpeed = (float) Math.sqrt(dx * dx + dy * dy) / seconds;
+            float speed = lastSpeed + (rawSpeed - lastSpeed) * seconds / (SMOOTHING_TIME + seconds);
+            float acceleration = Math.abs(speed - lastSpeed) / seconds;
+            moving = speed >= velocityThreshold || acceleration >= accelerationThreshold;
+            if (moving) {
+                intervalNanos = fastIntervalNanos;
+            }
+            lastSpeed = speed;
+        } else {
+            return; //same sample time; wait for the next one to measure
+        }
+        lastX = x;
+        lastY = y;
+        lastEventTime = eventTime;
+    }
+
+    /**
+     * @param state the outputs about to be published
+     * @return the time that has to pass since the previous publish before these outputs are
+     *         published; 0 for outputs back at the center
+     */
+    public long getIntervalNanos(JoystickState state) {
+        if (state.percentageX == 0 && state.percentageY == 0) {
+            return 0; //settled; never held back
+        }
+        return intervalNanos;
+    }
+
+    /**
+     * Lets the rate decay after a publish while the thumbstick moves slowly
+     */
+    public void onPublish() {
+        if (!moving) {
+            intervalNanos = Math.min(slowIntervalNanos, intervalNanos * 2);
+        }
+    }
+
+    /**
+     * @return the current time between two publishes, before the center exception
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+}
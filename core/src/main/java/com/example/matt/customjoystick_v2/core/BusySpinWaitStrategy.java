@@ -0,0 +1,18 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Never waits; the consumer checks for work again right away.<!-- --> Lowest latency, but keeps
+ * a core busy for as long as the consumer runs.
+ */
+public final class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(int idleCount) {
+        //spin
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        //the consumer never sleeps
+    }
+}
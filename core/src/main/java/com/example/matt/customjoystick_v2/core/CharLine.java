@@ -0,0 +1,159 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * A line of text built into a preallocated char array, for readouts that are refreshed every
+ * frame.
+ * <p>
+ * Numbers are formatted straight into the array, without going through Strings, so building a
+ * line never allocates; draw it with e.g. Canvas.drawText(char[], int, int, float, float, Paint)
+ * using {@link #getChars()} and {@link #length()}. Whatever doesn't fit into the capacity is cut
+ * off. </p>
+ */
+public final class CharLine {
+
+    private final char[] chars;
+    private int length;
+
+    /**
+     * @param capacity most characters the line holds
+     */
+    public CharLine(int capacity) {
+        chars = new char[capacity];
+    }
+
+    /**
+     * Empties the line
+     *
+     * @return this line
+     */
+    public CharLine clear() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * @param text text to append, e.g. a label constant
+     * @return this line
+     */
+    public CharLine append(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * @param c character to append
+     * @return this line
+     */
+    public CharLine append(char c) {
+        if (length < chars.length) {
+            chars[length++] = c;
+        }
+        return this;
+    }
+
+    /**
+     * @param value number to append in decimal
+     * @return this line
+     */
+    public CharLine append(long value) {
+        if (value < 0) {
+            append('-');
+        } else {
+            value = -value; //works on negatives so Long.MIN_VALUE fits
+        }
+        //Digits are filled in from the last one, skipping those past the capacity, so a number
+        //that doesn't fit is cut off at its end like text
+        int end = length + digits(value) - 1;
+        int i = end;
+        do {
+            if (i < chars.length) {
+                chars[i] = (char) ('0' - value % 10);
+            }
+            value /= 10;
+            i--;
+        } while (value != 0);
+        length = Math.min(chars.length, end + 1);
+        return this;
+    }
+
+    /**
+     * @param value    number to append in decimal
+     * @param decimals digits after the decimal point, 0 to 9; the value is rounded to them
+     * @return this line
+     */
+    public CharLine append(double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return append(Double.isNaN(value) ? "NaN" : value > 0 ? "Inf" : "-Inf");
+        }
+        decimals = Math.max(0, Math.min(9, decimals));
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                append((char) ('0' + fraction / digit % 10));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param value    number to append
+     * @param minWidth pads the number with spaces on the left up to this many characters, so
+     *                 columns of numbers stay put while they change
+     * @return this line
+     */
+    public CharLine appendPadded(long value, int minWidth) {
+        for (int i = width(value); i < minWidth; i++) {
+            append(' ');
+        }
+        return append(value);
+    }
+
+    /**
+     * @return the characters of the line; only the first {@link #length()} are part of it
+     */
+    public char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * @return the number of characters in the line
+     */
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * @return the number of characters of the value in decimal, sign included
+     */
+    private static int width(long value) {
+        return value < 0 ? digits(value) + 1 : digits(value);
+    }
+
+    /**
+     * @return the number of decimal digits of the value
+     */
+    private static int digits(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
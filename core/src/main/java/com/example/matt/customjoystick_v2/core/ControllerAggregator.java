@@ -0,0 +1,308 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Publishes the outputs of several controls (joysticks, buttons) together on one shared tick.
+ * <p>
+ * Every control registers the {@link JoystickSnapshot} it writes its outputs to and marks itself
+ * changed after every write, which sets its dirty bit. On the next frame of the
+ * {@link FrameClock}, at most once every refresh rate, the aggregator copies the snapshot of every
+ * dirty control and publishes all controls in one callback, so the receiver gets one record in
+ * which every control is as of the same instant instead of one unsynchronized stream per control.
+ * Controls whose dirty bit is clear are not copied again and can be left out of the record sent
+ * on, e.g. with {@link FrameEncoder#encode(JoystickState[], int, long)}. </p>
+ * <p>
+ * So that a receiver that missed a record catches up, every {@link #setKeyframeInterval keyframe
+ * interval} a keyframe publishes every control as changed, even when nothing changed. A control
+ * registered with the {@link StalenessWatchdog} of its joystick is checked on every tick and
+ * keyframe, and published neutral and {@link JoystickState#isStale() stale} once the watchdog
+ * says so, like {@link JoystickSnapshot} readers get it from the joystick itself. </p>
+ * <p>
+ * Like {@link OutputPublisher}, no frame callbacks are posted for every frame while no control
+ * changes, only one delayed to the next keyframe, and nothing is allocated per tick. Every method
+ * has to be called from the thread the frame clock runs its callbacks on. </p>
+ */
+public final class ControllerAggregator implements FrameClock.Callback {
+
+    /**
+     * Receives the outputs of every control on the shared tick
+     */
+    public interface Listener {
+
+        /**
+         * @param controls       outputs of every registered control, indexed by control; only
+         *                       valid for the duration of the call
+         * @param changed        bit flags of the controls that changed since the last tick; bit n
+         *                       is control n
+         * @param frameTimeNanos time of the tick
+         */
+        void onControllerFrame(JoystickState[] controls, int changed, long frameTimeNanos);
+    }
+
+    /** Most controls that can be registered; one per bit of the dirty flags */
+    public static final int MAX_CONTROLS = Integer.SIZE;
+
+    /** Default time in milliseconds between two keyframes */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1000;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final FrameClock frameClock;
+
+    private final JoystickSnapshot[] sources = new JoystickSnapshot[MAX_CONTROLS];
+    private final JoystickState[] controls = new JoystickState[MAX_CONTROLS];
+    private final StalenessWatchdog[] watchdogs = new StalenessWatchdog[MAX_CONTROLS];
+
+    /**
+     * Version of every source last copied into {@link #controls}
+     */
+    private final int[] versions = new int[MAX_CONTROLS];
+
+    private int controlCount;
+
+    /**
+     * Bit flags of every registered control
+     */
+    private int registered;
+
+    /**
+     * Controls whose copy the watchdog made stale; copied again once it no longer says so
+     */
+    private int watchdogStale;
+
+    private Listener listener;
+
+    /**
+     * Controls that changed since the last tick
+     */
+    private int dirty;
+
+    /**
+     * Minimum time between two ticks
+     */
+    private long refreshRateNanos;
+
+    /**
+     * Frame time of the last tick
+     */
+    private long lastTickNanos;
+
+    /**
+     * Whether any tick happened yet; {@link #lastTickNanos} is meaningless before that
+     */
+    private boolean ticked;
+
+    /**
+     * Minimum time between two keyframes, or 0 for none
+     */
+    private long keyframeIntervalNanos = DEFAULT_KEYFRAME_INTERVAL * NANOS_PER_MILLI;
+
+    /**
+     * Frame time of the last keyframe; only meaningful once {@link #ticked}
+     */
+    private long lastKeyframeNanos;
+
+    /**
+     * Whether the aggregator is started
+     */
+    private boolean running;
+
+    /**
+     * Whether this is waiting for the next frame
+     */
+    private boolean posted;
+
+    /**
+     * Whether this is waiting for the frame of the next keyframe
+     */
+    private boolean postedDelayed;
+
+    /**
+     * Time of the latest frame run
+     */
+    private long frameNanos;
+
+    /**
+     * @param frameClock  clock that drives the shared tick
+     * @param refreshRate minimum time between two ticks in milliseconds
+     */
+    public ControllerAggregator(FrameClock frameClock, int refreshRate) {
+        this.frameClock = frameClock;
+        setRefreshRate(refreshRate);
+    }
+
+    /**
+     * @param listener the listener to publish to, or null to stop publishing
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param refreshRate minimum time between two ticks in milliseconds
+     */
+    public void setRefreshRate(int refreshRate) {
+        refreshRateNanos = Math.max(0, refreshRate) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param keyframeInterval time in milliseconds between two keyframes, which publish every
+     *                         control; 0 turns them off
+     */
+    public void setKeyframeInterval(int keyframeInterval) {
+        keyframeIntervalNanos = Math.max(0, keyframeInterval) * NANOS_PER_MILLI;
+        if (postedDelayed) {
+            frameClock.removeFrameCallback(this); //waiting for the old interval
+            postedDelayed = false;
+        }
+        schedule();
+    }
+
+    /**
+     * Adds a control without a watchdog
+     *
+     * @param source snapshot the control writes its outputs to
+     * @return the index of the control; its bit in the dirty flags
+     * @see #register(JoystickSnapshot, StalenessWatchdog)
+     */
+    public int register(JoystickSnapshot source) {
+        return register(source, null);
+    }
+
+    /**
+     * Adds a control.<!-- --> It starts out dirty so the next tick includes it.
+     *
+     * @param source   snapshot the control writes its outputs to
+     * @param watchdog watchdog of the control's outputs, or null
+     * @return the index of the control; its bit in the dirty flags
+     */
+    public int register(JoystickSnapshot source, StalenessWatchdog watchdog) {
+        if (controlCount >= MAX_CONTROLS) {
+            throw new IllegalStateException("At most " + MAX_CONTROLS + " controls are supported");
+        }
+        int control = controlCount++;
+        sources[control] = source;
+        controls[control] = new JoystickState();
+        watchdogs[control] = watchdog;
+        versions[control] = source.getVersion() - 2; //never equal to the current version
+        registered |= 1 << control;
+        markChanged(control);
+        return control;
+    }
+
+    /**
+     * @return the number of registered controls
+     */
+    public int getControlCount() {
+        return controlCount;
+    }
+
+    /**
+     * Starts publishing; pending changes are published on the next frame
+     */
+    public void start() {
+        running = true;
+        schedule();
+    }
+
+    /**
+     * Stops publishing and removes any pending frame callback
+     */
+    public void stop() {
+        running = false;
+        if (posted || postedDelayed) {
+            frameClock.removeFrameCallback(this);
+            posted = false;
+            postedDelayed = false;
+        }
+    }
+
+    /**
+     * Sets the dirty bit of a control so it is copied and published on an upcoming tick
+     *
+     * @param control index returned by {@link #register(JoystickSnapshot)}
+     */
+    public void markChanged(int control) {
+        dirty |= 1 << control;
+        schedule();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        postedDelayed = false;
+        frameNanos = frameTimeNanos;
+        boolean keyframe = isKeyframeDue(frameTimeNanos);
+        if (!running || (dirty == 0 && !keyframe)) {
+            schedule(); //idle; only the next keyframe is posted until the next change
+            return;
+        }
+
+        if (ticked && frameTimeNanos - lastTickNanos < refreshRateNanos) {
+            schedule(); //too soon; try again next frame
+            return;
+        }
+
+        //Copy every changed control first so all of them are from the same instant
+        int changed = 0;
+        for (int pending = dirty | watchdogStale; pending != 0; pending &= pending - 1) {
+            int control = Integer.numberOfTrailingZeros(pending);
+            JoystickSnapshot source = sources[control];
+            boolean recovered = (watchdogStale & 1 << control) != 0
+                    && !watchdogs[control].isStale(frameTimeNanos);
+            if (source.getVersion() != versions[control] || recovered) {
+                versions[control] = source.read(controls[control]);
+                watchdogStale &= ~(1 << control);
+                changed |= 1 << control;
+            }
+        }
+        dirty = 0;
+
+        //Then the watchdogs, so outputs that stopped coming in don't stay published
+        for (int control = 0; control < controlCount; control++) {
+            StalenessWatchdog watchdog = watchdogs[control];
+            if (watchdog != null && !controls[control].isStale() && watchdog.isStale(frameTimeNanos)) {
+                controls[control].neutralize();
+                watchdogStale |= 1 << control;
+                changed |= 1 << control;
+            }
+        }
+
+        if (keyframe) {
+            changed = registered;
+        }
+        if (changed != 0) {
+            if (changed == registered) {
+                lastKeyframeNanos = frameTimeNanos; //every control is sent; as good as a keyframe
+            }
+            ticked = true;
+            lastTickNanos = frameTimeNanos;
+            if (listener != null) {
+                listener.onControllerFrame(controls, changed, frameTimeNanos);
+            }
+        } //else marked, but nothing new was written
+        schedule();
+    }
+
+    /**
+     * @return whether every control has to be published on this frame
+     */
+    private boolean isKeyframeDue(long frameTimeNanos) {
+        return keyframeIntervalNanos > 0 && ticked
+                && frameTimeNanos - lastKeyframeNanos >= keyframeIntervalNanos;
+    }
+
+    private void schedule() {
+        if (!running || posted) {
+            return;
+        }
+        if (dirty != 0) {
+            posted = true;
+            postedDelayed = false; //the next frame replaces the wait for the keyframe
+            frameClock.postFrameCallback(this);
+        } else if (!postedDelayed && keyframeIntervalNanos > 0 && ticked) {
+            postedDelayed = true;
+            long wait = lastKeyframeNanos + keyframeIntervalNanos - frameNanos;
+            frameClock.postFrameCallbackDelayed(this, (wait + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Decoded binary frame of the outputs of several controls, published together by a
+ * {@link ControllerAggregator}.
+ * <p>
+ * Layout of a frame, big-endian, {@link #HEADER_SIZE} bytes plus {@link #RECORD_SIZE} bytes for
+ * every control in it:
+ * <pre>
+ *  0  byte   magic, always {@link #MAGIC}
+ *  1  byte   version, always {@link #VERSION}
+ *  2  byte   number of control records
+ *  3  byte   reserved, 0
+ *  4  int    sequence number, incremented for every frame sent; a gap means a lost frame
+ *  8  long   time of the tick in milliseconds
+ * 16  int    bit flags of the controls in the frame; bit n is control n
+ * 20         one record per flag, lowest bit first:
+ *     +0  short  x-axis, -32767 to 32767 for -100% to 100%
+ *     +2  short  y-axis, -32767 to 32767 for -100% to 100%; up is positive
+ *     +4  ushort strength, 0 to 65535 for 0% to 100%
+ *     +6  short  angle as a binary angle; 65536 is a full turn and 0 is the positive x-axis
+ *     +8  int    age of the sample: tick time minus its event time, in milliseconds
+ *    +12  byte   button bit flags
+ *    +13  byte   flags: {@link JoystickFrame#FLAG_STALE}; other bits 0
+ *    +14  2 bytes reserved, 0
+ * </pre>
+ * The first 8 bytes of a record are the {@link QuantizedOutputs} of the control, laid out like
+ * bytes 16-23 of a {@link JoystickFrame}. Controls that didn't change since the previous frame
+ * are left out; the receiver keeps their last values. </p>
+ */
+public final class ControllerFrame {
+
+    public static final byte MAGIC = 0x43; //'C'
+    public static final byte VERSION = 1;
+
+    public static final int HEADER_SIZE = 20;
+    public static final int RECORD_SIZE = 16;
+
+    /**
+     * Size of a frame holding every control
+     */
+    public static final int MAX_SIZE = HEADER_SIZE + ControllerAggregator.MAX_CONTROLS * RECORD_SIZE;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 1;
+    static final int OFFSET_COUNT = 2;
+    static final int OFFSET_SEQUENCE = 4;
+    static final int OFFSET_FRAME_TIME = 8;
+    static final int OFFSET_CONTROLS = 16;
+
+    static final int RECORD_QUANTIZED = 0;
+    static final int RECORD_AGE = 8;
+    static final int RECORD_BUTTONS = 12;
+    static final int RECORD_FLAGS = 13;
+
+    int sequence;
+    long frameTime;
+    int controls;
+    final long[] quantized = new long[ControllerAggregator.MAX_CONTROLS];
+    final long[] eventTimes = new long[ControllerAggregator.MAX_CONTROLS];
+    final int[] buttons = new int[ControllerAggregator.MAX_CONTROLS];
+    final int[] flags = new int[ControllerAggregator.MAX_CONTROLS];
+
+    /**
+     * @return the sequence number of the frame
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the time of the tick in milliseconds
+     */
+    public long getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * @return bit flags of the controls in the frame; bit n is control n
+     */
+    public int getControls() {
+        return controls;
+    }
+
+    /**
+     * @return whether the frame holds new outputs of the control
+     */
+    public boolean contains(int control) {
+        return (controls & (1 << control)) != 0;
+    }
+
+    /**
+     * @return the {@link QuantizedOutputs} of the control
+     */
+    public long getQuantized(int control) {
+        return quantized[control];
+    }
+
+    /**
+     * @return the event time of the sample of the control in milliseconds
+     */
+    public long getEventTime(int control) {
+        return eventTimes[control];
+    }
+
+    /**
+     * @return bit flags of the buttons of the control that are pressed
+     */
+    public int getButtons(int control) {
+        return buttons[control];
+    }
+
+    /**
+     * @return whether the outputs of the control were forced to neutral because it stopped
+     *         getting touches
+     */
+    public boolean isStale(int control) {
+        return (flags[control] & JoystickFrame.FLAG_STALE) != 0;
+    }
+}
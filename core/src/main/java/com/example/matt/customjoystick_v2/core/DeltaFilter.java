@@ -0,0 +1,70 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Passes published outputs on only when they changed enough to matter.
+ * <p>
+ * Outputs are passed on when either percentage moved at least its minimum delta away from the
+ * last outputs passed on, when the buttons changed, or when the thumbstick got back to the
+ * center, so the consumer always ends up with the resting outputs. Small moves are compared with
+ * the last outputs passed on rather than the previous publish, so a slow drift still gets through
+ * once it adds up. Used as an {@link OutputPublisher.Listener}; nothing is allocated. </p>
+ */
+public final class DeltaFilter implements OutputPublisher.Listener {
+
+    private final OutputPublisher.Listener target;
+
+    private int minDeltaX;
+    private int minDeltaY;
+
+    /**
+     * Last outputs passed on
+     */
+    private final JoystickState last = new JoystickState();
+    private boolean passed;
+
+    /**
+     * @param target receives the outputs that changed enough
+     */
+    public DeltaFilter(OutputPublisher.Listener target) {
+        this.target = target;
+    }
+
+    /**
+     * @param minDeltaX smallest change of the x-axis percentage passed on; 0 passes every change
+     * @param minDeltaY smallest change of the y-axis percentage passed on; 0 passes every change
+     */
+    public void setMinimumDelta(int minDeltaX, int minDeltaY) {
+        this.minDeltaX = Math.max(0, minDeltaX);
+        this.minDeltaY = Math.max(0, minDeltaY);
+    }
+
+    /**
+     * Forgets the last outputs passed on so the next publish is passed on
+     */
+    public void reset() {
+        passed = false;
+    }
+
+    @Override
+    public void onPublish(JoystickState state, long frameTimeNanos) {
+        if (passed && !hasChanged(state)) {
+            return;
+        }
+        passed = true;
+        last.set(state);
+        target.onPublish(state, frameTimeNanos);
+    }
+
+    private boolean hasChanged(JoystickState state) {
+        int deltaX = Math.abs(state.percentageX - last.percentageX);
+        int deltaY = Math.abs(state.percentageY - last.percentageY);
+        if (deltaX == 0 && deltaY == 0) {
+            return state.buttons != last.buttons;
+        }
+        //An axis only passes on a change of its own; with a minimum of 0 an unchanged axis would
+        //pass every change of the other one
+        return (deltaX > 0 && deltaX >= minDeltaX) || (deltaY > 0 && deltaY >= minDeltaY)
+                || state.buttons != last.buttons
+                || (state.percentageX == 0 && state.percentageY == 0); //back at the center
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Turns the outputs of a joystick into one of N directions, like a D-pad.
+ * <p>
+ * The circle is cut into N equal sectors, sector 0 centered on the positive x-axis and the rest
+ * following counter-clockwise, plus a dead zone around the center. The direction is computed from
+ * the fixed-point strength and binary angle of {@link QuantizedOutputs}, so a sample costs a few
+ * integer operations and no trigonometry; the sector bounds and flags are computed whenever the
+ * settings change. </p>
+ * <p>
+ * Both edges have hysteresis: once in a sector the angle has to move the hysteresis past its
+ * edge before the next sector is taken, and once in the dead zone the strength has to rise the
+ * dead zone hysteresis above it before a sector is taken. A finger resting on an edge therefore
+ * doesn't make the direction chatter, and the listener only hears about real changes.
+ * Nothing is allocated. </p>
+ */
+public final class DirectionalPad {
+
+    /**
+     * Receives the direction every time it changes
+     */
+    public interface Listener {
+
+        /**
+         * @param direction the sector the thumbstick is in, or {@link #CENTER}
+         * @param flags     the FLAG bits of the direction
+         * @param eventTime time of the sample that changed the direction, in milliseconds
+         */
+        void onDirectionChange(int direction, int flags, long eventTime);
+    }
+
+    /** Direction while the thumbstick is in the dead zone */
+    public static final int CENTER = -1;
+
+    /** Flag of directions pointing right */
+    public static final int FLAG_RIGHT = 1;
+    /** Flag of directions pointing up */
+    public static final int FLAG_UP = 1 << 1;
+    /** Flag of directions pointing left */
+    public static final int FLAG_LEFT = 1 << 2;
+    /** Flag of directions pointing down */
+    public static final int FLAG_DOWN = 1 << 3;
+
+    /** Fewest sectors the circle can be cut into */
+    public static final int MIN_SECTORS = 2;
+
+    /** Most sectors the circle can be cut into */
+    public static final int MAX_SECTORS = 64;
+
+    private static final int FULL_TURN = QuantizedOutputs.FULL_TURN;
+    private static final int HALF_TURN = FULL_TURN / 2;
+
+    /**
+     * A sector points in a cardinal direction when its center is less than 3/16 of a turn from it,
+     * so each of 8 sectors gets one or two flags and each of 4 sectors gets exactly one
+     */
+    private static final int FLAG_REACH = FULL_TURN * 3 / 16;
+
+    private final Listener listener;
+
+    private int sectors;
+    private float hysteresisDegrees;
+
+    /**
+     * Flags of every sector
+     */
+    private final int[] sectorFlags = new int[MAX_SECTORS];
+
+    /**
+     * How far, in binary angle times the number of sectors, the angle can be from the center of
+     * the current sector before it is left; half a sector plus the hysteresis
+     */
+    private int stayLimit;
+
+    /**
+     * Strength below which the thumbstick is in the dead zone
+     */
+    private int deadZoneLevel;
+
+    /**
+     * Strength the thumbstick has to reach to leave the dead zone
+     */
+    private int leaveDeadZoneLevel;
+
+    private int direction = CENTER;
+
+    /**
+     * Creates a 4-way pad with a 20% dead zone and 10 degrees of hysteresis
+     *
+     * @param listener receives the direction every time it changes, or null
+     */
+    public DirectionalPad(Listener listener) {
+        this.listener = listener;
+        setDeadZone(20, 5);
+        setHysteresis(10);
+        setSectors(4);
+    }
+
+    /**
+     * Sets the number of directions.<!-- --> The direction goes back to {@link #CENTER} without
+     * a report; the next sample outside the dead zone reports the new direction.
+     *
+     * @param sectors number of directions, {@link #MIN_SECTORS} to {@link #MAX_SECTORS}; e.g. 4
+     *                or 8
+     */
+    public void setSectors(int sectors) {
+        if (sectors < MIN_SECTORS || sectors > MAX_SECTORS) {
+            throw new IllegalArgumentException("sectors must be between " + MIN_SECTORS + " and "
+                    + MAX_SECTORS + ": " + sectors);
+        }
+        this.sectors = sectors;
+        for (int s = 0; s < sectors; s++) {
+            int center = (int) ((long) s * FULL_TURN / sectors);
+            int flags = 0;
+            for (int c = 0; c < 4; c++) { //right, up, left, down
+                if (Math.abs(wrap(center - c * (FULL_TURN / 4))) < FLAG_REACH) {
+                    flags |= 1 << c;
+                }
+            }
+            sectorFlags[s] = flags;
+        }
+        computeStayLimit();
+        direction = CENTER;
+    }
+
+    /**
+     * Brings a number of directions from a setting into range, e.g. one read from a layout
+     *
+     * @param count number of directions asked for; 0 or less means no directions
+     * @return 0 for no directions, otherwise the count clamped to {@link #MIN_SECTORS} to
+     *         {@link #MAX_SECTORS}
+     */
+    public static int clampSectors(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        return Math.max(MIN_SECTORS, Math.min(MAX_SECTORS, count));
+    }
+
+    /**
+     * @param deadZone   0-100; strength below which the direction is {@link #CENTER}
+     * @param hysteresis 0-100; how far above the dead zone the strength has to rise to leave it
+     */
+    public void setDeadZone(int deadZone, int hysteresis) {
+        deadZoneLevel = toLevel(deadZone);
+        leaveDeadZoneLevel = toLevel(deadZone + Math.max(0, hysteresis));
+    }
+
+    /**
+     * @param degrees how far past the edge of a sector the angle has to move to leave it; at most
+     *                half a sector is used
+     */
+    public void setHysteresis(float degrees) {
+        hysteresisDegrees = Math.max(0, degrees);
+        computeStayLimit();
+    }
+
+    /**
+     * Goes back to {@link #CENTER} without a report
+     */
+    public void reset() {
+        direction = CENTER;
+    }
+
+    /**
+     * Updates the direction from new outputs and reports it if it changed
+     *
+     * @param state outputs of the joystick
+     * @return whether the direction changed
+     */
+    public boolean update(JoystickState state) {
+        long quantized = state.quantized;
+        int strength = QuantizedOutputs.getStrength(quantized);
+
+        int next;
+        if (strength < (direction == CENTER ? leaveDeadZoneLevel : deadZoneLevel)) {
+            next = CENTER;
+        } else {
+            next = sectorOf(QuantizedOutputs.getAngle(quantized) & 0xFFFF);
+        }
+
+        if (next == direction) {
+            return false;
+        }
+        direction = next;
+        if (listener != null) {
+            listener.onDirectionChange(next, getFlags(), state.eventTime);
+        }
+        return true;
+    }
+
+    /**
+     * @return the sector the thumbstick is in, or {@link #CENTER}
+     */
+    public int getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the FLAG bits of the direction; 0 in the dead zone
+     */
+    public int getFlags() {
+        return direction == CENTER ? 0 : sectorFlags[direction];
+    }
+
+    /**
+     * @return the number of directions
+     */
+    public int getSectors() {
+        return sectors;
+    }
+
+    /**
+     * @param angle binary angle, 0 to 65535
+     * @return the sector of the angle, keeping the current one while within its hysteresis
+     */
+    private int sectorOf(int angle) {
+        int scaled = angle * sectors; //sector s is centered on s * FULL_TURN
+        if (direction != CENTER) {
+            int span = sectors * FULL_TURN;
+            int offset = scaled - direction * FULL_TURN;
+            if (offset >= span / 2) {
+                offset -= span;
+            } else if (offset < -span / 2) {
+                offset += span;
+            }
+            if (Math.abs(offset) <= stayLimit) {
+                return direction;
+            }
+        }
+        return ((scaled + HALF_TURN) >>> 16) % sectors;
+    }
+
+    private void computeStayLimit() {
+        int hysteresis = (int) (hysteresisDegrees * FULL_TURN / 360 * sectors);
+        stayLimit = Math.min(FULL_TURN, HALF_TURN + hysteresis);
+    }
+
+    /**
+     * @return the binary angle difference wrapped to -32768 to 32767
+     */
+    private static int wrap(int angle) {
+        return (short) angle;
+    }
+
+    private static int toLevel(int percentage) {
+        int clamped = Math.max(0, Math.min(100, percentage));
+        return (clamped * QuantizedOutputs.STRENGTH_MAX + 50) / 100;
+    }
+}
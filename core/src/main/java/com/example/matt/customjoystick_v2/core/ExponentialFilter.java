@@ -0,0 +1,64 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Exponential moving average of the touch position.
+ * <p>
+ * Each sample moves the output towards it by {@code 1 - e^(-dt / timeConstant)}, where dt is the
+ * time since the previous sample. A sample after a long gap therefore counts for more than one
+ * right after the previous sample, and the smoothing is the same whatever the sample rate. </p>
+ */
+public final class ExponentialFilter implements TouchFilter {
+
+    private final float timeConstant;
+
+    private boolean started;
+    private long lastEventTime;
+    private float x;
+    private float y;
+
+    /**
+     * @param timeConstant time in milliseconds after which a step of the touch is about 63%
+     *                     followed; larger is smoother but lags more
+     */
+    public ExponentialFilter(float timeConstant) {
+        if (timeConstant <= 0) {
+            throw new IllegalArgumentException("timeConstant must be positive: " + timeConstant);
+        }
+        this.timeConstant = timeConstant;
+    }
+
+    @Override
+    public void update(float rawX, float rawY, long eventTime) {
+        if (!started) {
+            started = true;
+            x = rawX;
+            y = rawY;
+        } else {
+            long dt = eventTime - lastEventTime;
+            float alpha = dt <= 0 ? 0 : 1 - (float) Math.exp(-dt / timeConstant);
+            x += alpha * (rawX - x);
+            y += alpha * (rawY - y);
+        }
+        lastEventTime = eventTime;
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+    }
+
+    @Override
+    public ExponentialFilter copy() {
+        return new ExponentialFilter(timeConstant);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Source of display frame ticks.
+ * <p>
+ * On Android this is backed by the Choreographer so work lines up with vsync; tests and other
+ * hosts can supply their own implementation and drive the frames by hand. Callbacks are one-shot
+ * like the Choreographer: a callback that wants the next frame as well posts itself again. </p>
+ */
+public interface FrameClock {
+
+    /**
+     * Receives a single frame tick
+     */
+    interface Callback {
+
+        /**
+         * @param frameTimeNanos time the frame started, in {@link System#nanoTime()} time base
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * Runs the callback once on the next frame.<!-- --> Posting a callback that is already
+     * waiting for the next frame does nothing; one waiting for a later frame runs on the next
+     * one instead.
+     *
+     * @param callback the callback to run
+     */
+    void postFrameCallback(Callback callback);
+
+    /**
+     * Runs the callback once on the first frame at least the delay from now, without waking up
+     * for the frames in between.<!-- --> Posting a callback that is already waiting does nothing.
+     *
+     * @param callback the callback to run
+     * @param delay    time in milliseconds to wait
+     */
+    void postFrameCallbackDelayed(Callback callback, long delay);
+
+    /**
+     * Removes a callback that is waiting for a frame, if any
+     *
+     * @param callback the callback to remove
+     */
+    void removeFrameCallback(Callback callback);
+}
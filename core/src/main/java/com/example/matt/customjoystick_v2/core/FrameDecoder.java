@@ -0,0 +1,74 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes {@link JoystickFrame} and {@link ControllerFrame} binary frames, e.g. on the receiving
+ * end of a {@link UdpTransport}.
+ */
+public final class FrameDecoder {
+
+    /**
+     * Decodes the frame starting at the position of the buffer.<!-- --> The position of the buffer
+     * is not changed.
+     *
+     * @param in  buffer holding the frame
+     * @param out the frame to write the values into
+     * @return false if the buffer does not hold a complete frame of a known version
+     */
+    public boolean decode(ByteBuffer in, JoystickFrame out) {
+        int start = in.position();
+        if (in.remaining() < JoystickFrame.SIZE
+                || in.get(start + JoystickFrame.OFFSET_MAGIC) != JoystickFrame.MAGIC
+                || in.get(start + JoystickFrame.OFFSET_VERSION) != JoystickFrame.VERSION) {
+            return false;
+        }
+
+        out.buttons   = in.get(start + JoystickFrame.OFFSET_BUTTONS) & 0xFF;
+        out.flags     = in.get(start + JoystickFrame.OFFSET_FLAGS) & 0xFF;
+        out.sequence  = in.getInt(start + JoystickFrame.OFFSET_SEQUENCE);
+        out.eventTime = in.getLong(start + JoystickFrame.OFFSET_EVENT_TIME);
+        out.axisX     = in.getShort(start + JoystickFrame.OFFSET_AXIS_X);
+        out.axisY     = in.getShort(start + JoystickFrame.OFFSET_AXIS_Y);
+        out.strength  = in.getShort(start + JoystickFrame.OFFSET_STRENGTH) & 0xFFFF;
+        out.angle     = in.getShort(start + JoystickFrame.OFFSET_ANGLE);
+        return true;
+    }
+
+    /**
+     * Decodes the controller frame starting at the position of the buffer.<!-- --> The position
+     * of the buffer is not changed; the values of controls not in the frame are left as they are.
+     *
+     * @param in  buffer holding the frame
+     * @param out the frame to write the values into
+     * @return false if the buffer does not hold a complete frame of a known version
+     */
+    public boolean decode(ByteBuffer in, ControllerFrame out) {
+        int start = in.position();
+        if (in.remaining() < ControllerFrame.HEADER_SIZE
+                || in.get(start + ControllerFrame.OFFSET_MAGIC) != ControllerFrame.MAGIC
+                || in.get(start + ControllerFrame.OFFSET_VERSION) != ControllerFrame.VERSION) {
+            return false;
+        }
+        int controls = in.getInt(start + ControllerFrame.OFFSET_CONTROLS);
+        int count = in.get(start + ControllerFrame.OFFSET_COUNT) & 0xFF;
+        if (count != Integer.bitCount(controls)
+                || in.remaining() < ControllerFrame.HEADER_SIZE + count * ControllerFrame.RECORD_SIZE) {
+            return false;
+        }
+
+        out.sequence  = in.getInt(start + ControllerFrame.OFFSET_SEQUENCE);
+        out.frameTime = in.getLong(start + ControllerFrame.OFFSET_FRAME_TIME);
+        out.controls  = controls;
+        int record = start + ControllerFrame.HEADER_SIZE;
+        for (int pending = controls; pending != 0; pending &= pending - 1) {
+            int control = Integer.numberOfTrailingZeros(pending);
+            out.quantized[control]  = in.getLong(record + ControllerFrame.RECORD_QUANTIZED);
+            out.eventTimes[control] = out.frameTime - in.getInt(record + ControllerFrame.RECORD_AGE);
+            out.buttons[control]    = in.get(record + ControllerFrame.RECORD_BUTTONS) & 0xFF;
+            out.flags[control]      = in.get(record + ControllerFrame.RECORD_FLAGS) & 0xFF;
+            record += ControllerFrame.RECORD_SIZE;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes joystick outputs into {@link JoystickFrame} and {@link ControllerFrame} binary frames.
+ * <p>
+ * Each kind of frame is written into its own direct buffer that is reused for every frame, so
+ * encoding does not allocate and the buffer can be handed to a channel without being copied. Not
+ * thread safe; use one encoder per sending thread. </p>
+ * <p>
+ * The sequence number written into the frames is the encoder's own count of the frames it
+ * encoded, so receivers can detect lost and reordered frames; it is not the
+ * {@link JoystickState#getSequence() output sequence}. </p>
+ */
+public final class FrameEncoder {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(JoystickFrame.SIZE);
+    private final ByteBuffer controllerBuffer = ByteBuffer.allocateDirect(ControllerFrame.MAX_SIZE);
+
+    private int sequence;
+
+    /**
+     * Encodes the outputs into the next frame.<!-- --> The axes, strength and angle are the
+     * {@link JoystickState#getQuantized() quantized outputs} as they are.
+     *
+     * @param state the outputs to encode
+     * @return the frame, ready to be written; only valid until the next call
+     */
+    public ByteBuffer encode(JoystickState state) {
+        buffer.clear();
+        buffer.put(JoystickFrame.OFFSET_MAGIC, JoystickFrame.MAGIC);
+        buffer.put(JoystickFrame.OFFSET_VERSION, JoystickFrame.VERSION);
+        buffer.put(JoystickFrame.OFFSET_BUTTONS, (byte) state.buttons);
+        buffer.put(JoystickFrame.OFFSET_FLAGS, (byte) (state.stale ? JoystickFrame.FLAG_STALE : 0));
+        buffer.putInt(JoystickFrame.OFFSET_SEQUENCE, sequence++);
+        buffer.putLong(JoystickFrame.OFFSET_EVENT_TIME, state.eventTime);
+        //The quantized outputs are laid out like the end of the frame: axes, strength and angle
+        buffer.putLong(JoystickFrame.OFFSET_AXIS_X, state.quantized);
+        buffer.limit(JoystickFrame.SIZE);
+        return buffer;
+    }
+
+    /**
+     * Encodes the outputs of the controls published on a {@link ControllerAggregator} tick into
+     * the next {@link ControllerFrame}; only the changed controls are written, every control on
+     * a keyframe.<!-- --> Shares the sequence numbers with {@link #encode(JoystickState)}.
+     *
+     * @param controls       outputs of every control, indexed by control
+     * @param changed        bit flags of the controls to write; bit n is control n
+     * @param frameTimeNanos time of the tick
+     * @return the frame, ready to be written; only valid until the next call
+     */
+    public ByteBuffer encode(JoystickState[] controls, int changed, long frameTimeNanos) {
+        long frameTime = frameTimeNanos / NANOS_PER_MILLI;
+        ByteBuffer out = controllerBuffer;
+        out.clear();
+        out.put(ControllerFrame.OFFSET_MAGIC, ControllerFrame.MAGIC);
+        out.put(ControllerFrame.OFFSET_VERSION, ControllerFrame.VERSION);
+        out.put(ControllerFrame.OFFSET_COUNT, (byte) Integer.bitCount(changed));
+        out.put(ControllerFrame.OFFSET_COUNT + 1, (byte) 0);
+        out.putInt(ControllerFrame.OFFSET_SEQUENCE, sequence++);
+        out.putLong(ControllerFrame.OFFSET_FRAME_TIME, frameTime);
+        out.putInt(ControllerFrame.OFFSET_CONTROLS, changed);
+
+        int record = ControllerFrame.HEADER_SIZE;
+        for (int pending = changed; pending != 0; pending &= pending - 1) {
+            JoystickState state = controls[Integer.numberOfTrailingZeros(pending)];
+            out.putLong(record + ControllerFrame.RECORD_QUANTIZED, state.quantized);
+            out.putInt(record + ControllerFrame.RECORD_AGE, (int) (frameTime - state.eventTime));
+            out.putInt(record + ControllerFrame.RECORD_BUTTONS, (state.buttons & 0xFF) << 24
+                    | (state.stale ? JoystickFrame.FLAG_STALE : 0) << 16);
+            record += ControllerFrame.RECORD_SIZE;
+        }
+        out.limit(record);
+        return out;
+    }
+
+    /**
+     * @return the sequence number the next frame will get
+     */
+    public int getNextSequence() {
+        return sequence;
+    }
+}
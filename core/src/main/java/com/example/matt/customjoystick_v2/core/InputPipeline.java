@@ -0,0 +1,374 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes touch samples on a dedicated thread instead of the UI thread.
+ * <p>
+ * The UI thread only {@link #offer}s raw samples into a {@link RawSampleQueue}. A worker thread
+ * drains them in batches, runs them through the touch filter and the {@link JoystickKernel}
+ * (with its response curve), writes the outputs to a {@link JoystickSnapshot} and then hands
+ * them to the stages, e.g. a {@link UdpTransport}, once per batch. Slow stages only make the
+ * worker fall behind, which shows as backlog and, once the queue is full, dropped samples; the UI
+ * thread never waits for them. How the worker waits for samples is set by a
+ * {@link WaitStrategy}. Nothing is allocated per sample. </p>
+ * <p>
+ * The kernel, response curve and touch filter belong to the worker once the pipeline is
+ * started, also after {@link #close()} until {@link #isTerminated()}; give every pipeline copies
+ * of its own. Changes of the joystick size go through {@link #offerGeometry}. </p>
+ */
+public final class InputPipeline implements Closeable {
+
+    /**
+     * Gets every sample the worker processed, e.g. to record or buffer them
+     */
+    public interface SampleListener {
+
+        /**
+         * Called on the worker after every sample, before the stages get the batch
+         *
+         * @param action MotionEvent action of the sample,
+         *               {@link SessionRecorder#ACTION_GEOMETRY} with the layout size as x and
+         *               the canvas padding as y, or {@link SessionRecorder#ACTION_RECENTER} with
+         *               the center as x and y for a touch that ended with a recenter
+         * @param x      x the outputs were computed from, i.e. after the touch filter
+         * @param y      y the outputs were computed from, i.e. after the touch filter
+         * @param state  outputs computed from the sample; only valid during the call
+         */
+        void onSample(int action, float x, float y, JoystickState state);
+    }
+
+    private static final int ACTION_DOWN = 0; //MotionEvent.ACTION_DOWN
+    private static final int ACTION_UP = 1; //MotionEvent.ACTION_UP
+    private static final int ACTION_CANCEL = 3; //MotionEvent.ACTION_CANCEL
+
+    /**
+     * Most samples processed before the stages get the outputs
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final JoystickKernel kernel;
+    private final RawSampleQueue queue;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Outputs; only used by the worker
+     */
+    private final JoystickState state = new JoystickState();
+    private final JoystickSnapshot snapshot = new JoystickSnapshot();
+
+    private final ArrayList<OutputPublisher.Listener> stageList = new ArrayList<>();
+    private OutputPublisher.Listener[] stages;
+
+    private TouchFilter touchFilter;
+    private SampleListener sampleListener;
+    private boolean autoRecenter = true;
+
+    /**
+     * Pipeline this one replaces; the worker waits for its worker to stop first
+     */
+    private InputPipeline previous;
+
+    /**
+     * Numbers the outputs; shared with whoever processed the samples before the pipeline
+     */
+    private AtomicLong sequence = new AtomicLong();
+
+    private final RawSampleQueue.Consumer processor = new RawSampleQueue.Consumer() {
+        @Override
+        public void onRawSample(int action, float rawX, float rawY, long eventTime, int buttons) {
+            process(action, rawX, rawY, eventTime, buttons);
+        }
+    };
+
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Only written by the worker
+     */
+    private volatile long processedCount;
+    private volatile long batchCount;
+
+    /**
+     * @param kernel       the math run on the worker; set its response curve before starting
+     * @param capacity     number of samples that can wait for the worker before new ones are
+     *                     dropped; rounded up to a power of two
+     * @param waitStrategy how the worker waits for samples
+     */
+    public InputPipeline(JoystickKernel kernel, int capacity, WaitStrategy waitStrategy) {
+        this.kernel = kernel;
+        this.queue = new RawSampleQueue(capacity);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Adds a stage that gets the outputs on the worker after every batch of samples.<!-- --> Must
+     * be called before {@link #start()}.
+     *
+     * @param stage the stage; the frame time it is given is the {@link System#nanoTime()} the
+     *              batch was processed at
+     */
+    public void addStage(OutputPublisher.Listener stage) {
+        checkNotStarted();
+        stageList.add(stage);
+    }
+
+    /**
+     * @param filter filter run on the worker before the kernel, or null.<!-- --> Must be called
+     *               before {@link #start()}.
+     */
+    public void setTouchFilter(TouchFilter filter) {
+        checkNotStarted();
+        touchFilter = filter;
+    }
+
+    /**
+     * @param listener gets every sample on the worker, or null.<!-- --> Must be called before
+     *                 {@link #start()}.
+     */
+    public void setSampleListener(SampleListener listener) {
+        checkNotStarted();
+        sampleListener = listener;
+    }
+
+    /**
+     * Makes the worker wait for the worker of a closed pipeline to stop before processing
+     * anything, so the stages and the sample listener, which are often shared, never run on two
+     * threads at once.<!-- --> Must be called before {@link #start()}.
+     *
+     * @param previous the pipeline this one replaces, or null
+     */
+    public void setPrevious(InputPipeline previous) {
+        checkNotStarted();
+        this.previous = previous;
+    }
+
+    /**
+     * @param autoRecenter whether the outputs go back to the center when the touch is lifted.
+     *                     <!-- -->Must be called before {@link #start()}.
+     */
+    public void setAutoRecenter(boolean autoRecenter) {
+        checkNotStarted();
+        this.autoRecenter = autoRecenter;
+    }
+
+    /**
+     * @param sequence counter the outputs are numbered from, so numbering continues where the
+     *                 thread that processed the samples before left off.<!-- --> Must be called
+     *                 before {@link #start()}.
+     */
+    public void setSequence(AtomicLong sequence) {
+        checkNotStarted();
+        this.sequence = sequence;
+    }
+
+    /**
+     * Starts the worker thread
+     */
+    public void start() {
+        checkNotStarted();
+        stages = stageList.toArray(new OutputPublisher.Listener[stageList.size()]);
+        running = true;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "InputPipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Hands a touch sample to the worker.<!-- --> Must only be called from one thread, normally
+     * the UI thread.
+     *
+     * @param action    MotionEvent action of the sample; ACTION_MOVE for historical samples
+     * @param rawX      x of the touch
+     * @param rawY      y of the touch
+     * @param eventTime time of the sample in milliseconds
+     * @param buttons   bit flags of the buttons pressed with the sample
+     * @return false if the worker is too far behind and the sample was dropped
+     */
+    public boolean offer(int action, float rawX, float rawY, long eventTime, int buttons) {
+        if (!queue.offer(action, rawX, rawY, eventTime, buttons)) {
+            return false;
+        }
+        Thread consumer = worker;
+        if (consumer != null) {
+            waitStrategy.signal(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Hands a change of the joystick size to the worker; samples offered after it use it.<!-- -->
+     * Must be called from the thread that offers samples.
+     *
+     * @param layoutSize    size of the square layout in pixels
+     * @param canvasPadding padding between the edge of the layout and the joystick in pixels
+     * @param eventTime     time of the change in milliseconds
+     * @return false if the worker is too far behind and the change was dropped
+     */
+    public boolean offerGeometry(int layoutSize, int canvasPadding, long eventTime) {
+        return offer(SessionRecorder.ACTION_GEOMETRY, layoutSize, canvasPadding, eventTime, 0);
+    }
+
+    /**
+     * Copies the latest outputs; can be called from any thread
+     *
+     * @param out the state to copy into
+     * @return the version of the outputs; it changes after every batch
+     */
+    public int readSnapshot(JoystickState out) {
+        return snapshot.read(out);
+    }
+
+    /**
+     * @return the version the next {@link #readSnapshot} returns unless a batch finishes first
+     */
+    public int getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * @return the number of samples waiting for the worker
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of samples dropped because the worker was too far behind
+     */
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    /**
+     * @return the number of samples processed by the worker
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * @return the number of batches handed to the stages
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Stops the worker after the batch it is processing; samples still waiting are
+     * discarded.<!-- --> Doesn't wait for the worker; see {@link #isTerminated()},
+     * {@link #awaitTermination(long)} and {@link #setPrevious(InputPipeline)}.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread consumer = worker;
+        if (consumer != null) {
+            waitStrategy.signal(consumer);
+        }
+    }
+
+    /**
+     * @return whether the worker has stopped, or never started; once it has, whatever it
+     *         wrote is visible to the calling thread
+     */
+    public boolean isTerminated() {
+        Thread consumer = worker;
+        return consumer == null || !consumer.isAlive();
+    }
+
+    /**
+     * Waits for the worker to stop after {@link #close()}
+     *
+     * @param timeout most time to wait in milliseconds; 0 waits for as long as it takes
+     * @return whether the worker has stopped
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        Thread consumer = worker;
+        if (consumer != null) {
+            consumer.join(timeout);
+        }
+        return isTerminated();
+    }
+
+    private void work() {
+        InputPipeline replaced = previous;
+        previous = null; //a chain of replaced pipelines is never kept alive
+        if (replaced != null) {
+            try {
+                replaced.awaitTermination(0);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+
+        int idleCount = 0;
+        while (running) {
+            if (queue.drain(processor, BATCH_SIZE) == 0) {
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+
+            snapshot.write(state);
+            long nowNanos = System.nanoTime();
+            for (OutputPublisher.Listener stage : stages) {
+                stage.onPublish(state, nowNanos);
+            }
+            batchCount++;
+        }
+    }
+
+    private void process(int action, float rawX, float rawY, long eventTime, int buttons) {
+        switch (action) {
+            case SessionRecorder.ACTION_GEOMETRY:
+                kernel.setGeometry((int) rawX, (int) rawY);
+                kernel.recenter(eventTime, state);
+                break;
+            case ACTION_UP:
+            case ACTION_CANCEL:
+                if (autoRecenter || action == ACTION_CANCEL) {
+                    kernel.recenter(eventTime, state);
+                    state.stale = action == ACTION_CANCEL; //the touch didn't end on its own
+                    //Recorded as a recenter step, so replays reach the same outputs
+                    action = SessionRecorder.ACTION_RECENTER;
+                    rawX = rawY = kernel.getCenter();
+                } else {
+                    state.eventTime = eventTime; //the thumbstick stays where it was let go of
+                }
+                break;
+            default:
+                if (touchFilter != null) {
+                    if (action == ACTION_DOWN) {
+                        touchFilter.reset();
+                    }
+                    touchFilter.update(rawX, rawY, eventTime);
+                    rawX = touchFilter.getX();
+                    rawY = touchFilter.getY();
+                }
+                kernel.process(rawX, rawY, eventTime, state);
+                break;
+        }
+        state.buttons = state.stale ? 0 : buttons;
+        state.sequence = sequence.incrementAndGet();
+        if (sampleListener != null) {
+            sampleListener.onSample(action, rawX, rawY, state);
+        }
+        processedCount++;
+    }
+
+    private void checkNotStarted() {
+        if (worker != null) {
+            throw new IllegalStateException("The pipeline is already started");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Decoded binary frame of the joystick outputs.
+ * <p>
+ * Layout of a frame, big-endian, {@link #SIZE} bytes:
+ * <pre>
+ *  0  byte   magic, always {@link #MAGIC}
+ *  1  byte   version, always {@link #VERSION}
+ *  2  byte   button bit flags
+ *  3  byte   flags: {@link #FLAG_STALE}; other bits 0
+ *  4  int    sequence number, incremented for every frame sent; a gap means a lost frame
+ *  8  long   event time of the sample in milliseconds
+ * 16  short  x-axis, -32767 to 32767 for -100% to 100%
+ * 18  short  y-axis, -32767 to 32767 for -100% to 100%; up is positive
+ * 20  ushort strength, 0 to 65535 for 0% to 100%
+ * 22  short  angle as a binary angle; 65536 is a full turn and 0 is the positive x-axis
+ * </pre></p>
+ * <p>
+ * The sequence number counts frames, not outputs: {@link JoystickState#getSequence()} also
+ * counts the outputs that were coalesced between two frames and never sent, so it can't tell a
+ * lost frame from a skipped output. </p>
+ */
+public final class JoystickFrame {
+
+    public static final int SIZE = 24;
+    public static final byte MAGIC = 0x4A; //'J'
+    public static final byte VERSION = 1;
+
+    /**
+     * Flag of outputs forced to neutral because the joystick stopped getting touches; see
+     * {@link StalenessWatchdog}
+     */
+    public static final int FLAG_STALE = 1;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 1;
+    static final int OFFSET_BUTTONS = 2;
+    static final int OFFSET_FLAGS = 3;
+    static final int OFFSET_SEQUENCE = 4;
+    static final int OFFSET_EVENT_TIME = 8;
+    static final int OFFSET_AXIS_X = 16;
+    static final int OFFSET_AXIS_Y = 18;
+    static final int OFFSET_STRENGTH = 20;
+    static final int OFFSET_ANGLE = 22;
+
+    /**
+     * Largest value of an axis; stands for 100%
+     */
+    public static final int AXIS_MAX = 32767;
+
+    /**
+     * Largest value of the strength; stands for 100%
+     */
+    public static final int STRENGTH_MAX = 65535;
+
+    int sequence;
+    long eventTime;
+    int axisX;
+    int axisY;
+    int strength;
+    int angle;
+    int buttons;
+    int flags;
+
+    /**
+     * @return the sequence number of the frame
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the event time of the sample in milliseconds
+     */
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    /**
+     * @return the raw x-axis value, -32767 to 32767
+     */
+    public int getAxisX() {
+        return axisX;
+    }
+
+    /**
+     * @return the raw y-axis value, -32767 to 32767
+     */
+    public int getAxisY() {
+        return axisY;
+    }
+
+    /**
+     * @return the raw strength value, 0 to 65535
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return the raw binary angle, -32768 to 32767; 65536 is a full turn
+     */
+    public int getAngle() {
+        return angle;
+    }
+
+    /**
+     * @return bit flags of the buttons that are pressed
+     */
+    public int getButtons() {
+        return buttons;
+    }
+
+    /**
+     * @return the flags of the frame, e.g. {@link #FLAG_STALE}
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return whether the outputs were forced to neutral because the joystick stopped getting
+     *         touches
+     */
+    public boolean isStale() {
+        return (flags & FLAG_STALE) != 0;
+    }
+
+    /**
+     * @return the x-axis as a percentage from -100 to 100
+     */
+    public float getPercentageX() {
+        return axisX * 100f / AXIS_MAX;
+    }
+
+    /**
+     * @return the y-axis as a percentage from -100 to 100
+     */
+    public float getPercentageY() {
+        return axisY * 100f / AXIS_MAX;
+    }
+
+    /**
+     * @return the strength as a percentage from 0 to 100
+     */
+    public float getStrengthPercentage() {
+        return strength * 100f / STRENGTH_MAX;
+    }
+
+    /**
+     * @return the angle in radians, from -PI to PI
+     */
+    public float getAngleRadians() {
+        return (float) (angle * Math.PI / 32768);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Position math of the joystick.
+ * <p>
+ * Turns raw touch coordinates (relative to the top-left of the view) into every output value of
+ * the joystick and writes them into a {@link JoystickState}. Only float and int arithmetic is used
+ * and nothing is allocated, so it is safe to call for every touch sample on the UI thread. </p>
+ */
+public final class JoystickKernel {
+
+    /**
+     * Position of the center of the joystick on both axes; the layout is square
+     */
+    private int center;
+
+    /**
+     * Radius of the area the thumbstick can move around in
+     */
+    private float joystickRadius;
+
+    /**
+     * Shapes the percentages and strength; null for linear outputs
+     */
+    private ResponseCurve responseCurve;
+
+    /**
+     * One in 16.16 fixed point
+     */
+    private static final int FIXED_ONE = 1 << 16;
+
+    /**
+     * Binary angle per radian
+     */
+    private static final double BINARY_ANGLE_PER_RADIAN = QuantizedOutputs.FULL_TURN / (2 * Math.PI);
+
+    /**
+     * {@link QuantizedOutputs#AXIS_MAX} / joystickRadius in 16.16 fixed point
+     */
+    private long axisScale;
+
+    /**
+     * Sets the size of the joystick.<!-- --> Must be called before any samples are processed and
+     * again whenever the size of the view changes.
+     *
+     * @param layoutSize    size of the square layout in pixels
+     * @param canvasPadding padding between the edge of the layout and the joystick in pixels
+     */
+    public void setGeometry(int layoutSize, int canvasPadding) {
+        center = layoutSize / 2;
+        joystickRadius = (layoutSize - canvasPadding) / 2.0f;
+        axisScale = joystickRadius > 0
+                ? Math.round(QuantizedOutputs.AXIS_MAX * (double) FIXED_ONE / joystickRadius) : 0;
+    }
+
+    /**
+     * @param responseCurve shapes the percentages and strength, or null for linear outputs.<!-- -->
+     *                      The curve is applied to how far the thumbstick is pushed, so the
+     *                      direction is kept.
+     */
+    public void setResponseCurve(ResponseCurve responseCurve) {
+        this.responseCurve = responseCurve;
+    }
+
+    /**
+     * @return the position of the center of the joystick on both axes
+     */
+    public int getCenter() {
+        return center;
+    }
+
+    /**
+     * @return the radius of the area the thumbstick can move around in
+     */
+    public float getJoystickRadius() {
+        return joystickRadius;
+    }
+
+    /**
+     * Moves the thumbstick back to the center
+     *
+     * @param eventTime time of the sample in milliseconds
+     * @param out       the state to write the outputs into
+     */
+    public void recenter(long eventTime, JoystickState out) {
+        //Every output is zero at the center; no need for the square root and arc tangent
+        writeZero(center, center, eventTime, out);
+    }
+
+    /**
+     * Computes every output value for a touch at the given position.<!-- --> Touches outside of
+     * the joystick radius are clamped to the edge of the joystick.
+     *
+     * @param rawX      x-axis position of the touch relative to the left of the view
+     * @param rawY      y-axis position of the touch relative to the top of the view
+     * @param eventTime time of the sample in milliseconds, in the time base of
+     *                  MotionEvent.getEventTime()
+     * @param out       the state to write the outputs into
+     */
+    public void process(float rawX, float rawY, long eventTime, JoystickState out) {
+        int posX = (int) rawX;
+        int posY = (int) rawY;
+
+        if (joystickRadius <= 0) { //Size not known yet; nothing meaningful to output
+            writeZero(posX, posY, eventTime, out);
+            return;
+        }
+        out.eventTime = eventTime;
+        out.stale = false; //computed from a sample
+
+        int relativePosX = posX - center;
+        int relativePosY = center - posY; //because relative, flip positive direction
+
+        float distanceFromCenter = (float) Math.sqrt(
+                (float) (relativePosX * relativePosX + relativePosY * relativePosY));
+
+        float strength = distanceFromCenter / joystickRadius * 100;
+        if (strength > 100) { strength = 100; }
+
+        //Scales the linear outputs to the response curve; the position itself is not changed
+        float curveScale = 1;
+        if (responseCurve != null) {
+            float pushed = strength / 100;
+            curveScale = pushed > 0 ? responseCurve.apply(pushed) / pushed : 0;
+            strength *= curveScale;
+        }
+
+        int percentageX = (int) (relativePosX / joystickRadius * 100 * curveScale);
+        int percentageY = (int) (relativePosY / joystickRadius * 100 * curveScale);
+
+        double radians = Math.atan2(relativePosY, relativePosX);
+        float angle = (float) radians * 100;
+
+        if (distanceFromCenter > joystickRadius) {
+            //Keep the thumbstick from being drawn outside the bounds of the joystick
+            posX = (int) ( relativePosX * joystickRadius / distanceFromCenter + center);
+            posY = (int) (-relativePosY * joystickRadius / distanceFromCenter + center); //requires negative to draw correctly
+
+            //Re-calculate position values based off new bounds (within joystickRadius)
+            relativePosX = posX - center;
+            relativePosY = center - posY;
+
+            //Ensures percentages stay within -100 to 100
+            percentageX = ceil(relativePosX / joystickRadius * 100 * curveScale);
+            percentageY = ceil(relativePosY / joystickRadius * 100 * curveScale);
+        }
+
+        out.posX = posX;
+        out.posY = posY;
+        out.relativePosX = relativePosX;
+        out.relativePosY = relativePosY;
+        out.percentageX = percentageX;
+        out.percentageY = percentageY;
+        out.distanceFromCenter = distanceFromCenter;
+        out.strength = strength;
+        out.angle = angle;
+
+        //The same outputs as fixed-point integers; see QuantizedOutputs for the rounding
+        long curve = (long) (curveScale * FIXED_ONE + 0.5f);
+        int strengthLevel = (int) (strength * (QuantizedOutputs.STRENGTH_MAX / 100f) + 0.5f);
+        out.quantized = QuantizedOutputs.pack(
+                quantizeAxis(relativePosX, curve),
+                quantizeAxis(relativePosY, curve),
+                Math.min(QuantizedOutputs.STRENGTH_MAX, strengthLevel),
+                (int) Math.floor(radians * BINARY_ANGLE_PER_RADIAN + 0.5));
+    }
+
+    /**
+     * Writes outputs that are zero apart from the position of the thumbstick
+     */
+    private static void writeZero(int posX, int posY, long eventTime, JoystickState out) {
+        out.eventTime = eventTime;
+        out.stale = false;
+        out.posX = posX;
+        out.posY = posY;
+        out.relativePosX = 0;
+        out.relativePosY = 0;
+        out.percentageX = 0;
+        out.percentageY = 0;
+        out.distanceFromCenter = 0;
+        out.strength = 0;
+        out.angle = 0;
+        out.quantized = 0;
+    }
+
+    /**
+     * Scales a relative position to an axis value in fixed point
+     *
+     * @param relative position relative to the center, within the joystick radius
+     * @param curve    scale of the response curve in 16.16 fixed point
+     * @return the axis value, rounded to nearest with halves away from zero
+     */
+    private int quantizeAxis(int relative, long curve) {
+        long product = Math.abs(relative) * axisScale * curve; //32.32 fixed point
+        int magnitude = (int) Math.min(QuantizedOutputs.AXIS_MAX, (product + (1L << 31)) >>> 32);
+        return relative < 0 ? -magnitude : magnitude;
+    }
+
+    /**
+     * Float version of {@link Math#ceil(double)} for values that fit in an int
+     */
+    private static int ceil(float value) {
+        int truncated = (int) value;
+        return value > truncated ? truncated + 1 : truncated;
+    }
+}
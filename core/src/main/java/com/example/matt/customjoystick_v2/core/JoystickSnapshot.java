@@ -0,0 +1,114 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Shares the joystick outputs with threads other than the one processing the touches.
+ * <p>
+ * This is a sequence lock: the writer bumps the sequence to an odd value, writes the values and
+ * bumps it back to an even value. A reader copies the values and keeps them only if the sequence
+ * was even and unchanged around the copy, so it never sees values from two different samples.
+ * The writer never waits and nothing is allocated; a reader only has to copy again if it overlaps
+ * a write, which takes a few nanoseconds and happens at most once per touch sample. </p>
+ * <p>
+ * There must be a single writer; any number of threads can read. </p>
+ */
+public final class JoystickSnapshot {
+
+    /**
+     * Odd while a write is in progress; every field is volatile so the reads of the values can
+     * not be moved outside of the two reads of the sequence
+     */
+    private volatile int sequence;
+
+    private volatile long eventTime;
+    private volatile long outputSequence;
+    private volatile boolean stale;
+    private volatile int posX;
+    private volatile int posY;
+    private volatile int relativePosX;
+    private volatile int relativePosY;
+    private volatile int percentageX;
+    private volatile int percentageY;
+    private volatile float distanceFromCenter;
+    private volatile float strength;
+    private volatile float angle;
+    private volatile int buttons;
+    private volatile long quantized;
+
+    /**
+     * Publishes new values.<!-- --> Must only be called from the thread that owns the state.
+     *
+     * @param state the values to publish
+     */
+    public void write(JoystickState state) {
+        int start = sequence + 1;
+        sequence = start; //odd; readers will retry
+
+        eventTime          = state.eventTime;
+        outputSequence     = state.sequence;
+        stale              = state.stale;
+        posX               = state.posX;
+        posY               = state.posY;
+        relativePosX       = state.relativePosX;
+        relativePosY       = state.relativePosY;
+        percentageX        = state.percentageX;
+        percentageY        = state.percentageY;
+        distanceFromCenter = state.distanceFromCenter;
+        strength           = state.strength;
+        angle              = state.angle;
+        buttons            = state.buttons;
+        quantized          = state.quantized;
+
+        sequence = start + 1; //even; values are consistent again
+    }
+
+    /**
+     * Copies the latest published values, all from the same sample.<!-- --> Safe to call from any
+     * thread.
+     *
+     * @param out the state to copy the values into
+     * @return the version of the values; it changes every time new values are published
+     */
+    public int read(JoystickState out) {
+        while (true) {
+            int start = sequence;
+            if ((start & 1) != 0) {
+                continue; //write in progress
+            }
+
+            out.eventTime          = eventTime;
+            out.sequence           = outputSequence;
+            out.stale              = stale;
+            out.posX               = posX;
+            out.posY               = posY;
+            out.relativePosX       = relativePosX;
+            out.relativePosY       = relativePosY;
+            out.percentageX        = percentageX;
+            out.percentageY        = percentageY;
+            out.distanceFromCenter = distanceFromCenter;
+            out.strength           = strength;
+            out.angle              = angle;
+            out.buttons            = buttons;
+            out.quantized          = quantized;
+
+            if (sequence == start) {
+                return start;
+            }
+        }
+    }
+
+    /**
+     * @return whether the latest published values are marked {@link JoystickState#isStale()
+     *         stale}; cheap way to check without copying them
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * @return the version of the latest published values; cheap way to check for new values
+     *         without copying them
+     */
+    public int getVersion() {
+        return sequence & ~1;
+    }
+}
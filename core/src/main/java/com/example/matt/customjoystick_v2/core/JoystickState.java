@@ -0,0 +1,245 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Output values of a joystick for a single touch sample.
+ * <p>
+ * The object is meant to be created once and then reused; {@link JoystickKernel} writes every
+ * value into it so processing a sample never allocates. </p>
+ */
+public final class JoystickState {
+
+    /**
+     * Time of the touch sample in milliseconds, in the time base of MotionEvent.getEventTime()
+     */
+    long eventTime;
+
+    /**
+     * Number of the output, one higher for every sample processed; 0 before the first one
+     */
+    long sequence;
+
+    /**
+     * Whether the outputs were forced back to neutral because the touches stopped coming, e.g.
+     * after a cancel or a {@link StalenessWatchdog} deadline, instead of coming from a sample
+     */
+    boolean stale;
+
+    /**
+     * Value of the x-axis position of the thumbstick
+     */
+    int posX;
+
+    /**
+     * Value of the y-axis position of the thumbstick
+     */
+    int posY;
+
+    /**
+     * Position of the thumbstick on the x-axis relative to the center.<!-- --> Right is positive.
+     */
+    int relativePosX;
+
+    /**
+     * Position of the thumbstick on the y-axis relative to the center.<!-- --> Up is positive.
+     */
+    int relativePosY;
+
+    /**
+     * Value from -100 to 100 of how far the thumbstick is pushed along the x-axis
+     */
+    int percentageX;
+
+    /**
+     * Value from -100 to 100 of how far the thumbstick is pushed along the y-axis
+     */
+    int percentageY;
+
+    /**
+     * How far the touch is from the center of the joystick; not limited to the joystick radius
+     */
+    float distanceFromCenter;
+
+    /**
+     * Value from 0-100 of how far the thumbstick is from the center
+     */
+    float strength;
+
+    /**
+     * Angle of the thumbstick.<!-- --> Positive x-axis is zero.
+     */
+    float angle;
+
+    /**
+     * Bit flags of the buttons that are pressed; bit 0 is the first button
+     */
+    int buttons;
+
+    /**
+     * Axes, strength and angle as fixed-point integers; see {@link QuantizedOutputs}
+     */
+    long quantized;
+
+    /**
+     * Copies every value of another state into this one
+     *
+     * @param other the state to copy from
+     */
+    public void set(JoystickState other) {
+        eventTime          = other.eventTime;
+        sequence           = other.sequence;
+        stale              = other.stale;
+        posX               = other.posX;
+        posY               = other.posY;
+        relativePosX       = other.relativePosX;
+        relativePosY       = other.relativePosY;
+        percentageX        = other.percentageX;
+        percentageY        = other.percentageY;
+        distanceFromCenter = other.distanceFromCenter;
+        strength           = other.strength;
+        angle              = other.angle;
+        buttons            = other.buttons;
+        quantized          = other.quantized;
+    }
+
+    /**
+     * @return the time of the touch sample in milliseconds
+     */
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    /**
+     * @return the number of the output; it only ever increases, by one for every new output, e.g.
+     *         a processed sample, a recenter step or a change of the buttons.<!-- --> Not the
+     *         sequence number of the frames sent by {@link FrameEncoder}
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return whether the outputs are a forced neutral instead of the latest sample; see
+     *         {@link StalenessWatchdog}
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * @return the x-axis value of the thumbstick
+     */
+    public int getPosX() {
+        return posX;
+    }
+
+    /**
+     * @return the y-axis value of the thumbstick
+     */
+    public int getPosY() {
+        return posY;
+    }
+
+    /**
+     * @return the x-axis position of the thumbstick relative to the center
+     */
+    public int getRelativePosX() {
+        return relativePosX;
+    }
+
+    /**
+     * @return the y-axis position of the thumbstick relative to the center
+     */
+    public int getRelativePosY() {
+        return relativePosY;
+    }
+
+    /**
+     * @return the percentage, from -100 to 100, the thumbstick is pushed along the x-axis
+     */
+    public int getPercentageX() {
+        return percentageX;
+    }
+
+    /**
+     * @return the percentage, from -100 to 100, the thumbstick is pushed along the y-axis
+     */
+    public int getPercentageY() {
+        return percentageY;
+    }
+
+    /**
+     * @return the distance the touch is from the center of the joystick
+     */
+    public float getDistanceFromCenter() {
+        return distanceFromCenter;
+    }
+
+    /**
+     * @return the percentage, from 0 to 100, the thumbstick is pushed away from the center
+     */
+    public float getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return the angle of the thumbstick
+     */
+    public float getAngle() {
+        return angle;
+    }
+
+    /**
+     * @return bit flags of the buttons that are pressed; bit 0 is the first button
+     */
+    public int getButtons() {
+        return buttons;
+    }
+
+    /**
+     * @return the axes, strength and angle as fixed-point integers packed into a long; unpack
+     *         them with {@link QuantizedOutputs}
+     */
+    public long getQuantized() {
+        return quantized;
+    }
+
+    /**
+     * @param buttons bit flags of the buttons that are pressed; bit 0 is the first button
+     */
+    public void setButtons(int buttons) {
+        this.buttons = buttons;
+    }
+
+    /**
+     * @param sequence number of the output; see {@link #getSequence()}
+     */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param stale whether the outputs are a forced neutral; see {@link #isStale()}
+     */
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    /**
+     * Moves the outputs to the center and releases the buttons, keeping the event time and
+     * sequence of the last sample, and marks them stale
+     */
+    void neutralize() {
+        posX -= relativePosX;
+        posY += relativePosY; //relative y is up
+        relativePosX = 0;
+        relativePosY = 0;
+        percentageX = 0;
+        percentageY = 0;
+        distanceFromCenter = 0;
+        strength = 0;
+        angle = 0;
+        buttons = 0;
+        quantized = 0;
+        stale = true;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory histogram of durations in nanoseconds.
+ * <p>
+ * Durations below 16 ns are counted exactly; longer ones fall into one of 8 buckets per power of
+ * two, so every bucket is within 12.5% of the durations it holds, up to about 18 minutes. Above
+ * that everything lands in the last bucket. Recording is a handful of plain operations with no
+ * allocation and no locks. One thread records; any other thread can read the histogram or copy
+ * it with {@link #copyTo(LatencyHistogram)} while it is being recorded into. </p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Durations below this are counted in a bucket of their own
+     */
+    private static final int LINEAR_BUCKETS = 16;
+
+    /**
+     * log2 of the buckets per power of two
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Highest power of two with buckets of its own, 2^40 ns
+     */
+    private static final int MAX_EXPONENT = 40;
+    private static final int FIRST_EXPONENT = 4; //log2(LINEAR_BUCKETS)
+
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Only written by the recording thread
+     */
+    private volatile long count;
+    private volatile long sum;
+    private volatile long max;
+
+    /**
+     * Records a duration.<!-- --> Must only be called from the recording thread.
+     *
+     * @param nanos the duration in nanoseconds; negative durations count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int i = bucketOf(nanos);
+        counts.lazySet(i, counts.get(i) + 1); //only this thread writes the counts
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the recorded durations in nanoseconds, 0 if there are none
+     */
+    public double getMean() {
+        long n = count;
+        return n == 0 ? 0 : sum / (double) n;
+    }
+
+    /**
+     * Returns a duration that the given fraction of recorded durations are at or below.<!-- -->
+     * It is the top of the bucket the percentile falls into, so it is at most 12.5% too high.
+     *
+     * @param fraction 0 to 1, e.g. 0.99 for the 99th percentile
+     * @return the duration in nanoseconds, 0 if there are none
+     */
+    public long getPercentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Copies the recorded durations into another histogram, replacing its contents.<!-- --> The
+     * copy is not atomic: durations recorded while copying may or may not be included.
+     *
+     * @param out the histogram to copy into; not recorded into by another thread
+     */
+    public void copyTo(LatencyHistogram out) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            out.counts.lazySet(i, counts.get(i));
+        }
+        out.count = count;
+        out.sum = sum;
+        out.max = max;
+    }
+
+    /**
+     * Clears the histogram.<!-- --> Must only be called from the recording thread.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.lazySet(i, 0);
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the longest duration that falls into the bucket
+     */
+    static long highestOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = FIRST_EXPONENT + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.util.ArrayList;
+
+/**
+ * {@link FrameClock} for tests; frames only happen when {@link #frame(long)} is called.
+ * <p>
+ * Lets tests of the frame-driven classes, and of views built on them, step through the
+ * animation and publishing frame by frame without a display. Delays count from the time of the
+ * last frame run. Not thread safe; post, remove and run frames from one thread. </p>
+ */
+public final class ManualFrameClock implements FrameClock {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final ArrayList<Callback> pending = new ArrayList<>();
+
+    /**
+     * Callbacks waiting for a later frame, and the frame time each is due at
+     */
+    private final ArrayList<Callback> delayed = new ArrayList<>();
+    private final ArrayList<Long> dueTimes = new ArrayList<>();
+
+    private long lastFrameNanos;
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        removeDelayed(callback);
+        if (!pending.contains(callback)) {
+            pending.add(callback);
+        }
+    }
+
+    @Override
+    public void postFrameCallbackDelayed(Callback callback, long delay) {
+        if (delay <= 0) {
+            postFrameCallback(callback);
+        } else if (!pending.contains(callback) && !delayed.contains(callback)) {
+            delayed.add(callback);
+            dueTimes.add(lastFrameNanos + delay * NANOS_PER_MILLI);
+        }
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        pending.remove(callback);
+        removeDelayed(callback);
+    }
+
+    private void removeDelayed(Callback callback) {
+        int index = delayed.indexOf(callback);
+        if (index >= 0) {
+            delayed.remove(index);
+            dueTimes.remove(index);
+        }
+    }
+
+    /**
+     * @return whether any callback is waiting for the next frame
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @return whether any callback is waiting for a later frame
+     */
+    public boolean hasDelayed() {
+        return !delayed.isEmpty();
+    }
+
+    /**
+     * Runs every callback that is waiting for a frame, and every delayed one that is due
+     *
+     * @param frameTimeNanos time of the frame
+     */
+    public void frame(long frameTimeNanos) {
+        lastFrameNanos = frameTimeNanos;
+        ArrayList<Callback> callbacks = new ArrayList<>(pending);
+        pending.clear();
+        for (int i = 0; i < delayed.size(); ) {
+            if (dueTimes.get(i) <= frameTimeNanos) {
+                callbacks.add(delayed.remove(i));
+                dueTimes.remove(i);
+            } else {
+                i++;
+            }
+        }
+        for (Callback callback : callbacks) {
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Median of the last N touch positions, per axis.
+ * <p>
+ * Removes single-sample spikes entirely while keeping steps sharp, at the cost of a lag of about
+ * half the window. The median depends only on the order of the values, so the event times are
+ * not used. Window and scratch arrays are allocated once; each sample sorts the small window
+ * with an insertion sort. </p>
+ */
+public final class MedianFilter implements TouchFilter {
+
+    private final float[] windowX;
+    private final float[] windowY;
+    private final float[] sorted;
+
+    private int count;
+    private int next;
+    private float x;
+    private float y;
+
+    /**
+     * @param size number of samples the median is taken over, 1 to 31; odd sizes avoid averaging
+     *             the two middle values
+     */
+    public MedianFilter(int size) {
+        if (size < 1 || size > 31) {
+            throw new IllegalArgumentException("size must be between 1 and 31: " + size);
+        }
+        windowX = new float[size];
+        windowY = new float[size];
+        sorted = new float[size];
+    }
+
+    @Override
+    public void update(float rawX, float rawY, long eventTime) {
+        windowX[next] = rawX;
+        windowY[next] = rawY;
+        next = (next + 1) % windowX.length;
+        if (count < windowX.length) {
+            count++;
+        }
+        x = median(windowX);
+        y = median(windowY);
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+        next = 0;
+    }
+
+    @Override
+    public MedianFilter copy() {
+        return new MedianFilter(windowX.length);
+    }
+
+    private float median(float[] window) {
+        //The filled part of the window starts at 0 until it wraps, after which all of it is filled
+        for (int i = 0; i < count; i++) {
+            float value = window[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        int middle = count / 2;
+        return count % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Predicts where the finger will be a short time ahead of the latest touch sample.
+ * <p>
+ * Tracks the position and velocity of the touch with an alpha-beta filter over the timestamped
+ * samples and extrapolates the filtered position along the velocity by the prediction horizon.
+ * Running the predicted position through {@link JoystickKernel} instead of the touch itself hides
+ * part of the touch and display latency; the kernel clamps it to the joystick radius like any
+ * other position. The state is a few fields and nothing is allocated. </p>
+ * <p>
+ * Alpha sets how much of the difference between a sample and the prediction for it is taken
+ * into the position, beta how much into the velocity. Higher values follow the finger more
+ * closely but let more jitter through into the prediction. </p>
+ */
+public final class MotionPredictor {
+
+    private float alpha = 0.7f;
+    private float beta = 0.2f;
+
+    /**
+     * How far ahead to predict in milliseconds
+     */
+    private float horizon;
+
+    private boolean tracking;
+    private long lastEventTime;
+    private float x;
+    private float y;
+
+    /**
+     * Velocity in pixels per millisecond
+     */
+    private float velocityX;
+    private float velocityY;
+
+    /**
+     * @param horizon how far ahead to predict in milliseconds; 0 follows the filtered touch
+     */
+    public void setHorizon(int horizon) {
+        this.horizon = Math.max(0, horizon);
+    }
+
+    /**
+     * @return how far ahead is predicted in milliseconds
+     */
+    public int getHorizon() {
+        return (int) horizon;
+    }
+
+    /**
+     * @param alpha 0-1; share of the prediction error taken into the position
+     * @param beta  0-1; share of the prediction error taken into the velocity
+     */
+    public void setGains(float alpha, float beta) {
+        this.alpha = Math.max(0, Math.min(1, alpha));
+        this.beta = Math.max(0, Math.min(1, beta));
+    }
+
+    /**
+     * Forgets the tracked touch, e.g. when a new touch goes down
+     */
+    public void reset() {
+        tracking = false;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    /**
+     * Adds a touch sample
+     *
+     * @param rawX      x of the touch
+     * @param rawY      y of the touch
+     * @param eventTime time of the sample in milliseconds
+     */
+    public void update(float rawX, float rawY, long eventTime) {
+        long dt = eventTime - lastEventTime;
+        if (!tracking) {
+            tracking = true;
+            x = rawX;
+            y = rawY;
+        } else if (dt > 0) {
+            float expectedX = x + velocityX * dt;
+            float expectedY = y + velocityY * dt;
+            float errorX = rawX - expectedX;
+            float errorY = rawY - expectedY;
+            x = expectedX + alpha * errorX;
+            y = expectedY + alpha * errorY;
+            velocityX += beta * errorX / dt;
+            velocityY += beta * errorY / dt;
+        } else {
+            //Same time as the last sample; only correct the position
+            x += alpha * (rawX - x);
+            y += alpha * (rawY - y);
+        }
+        lastEventTime = eventTime;
+    }
+
+    /**
+     * @return the predicted x of the touch a horizon after the last sample
+     */
+    public float getPredictedX() {
+        return x + velocityX * horizon;
+    }
+
+    /**
+     * @return the predicted y of the touch a horizon after the last sample
+     */
+    public float getPredictedY() {
+        return y + velocityY * horizon;
+    }
+
+    /**
+     * @return the velocity of the touch along the x-axis in pixels per millisecond
+     */
+    public float getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * @return the velocity of the touch along the y-axis in pixels per millisecond
+     */
+    public float getVelocityY() {
+        return velocityY;
+    }
+}
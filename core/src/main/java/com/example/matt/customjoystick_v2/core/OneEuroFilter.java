@@ -0,0 +1,108 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * One-Euro filter of the touch position (Casiez, Roussel and Vogel, CHI 2012).
+ * <p>
+ * A low-pass filter whose cutoff frequency rises with the speed of the touch: a still or slowly
+ * moving finger is smoothed heavily, removing jitter, while a fast move is followed with little
+ * lag. Each axis is filtered on its own. The smoothing factors are computed from the time between
+ * samples, so uneven spacing is handled. </p>
+ */
+public final class OneEuroFilter implements TouchFilter {
+
+    /**
+     * Smallest time step in seconds; samples with the same event time are treated as this far
+     * apart
+     */
+    private static final float MIN_DT = 0.001f;
+
+    private final float minCutoff;
+    private final float beta;
+    private final float derivativeCutoff;
+
+    private boolean started;
+    private long lastEventTime;
+
+    private float x;
+    private float y;
+
+    /**
+     * Filtered speed in pixels per second
+     */
+    private float speedX;
+    private float speedY;
+
+    /**
+     * Filters with a minimum cutoff of 1 Hz, a beta of 0.01 and a derivative cutoff of 1 Hz
+     */
+    public OneEuroFilter() {
+        this(1f, 0.01f, 1f);
+    }
+
+    /**
+     * @param minCutoff        cutoff frequency in Hz while the touch is still; lower removes more
+     *                         jitter
+     * @param beta             how much the cutoff rises per pixel per second of speed; higher
+     *                         lags less on fast moves
+     * @param derivativeCutoff cutoff frequency in Hz of the speed estimate
+     */
+    public OneEuroFilter(float minCutoff, float beta, float derivativeCutoff) {
+        if (minCutoff <= 0 || derivativeCutoff <= 0 || beta < 0) {
+            throw new IllegalArgumentException("Cutoffs must be positive and beta not negative");
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    @Override
+    public void update(float rawX, float rawY, long eventTime) {
+        if (!started) {
+            started = true;
+            x = rawX;
+            y = rawY;
+            speedX = 0;
+            speedY = 0;
+            lastEventTime = eventTime;
+            return;
+        }
+
+        float dt = Math.max(MIN_DT, (eventTime - lastEventTime) / 1000f);
+        lastEventTime = eventTime;
+
+        float derivativeAlpha = alpha(derivativeCutoff, dt);
+        speedX += derivativeAlpha * ((rawX - x) / dt - speedX);
+        speedY += derivativeAlpha * ((rawY - y) / dt - speedY);
+
+        x += alpha(minCutoff + beta * Math.abs(speedX), dt) * (rawX - x);
+        y += alpha(minCutoff + beta * Math.abs(speedY), dt) * (rawY - y);
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+    }
+
+    @Override
+    public OneEuroFilter copy() {
+        return new OneEuroFilter(minCutoff, beta, derivativeCutoff);
+    }
+
+    /**
+     * @return the smoothing factor of a low-pass filter with the cutoff for the time step
+     */
+    private static float alpha(float cutoff, float dt) {
+        float tau = 1 / (2 * (float) Math.PI * cutoff);
+        return 1 / (1 + tau / dt);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Publishes the joystick outputs to a listener, driven by a {@link FrameClock}.
+ * <p>
+ * Outputs are published at most once every refresh rate and only after they changed. While the
+ * joystick is idle no frame callbacks are posted at all, so an untouched joystick costs nothing.
+ * With an {@link AdaptiveRate} the time between publishes follows how fast the thumbstick moves
+ * instead of the fixed refresh rate. Every method has to be called from the thread the frame
+ * clock runs its callbacks on. </p>
+ */
+public final class OutputPublisher implements FrameClock.Callback {
+
+    /**
+     * Receives the joystick outputs
+     */
+    public interface Listener {
+
+        /**
+         * @param state          the current outputs; only valid for the duration of the call
+         * @param frameTimeNanos time of the frame the outputs are published on
+         */
+        void onPublish(JoystickState state, long frameTimeNanos);
+    }
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final FrameClock frameClock;
+    private final JoystickState state;
+
+    private Listener listener;
+    private PipelineMetrics metrics;
+    private AdaptiveRate adaptiveRate;
+
+    /**
+     * Minimum time between two publishes
+     */
+    private long refreshRateNanos;
+
+    /**
+     * Frame time of the last publish
+     */
+    private long lastPublishNanos;
+
+    /**
+     * Whether any publish happened yet; {@link #lastPublishNanos} is meaningless before that
+     */
+    private boolean published;
+
+    /**
+     * Whether the outputs changed since the last publish
+     */
+    private boolean changed;
+
+    /**
+     * Whether the publisher is started
+     */
+    private boolean running;
+
+    /**
+     * Whether this is waiting for a frame callback
+     */
+    private boolean posted;
+
+    /**
+     * @param frameClock  clock that drives the publishing
+     * @param state       outputs to publish
+     * @param refreshRate minimum time between two publishes in milliseconds
+     */
+    public OutputPublisher(FrameClock frameClock, JoystickState state, int refreshRate) {
+        this.frameClock = frameClock;
+        this.state = state;
+        setRefreshRate(refreshRate);
+    }
+
+    /**
+     * @param listener the listener to publish to, or null to stop publishing
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param metrics metrics to record every publish into, or null to stop recording
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param refreshRate minimum time between two publishes in milliseconds
+     */
+    public void setRefreshRate(int refreshRate) {
+        refreshRateNanos = Math.max(0, refreshRate) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param adaptiveRate picks the time between publishes from the motion of the thumbstick, or
+     *                     null to publish at the refresh rate
+     */
+    public void setAdaptiveRate(AdaptiveRate adaptiveRate) {
+        this.adaptiveRate = adaptiveRate;
+        if (adaptiveRate != null) {
+            adaptiveRate.reset();
+        }
+    }
+
+    /**
+     * Starts publishing; pending changes are published on the next frame
+     */
+    public void start() {
+        running = true;
+        schedule();
+    }
+
+    /**
+     * Stops publishing and removes any pending frame callback
+     */
+    public void stop() {
+        running = false;
+        if (posted) {
+            frameClock.removeFrameCallback(this);
+            posted = false;
+        }
+    }
+
+    /**
+     * @return whether the publisher is started
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Marks the outputs as changed so they are published on an upcoming frame
+     */
+    public void markChanged() {
+        changed = true;
+        if (adaptiveRate != null) {
+            adaptiveRate.onChange(state);
+        }
+        schedule();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        if (!running || !changed) {
+            return; //idle; nothing is posted until the next change
+        }
+
+        long intervalNanos = adaptiveRate != null ? adaptiveRate.getIntervalNanos(state)
+                : refreshRateNanos;
+        if (published && frameTimeNanos - lastPublishNanos < intervalNanos) {
+            schedule(); //too soon; try again next frame
+            return;
+        }
+
+        changed = false;
+        published = true;
+        lastPublishNanos = frameTimeNanos;
+        if (adaptiveRate != null) {
+            adaptiveRate.onPublish();
+        }
+        if (listener != null) {
+            listener.onPublish(state, frameTimeNanos);
+        }
+        if (metrics != null) {
+            metrics.onPublish(state.eventTime, System.nanoTime());
+        }
+    }
+
+    private void schedule() {
+        if (running && changed && !posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+}
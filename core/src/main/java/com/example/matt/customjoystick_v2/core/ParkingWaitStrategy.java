@@ -0,0 +1,44 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins briefly, then parks the consumer until the producer signals.<!-- --> Uses no CPU while
+ * idle; every signal costs the producer an unpark and the consumer a wake-up.
+ * <p>
+ * A signal that comes before the consumer parks is kept by the thread's park permit, so the
+ * consumer can not miss work between finding nothing and parking. </p>
+ */
+public final class ParkingWaitStrategy implements WaitStrategy {
+
+    private final int spins;
+    private final long maxParkNanos;
+
+    /**
+     * Spins 50 times, then parks for up to 100 milliseconds at a time
+     */
+    public ParkingWaitStrategy() {
+        this(50, 100000000L);
+    }
+
+    /**
+     * @param spins        number of checks before the consumer parks
+     * @param maxParkNanos longest the consumer parks without a signal, e.g. to notice a shutdown
+     */
+    public ParkingWaitStrategy(int spins, long maxParkNanos) {
+        this.spins = spins;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount >= spins) {
+            LockSupport.parkNanos(this, maxParkNanos);
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        LockSupport.unpark(consumer);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Latency and throughput of the joystick pipeline, from touch sample to published output.
+ * <p>
+ * Keeps a {@link LatencyHistogram} each for:
+ * <ul>
+ * <li>input to publish: from the event time of a sample to the publish of the outputs made from
+ * it</li>
+ * <li>touch processing: time spent handling one touch event</li>
+ * <li>draw: time spent drawing the joystick</li>
+ * </ul>
+ * and counters of processed, dropped and coalesced samples (samples overwritten by a newer one
+ * before they were published) and of publishes. Memory is fixed and recording takes no locks.
+ * Every record method must be called from the one thread running the pipeline; any thread can
+ * take a {@link Snapshot}. The pipeline only measures while a metrics object is set on it, so
+ * disabled metrics cost a null check. </p>
+ */
+public final class PipelineMetrics {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final LatencyHistogram inputToPublish = new LatencyHistogram();
+    private final LatencyHistogram touchProcessing = new LatencyHistogram();
+    private final LatencyHistogram draw = new LatencyHistogram();
+
+    /**
+     * Only written by the pipeline thread
+     */
+    private volatile long samples;
+    private volatile long dropped;
+    private volatile long coalesced;
+    private volatile long publishes;
+
+    /**
+     * Samples processed since the last publish; only used by the pipeline thread
+     */
+    private long unpublished;
+
+    /**
+     * A touch sample was processed
+     */
+    public void onSample() {
+        samples++;
+        unpublished++;
+    }
+
+    /**
+     * A sample was dropped before it was processed, e.g. because the input pipeline was too far
+     * behind
+     */
+    public void onDropped() {
+        dropped++;
+    }
+
+    /**
+     * The outputs were published
+     *
+     * @param eventTime time in milliseconds of the sample the outputs were made from, in the time
+     *                  base of MotionEvent.getEventTime()
+     * @param nowNanos  time of the publish from {@link System#nanoTime()}; on Android it has the
+     *                  same time base as the event time
+     */
+    public void onPublish(long eventTime, long nowNanos) {
+        inputToPublish.record(nowNanos - eventTime * NANOS_PER_MILLI);
+        if (unpublished > 1) {
+            coalesced += unpublished - 1;
+        }
+        unpublished = 0;
+        publishes++;
+    }
+
+    /**
+     * @param nanos time spent handling one touch event
+     */
+    public void recordTouchProcessing(long nanos) {
+        touchProcessing.record(nanos);
+    }
+
+    /**
+     * @param nanos time spent drawing the joystick once
+     */
+    public void recordDraw(long nanos) {
+        draw.record(nanos);
+    }
+
+    /**
+     * Copies the metrics into a snapshot.<!-- --> Reusing the same snapshot for every call makes
+     * its samples per second the rate since the previous call.
+     *
+     * @param out the snapshot to copy into
+     * @return the snapshot
+     */
+    public Snapshot snapshot(Snapshot out) {
+        long now = System.nanoTime();
+        long total = samples;
+        out.samplesPerSecond = out.timeNanos == 0 || now == out.timeNanos ? 0
+                : (total - out.samples) * 1e9 / (now - out.timeNanos);
+        out.timeNanos = now;
+        out.samples = total;
+        out.dropped = dropped;
+        out.coalesced = coalesced;
+        out.publishes = publishes;
+        inputToPublish.copyTo(out.inputToPublish);
+        touchProcessing.copyTo(out.touchProcessing);
+        draw.copyTo(out.draw);
+        return out;
+    }
+
+    /**
+     * Copy of the metrics at one point in time
+     */
+    public static final class Snapshot {
+
+        private final LatencyHistogram inputToPublish = new LatencyHistogram();
+        private final LatencyHistogram touchProcessing = new LatencyHistogram();
+        private final LatencyHistogram draw = new LatencyHistogram();
+
+        private long timeNanos;
+        private long samples;
+        private long dropped;
+        private long coalesced;
+        private long publishes;
+        private double samplesPerSecond;
+
+        /**
+         * @return durations from the event time of a sample to the publish of its outputs
+         */
+        public LatencyHistogram getInputToPublish() {
+            return inputToPublish;
+        }
+
+        /**
+         * @return durations of handling a touch event
+         */
+        public LatencyHistogram getTouchProcessing() {
+            return touchProcessing;
+        }
+
+        /**
+         * @return durations of drawing the joystick
+         */
+        public LatencyHistogram getDraw() {
+            return draw;
+        }
+
+        /**
+         * @return the number of processed samples
+         */
+        public long getSamples() {
+            return samples;
+        }
+
+        /**
+         * @return the number of samples dropped because the input pipeline was too far behind
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return the number of samples overwritten by a newer one before they were published
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * @return the number of publishes
+         */
+        public long getPublishes() {
+            return publishes;
+        }
+
+        /**
+         * @return processed samples per second since the previous snapshot into this object
+         */
+        public double getSamplesPerSecond() {
+            return samplesPerSecond;
+        }
+
+        /**
+         * Writes the snapshot as text, one metric per line; durations are in microseconds
+         *
+         * @param out where to write
+         * @return out
+         */
+        public StringBuilder export(StringBuilder out) {
+            exportHistogram(out, "input_to_publish_us", inputToPublish);
+            exportHistogram(out, "touch_processing_us", touchProcessing);
+            exportHistogram(out, "draw_us", draw);
+            out.append("samples ").append(samples).append('\n');
+            out.append("samples_per_second ").append(Math.round(samplesPerSecond)).append('\n');
+            out.append("dropped ").append(dropped).append('\n');
+            out.append("coalesced ").append(coalesced).append('\n');
+            out.append("publishes ").append(publishes).append('\n');
+            return out;
+        }
+
+        @Override
+        public String toString() {
+            return export(new StringBuilder()).toString();
+        }
+
+        private static void exportHistogram(StringBuilder out, String name, LatencyHistogram histogram) {
+            out.append(name)
+                    .append(" count=").append(histogram.getCount())
+                    .append(" mean=").append(Math.round(histogram.getMean() / 1000))
+                    .append(" p50=").append(histogram.getPercentile(0.5) / 1000)
+                    .append(" p90=").append(histogram.getPercentile(0.9) / 1000)
+                    .append(" p99=").append(histogram.getPercentile(0.99) / 1000)
+                    .append(" max=").append(histogram.getMax() / 1000)
+                    .append('\n');
+        }
+    }
+}
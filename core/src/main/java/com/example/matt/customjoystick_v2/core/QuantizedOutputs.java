@@ -0,0 +1,89 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Joystick outputs as fixed-point integers packed into a single long.
+ * <p>
+ * {@link JoystickKernel} computes them from the same sample as the other outputs and stores them
+ * in {@link JoystickState#getQuantized()}:
+ * <pre>
+ * bits 63-48  short   x-axis, -32767 to 32767 for -100% to 100%
+ * bits 47-32  short   y-axis, -32767 to 32767 for -100% to 100%; up is positive
+ * bits 31-16  ushort  strength, 0 to 65535 for 0% to 100%
+ * bits 15-0   short   binary angle; 65536 is a full turn, 0 is the positive x-axis and 16384
+ *                     points up
+ * </pre>
+ * Rounding:
+ * <ul>
+ * <li>axes are the relative position of the thumbstick (clamped to the joystick radius) times
+ * the response curve, scaled by 32767 / radius in 16.16 fixed point and rounded to nearest,
+ * halves away from zero, so -x always gives the negative of x</li>
+ * <li>strength is rounded to nearest, halves up</li>
+ * <li>the angle is rounded to nearest, halves up; a half turn is -32768</li>
+ * </ul>
+ * The static methods unpack the values without boxing or allocating. </p>
+ */
+public final class QuantizedOutputs {
+
+    /**
+     * Largest value of an axis; stands for 100%
+     */
+    public static final int AXIS_MAX = 32767;
+
+    /**
+     * Largest value of the strength; stands for 100%
+     */
+    public static final int STRENGTH_MAX = 65535;
+
+    /**
+     * Binary angle of a full turn
+     */
+    public static final int FULL_TURN = 65536;
+
+    private QuantizedOutputs() {
+    }
+
+    /**
+     * Packs the values into a long; each is cut to its 16 bits
+     */
+    public static long pack(int axisX, int axisY, int strength, int angle) {
+        return ((long) (axisX & 0xFFFF) << 48)
+                | ((long) (axisY & 0xFFFF) << 32)
+                | ((long) (strength & 0xFFFF) << 16)
+                | (angle & 0xFFFF);
+    }
+
+    /**
+     * @return the x-axis, -32767 to 32767
+     */
+    public static int getAxisX(long quantized) {
+        return (short) (quantized >>> 48);
+    }
+
+    /**
+     * @return the y-axis, -32767 to 32767
+     */
+    public static int getAxisY(long quantized) {
+        return (short) (quantized >>> 32);
+    }
+
+    /**
+     * @return the strength, 0 to 65535
+     */
+    public static int getStrength(long quantized) {
+        return (int) (quantized >>> 16) & 0xFFFF;
+    }
+
+    /**
+     * @return the binary angle, -32768 to 32767
+     */
+    public static int getAngle(long quantized) {
+        return (short) quantized;
+    }
+
+    /**
+     * @return the angle in radians, -pi to pi
+     */
+    public static double toRadians(int angle) {
+        return angle * (Math.PI / 32768);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Fixed-capacity queue of raw touch samples, handed from the UI thread to a processing thread.
+ * <p>
+ * Like {@link SampleRingBuffer}, samples are stored field by field in preallocated arrays and one
+ * thread adds while one other thread drains, without locks. When the queue is full new samples
+ * are dropped and counted. </p>
+ */
+public final class RawSampleQueue {
+
+    /**
+     * Receives drained samples
+     */
+    public interface Consumer {
+
+        /**
+         * @param action    MotionEvent action of the sample
+         * @param rawX      x of the touch
+         * @param rawY      y of the touch
+         * @param eventTime time of the sample in milliseconds
+         * @param buttons   bit flags of the buttons pressed with the sample
+         */
+        void onRawSample(int action, float rawX, float rawY, long eventTime, int buttons);
+    }
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] eventTime;
+    private final int[] action;
+    private final float[] rawX;
+    private final float[] rawY;
+    private final int[] buttons;
+
+    /**
+     * Number of samples ever added; only written by the producer
+     */
+    private volatile long tail;
+
+    /**
+     * Number of samples ever drained; only written by the consumer
+     */
+    private volatile long head;
+
+    /**
+     * Number of samples dropped because the queue was full
+     */
+    private volatile long dropped;
+
+    /**
+     * @param capacity maximum number of samples waiting to be drained; rounded up to a power of two
+     */
+    public RawSampleQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int highestBit = Integer.highestOneBit(capacity);
+        this.capacity = highestBit == capacity ? capacity : highestBit << 1;
+        mask = this.capacity - 1;
+
+        eventTime = new long[this.capacity];
+        action    = new int[this.capacity];
+        rawX      = new float[this.capacity];
+        rawY      = new float[this.capacity];
+        buttons   = new int[this.capacity];
+    }
+
+    /**
+     * Adds a sample.<!-- --> Must only be called from the producer thread.
+     *
+     * @return false if the queue was full and the sample was dropped
+     */
+    public boolean offer(int action, float rawX, float rawY, long eventTime, int buttons) {
+        long t = tail;
+        if (t - head >= capacity) {
+            dropped++; //only the producer writes this
+            return false;
+        }
+
+        int i = (int) t & mask;
+        this.eventTime[i] = eventTime;
+        this.action[i]    = action;
+        this.rawX[i]      = rawX;
+        this.rawY[i]      = rawY;
+        this.buttons[i]   = buttons;
+
+        tail = t + 1; //publishes the sample to the consumer
+        return true;
+    }
+
+    /**
+     * Hands up to {@code limit} waiting samples, oldest first, to the consumer.<!-- --> Must only
+     * be called from the consumer thread.
+     *
+     * @param consumer receives the samples
+     * @param limit    maximum number of samples to drain
+     * @return the number of drained samples
+     */
+    public int drain(Consumer consumer, int limit) {
+        long h = head;
+        int count = (int) Math.min(tail - h, limit);
+
+        for (int n = 0; n < count; n++) {
+            int i = (int) (h + n) & mask;
+            consumer.onRawSample(action[i], rawX[i], rawY[i], eventTime[i], buttons[i]);
+        }
+
+        head = h + count; //frees the slots for the producer
+        return count;
+    }
+
+    /**
+     * @return the number of samples waiting to be drained
+     */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * @return the maximum number of samples waiting to be drained
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of samples dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
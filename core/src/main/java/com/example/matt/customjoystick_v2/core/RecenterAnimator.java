@@ -0,0 +1,197 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Moves the thumbstick back to the center after it is let go of.
+ * <p>
+ * Waits for the recenter delay, then moves the thumbstick from where it was let go of to the
+ * center over the recenter duration, following an easing curve. Every step is run through the
+ * {@link JoystickKernel} so the outputs ramp down along with the drawn thumbstick instead of
+ * jumping to zero. Steps happen on the frames of a {@link FrameClock}; nothing sleeps and nothing
+ * is allocated per frame. Every method has to be called from the thread the frame clock runs
+ * its callbacks on. </p>
+ */
+public final class RecenterAnimator implements FrameClock.Callback {
+
+    /**
+     * Speed profile of the move back to the center
+     */
+    public enum Easing {
+        /** Constant speed */
+        LINEAR,
+        /** Starts fast and slows down towards the center */
+        EASE_OUT_QUAD,
+        /** Starts faster and slows down more towards the center */
+        EASE_OUT_CUBIC,
+        /** Starts slow, speeds up and slows down again towards the center */
+        EASE_IN_OUT_QUAD
+    }
+
+    /**
+     * Receives every step of the animation
+     */
+    public interface Listener {
+
+        /**
+         * @param state    the outputs after the step
+         * @param finished whether the thumbstick reached the center
+         */
+        void onRecenterStep(JoystickState state, boolean finished);
+    }
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final FrameClock frameClock;
+    private final JoystickKernel kernel;
+    private final JoystickState state;
+    private final Listener listener;
+
+    private long delayNanos;
+    private long durationNanos;
+    private Easing easing = Easing.EASE_OUT_QUAD;
+
+    /**
+     * Where the thumbstick was let go of
+     */
+    private float startX;
+    private float startY;
+
+    /**
+     * When the thumbstick was let go of, in nanoseconds
+     */
+    private long startTimeNanos;
+
+    private boolean running;
+
+    /**
+     * @param frameClock clock that drives the animation
+     * @param kernel     kernel computing the outputs for every step
+     * @param state      outputs of the joystick; the animation starts from its position
+     * @param listener   receives every step
+     */
+    public RecenterAnimator(FrameClock frameClock, JoystickKernel kernel, JoystickState state,
+                            Listener listener) {
+        this.frameClock = frameClock;
+        this.kernel = kernel;
+        this.state = state;
+        this.listener = listener;
+    }
+
+    /**
+     * @param delay time in milliseconds the thumbstick stays put after it is let go of
+     */
+    public void setDelay(int delay) {
+        delayNanos = Math.max(0, delay) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param duration time in milliseconds the move back to the center takes; 0 jumps to the
+     *                 center
+     */
+    public void setDuration(int duration) {
+        durationNanos = Math.max(0, duration) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param easing speed profile of the move back to the center
+     */
+    public void setEasing(Easing easing) {
+        this.easing = easing;
+    }
+
+    /**
+     * Starts moving the thumbstick back to the center from its current position.<!-- --> Without
+     * a delay and duration the thumbstick is recentered right away.
+     *
+     * @param releaseTimeNanos when the thumbstick was let go of, in {@link System#nanoTime()}
+     *                         time base (MotionEvent event time multiplied by 1000000)
+     */
+    public void start(long releaseTimeNanos) {
+        start(releaseTimeNanos, state.posX, state.posY);
+    }
+
+    /**
+     * Starts moving the thumbstick back to the center from the given position, e.g. where the
+     * finger really was when the outputs are predicted ahead of it
+     *
+     * @param releaseTimeNanos when the thumbstick was let go of, in {@link System#nanoTime()}
+     *                         time base (MotionEvent event time multiplied by 1000000)
+     * @param fromX            x of the thumbstick when it was let go of
+     * @param fromY            y of the thumbstick when it was let go of
+     */
+    public void start(long releaseTimeNanos, float fromX, float fromY) {
+        startX = fromX;
+        startY = fromY;
+        startTimeNanos = releaseTimeNanos;
+
+        if (delayNanos == 0 && durationNanos == 0) {
+            cancel();
+            kernel.recenter(releaseTimeNanos / NANOS_PER_MILLI, state);
+            listener.onRecenterStep(state, true);
+            return;
+        }
+
+        running = true;
+        frameClock.postFrameCallback(this);
+    }
+
+    /**
+     * Stops the animation where it is, e.g. because the thumbstick is touched again
+     */
+    public void cancel() {
+        if (running) {
+            running = false;
+            frameClock.removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * @return whether the thumbstick is on its way back to the center
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+
+        long elapsed = frameTimeNanos - startTimeNanos - delayNanos;
+        if (elapsed < 0) {
+            frameClock.postFrameCallback(this); //still waiting for the delay
+            return;
+        }
+
+        float fraction = durationNanos == 0 ? 1 : Math.min(1f, elapsed / (float) durationNanos);
+        float progress = ease(fraction);
+
+        float center = kernel.getCenter();
+        kernel.process(startX + (center - startX) * progress, startY + (center - startY) * progress,
+                frameTimeNanos / NANOS_PER_MILLI, state);
+
+        boolean finished = fraction >= 1;
+        if (finished) {
+            running = false;
+        } else {
+            frameClock.postFrameCallback(this);
+        }
+        listener.onRecenterStep(state, finished);
+    }
+
+    private float ease(float t) {
+        switch (easing) {
+            case EASE_OUT_QUAD:
+                return t * (2 - t);
+            case EASE_OUT_CUBIC: {
+                float inverse = 1 - t;
+                return 1 - inverse * inverse * inverse;
+            }
+            case EASE_IN_OUT_QUAD:
+                return t < 0.5f ? 2 * t * t : -1 + (4 - 2 * t) * t;
+            case LINEAR:
+            default:
+                return t;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Maps how far the thumbstick is pushed (0 to 1) to how strong the output is (0 to 1).
+ * <p>
+ * Applies, in order:
+ * <ul>
+ * <li>the give threshold: pushes up to it output 0</li>
+ * <li>the physical threshold: right after the give threshold the output jumps to it</li>
+ * <li>the shape: linear, squared, cubic, expo or user supplied points, stretched over the rest
+ * of the range</li>
+ * </ul>
+ * The shape and thresholds are computed into a lookup table whenever they change, so applying
+ * the curve to a sample is a table lookup with linear interpolation, whatever the shape. </p>
+ */
+public final class ResponseCurve {
+
+    /**
+     * Shape of the curve between the thresholds
+     */
+    public enum Shape {
+        /** Output grows at the same rate as the input */
+        LINEAR,
+        /** Input squared; fine control near the center */
+        SQUARED,
+        /** Input cubed; even finer control near the center */
+        CUBIC,
+        /** Blend of linear and cubic set by the expo value */
+        EXPO,
+        /** Straight lines between user supplied points */
+        CUSTOM
+    }
+
+    /**
+     * Number of intervals of the lookup table
+     */
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * Output for every 1/TABLE_SIZE step of input past the give threshold, plus one entry for the
+     * end of the last interval
+     */
+    private final float[] table = new float[TABLE_SIZE + 1];
+
+    private Shape shape = Shape.LINEAR;
+    private float expo = 0.5f;
+    private float give;
+    private float physical;
+
+    /**
+     * Points of the custom shape
+     */
+    private float[] pointInputs;
+    private float[] pointOutputs;
+
+    /**
+     * Converts input past the give threshold to a table position
+     */
+    private float tableScale;
+
+    /**
+     * Creates a linear curve without thresholds
+     */
+    public ResponseCurve() {
+        buildTable();
+    }
+
+    /**
+     * @param giveThreshold     0-100; how far the thumbstick must be pushed before the output
+     *                          increases above 0
+     * @param physicalThreshold 0-100; the output the curve starts at once past the give threshold
+     */
+    public void setThresholds(int giveThreshold, int physicalThreshold) {
+        give = clamp(giveThreshold / 100f);
+        physical = clamp(physicalThreshold / 100f);
+        buildTable();
+    }
+
+    /**
+     * @param shape shape of the curve; use {@link #setPoints(float[], float[])} for
+     *              {@link Shape#CUSTOM}
+     */
+    public void setShape(Shape shape) {
+        if (shape == Shape.CUSTOM && pointInputs == null) {
+            throw new IllegalStateException("Set the points of a custom curve with setPoints");
+        }
+        this.shape = shape;
+        buildTable();
+    }
+
+    /**
+     * @param expo 0-1; 0 is linear and 1 is cubic.<!-- --> Only used by {@link Shape#EXPO}.
+     */
+    public void setExpo(float expo) {
+        this.expo = clamp(expo);
+        buildTable();
+    }
+
+    /**
+     * Switches to a custom shape made of straight lines between the given points.<!-- --> Inputs
+     * and outputs go from 0 to 1; inputs before the first point output the first point and inputs
+     * after the last point output the last point.
+     *
+     * @param inputs  inputs of the points in increasing order
+     * @param outputs outputs of the points
+     */
+    public void setPoints(float[] inputs, float[] outputs) {
+        if (inputs.length == 0 || inputs.length != outputs.length) {
+            throw new IllegalArgumentException("Need the same, non-zero, number of inputs and outputs");
+        }
+        for (int i = 1; i < inputs.length; i++) {
+            if (inputs[i] <= inputs[i - 1]) {
+                throw new IllegalArgumentException("Inputs must be in increasing order");
+            }
+        }
+        pointInputs = inputs.clone();
+        pointOutputs = outputs.clone();
+        shape = Shape.CUSTOM;
+        buildTable();
+    }
+
+    /**
+     * Copies the shape, thresholds and points of another curve into this one
+     *
+     * @param other the curve to copy from
+     */
+    public void set(ResponseCurve other) {
+        shape = other.shape;
+        expo = other.expo;
+        give = other.give;
+        physical = other.physical;
+        pointInputs = other.pointInputs; //never modified once set
+        pointOutputs = other.pointOutputs;
+        tableScale = other.tableScale;
+        System.arraycopy(other.table, 0, table, 0, table.length);
+    }
+
+    /**
+     * @return the shape of the curve
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Applies the curve
+     *
+     * @param input how far the thumbstick is pushed, 0 to 1
+     * @return the output, 0 to 1
+     */
+    public float apply(float input) {
+        if (input <= give) {
+            return 0;
+        }
+
+        float position = (input - give) * tableScale;
+        if (position >= TABLE_SIZE) {
+            return table[TABLE_SIZE];
+        }
+        int index = (int) position;
+        float fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    private void buildTable() {
+        tableScale = give < 1 ? TABLE_SIZE / (1 - give) : 0;
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            float x = i / (float) TABLE_SIZE;
+            table[i] = physical + (1 - physical) * clamp(shape(x));
+        }
+    }
+
+    private float shape(float x) {
+        switch (shape) {
+            case SQUARED:
+                return x * x;
+            case CUBIC:
+                return x * x * x;
+            case EXPO:
+                return expo * x * x * x + (1 - expo) * x;
+            case CUSTOM:
+                return interpolatePoints(x);
+            case LINEAR:
+            default:
+                return x;
+        }
+    }
+
+    private float interpolatePoints(float x) {
+        int last = pointInputs.length - 1;
+        if (x <= pointInputs[0]) {
+            return pointOutputs[0];
+        }
+        if (x >= pointInputs[last]) {
+            return pointOutputs[last];
+        }
+        int i = 1;
+        while (pointInputs[i] < x) {
+            i++;
+        }
+        float fraction = (x - pointInputs[i - 1]) / (pointInputs[i] - pointInputs[i - 1]);
+        return pointOutputs[i - 1] + (pointOutputs[i] - pointOutputs[i - 1]) * fraction;
+    }
+
+    private static float clamp(float value) {
+        return value < 0 ? 0 : (value > 1 ? 1 : value);
+    }
+}
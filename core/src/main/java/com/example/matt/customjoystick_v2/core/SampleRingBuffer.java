@@ -0,0 +1,190 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Fixed-capacity ring buffer of timestamped joystick samples.
+ * <p>
+ * Every sample is stored field by field in preallocated arrays, so neither adding nor draining
+ * samples allocates. One thread adds samples (the thread processing the touches) and one other
+ * thread drains them; no locks are used. When the buffer is full new samples are dropped and
+ * counted instead of overwriting samples the consumer has not read yet. </p>
+ */
+public final class SampleRingBuffer {
+
+    /**
+     * Receives drained samples
+     */
+    public interface Consumer {
+
+        /**
+         * @param sample the sample; the object is reused for the next sample, so copy it with
+         *               {@link JoystickState#set(JoystickState)} to keep it
+         */
+        void onSample(JoystickState sample);
+    }
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] eventTime;
+    private final long[] sequence;
+    private final boolean[] stale;
+    private final int[] posX;
+    private final int[] posY;
+    private final int[] relativePosX;
+    private final int[] relativePosY;
+    private final int[] percentageX;
+    private final int[] percentageY;
+    private final float[] distanceFromCenter;
+    private final float[] strength;
+    private final float[] angle;
+    private final int[] buttons;
+    private final long[] quantized;
+
+    /**
+     * Reused to hand samples to the consumer
+     */
+    private final JoystickState drained = new JoystickState();
+
+    /**
+     * Number of samples ever added; only written by the producer
+     */
+    private volatile long tail;
+
+    /**
+     * Number of samples ever drained; only written by the consumer
+     */
+    private volatile long head;
+
+    /**
+     * Number of samples dropped because the buffer was full
+     */
+    private volatile long dropped;
+
+    /**
+     * @param capacity maximum number of samples waiting to be drained; rounded up to a power of two
+     */
+    public SampleRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int highestBit = Integer.highestOneBit(capacity);
+        this.capacity = highestBit == capacity ? capacity : highestBit << 1;
+        mask = this.capacity - 1;
+
+        eventTime          = new long[this.capacity];
+        sequence           = new long[this.capacity];
+        stale              = new boolean[this.capacity];
+        posX               = new int[this.capacity];
+        posY               = new int[this.capacity];
+        relativePosX       = new int[this.capacity];
+        relativePosY       = new int[this.capacity];
+        percentageX        = new int[this.capacity];
+        percentageY        = new int[this.capacity];
+        distanceFromCenter = new float[this.capacity];
+        strength           = new float[this.capacity];
+        angle              = new float[this.capacity];
+        buttons            = new int[this.capacity];
+        quantized          = new long[this.capacity];
+    }
+
+    /**
+     * Adds a sample.<!-- --> Must only be called from the producer thread.
+     *
+     * @param sample the sample to add; its values are copied
+     * @return false if the buffer was full and the sample was dropped
+     */
+    public boolean offer(JoystickState sample) {
+        long t = tail;
+        if (t - head >= capacity) {
+            dropped++; //only the producer writes this
+            return false;
+        }
+
+        int i = (int) t & mask;
+        eventTime[i]          = sample.eventTime;
+        sequence[i]           = sample.sequence;
+        stale[i]              = sample.stale;
+        posX[i]               = sample.posX;
+        posY[i]               = sample.posY;
+        relativePosX[i]       = sample.relativePosX;
+        relativePosY[i]       = sample.relativePosY;
+        percentageX[i]        = sample.percentageX;
+        percentageY[i]        = sample.percentageY;
+        distanceFromCenter[i] = sample.distanceFromCenter;
+        strength[i]           = sample.strength;
+        angle[i]              = sample.angle;
+        buttons[i]            = sample.buttons;
+        quantized[i]          = sample.quantized;
+
+        tail = t + 1; //publishes the sample to the consumer
+        return true;
+    }
+
+    /**
+     * Hands every waiting sample, oldest first, to the consumer.<!-- --> Must only be called from
+     * the consumer thread.
+     *
+     * @param consumer receives the samples
+     * @return the number of drained samples
+     */
+    public int drain(Consumer consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Hands up to {@code limit} waiting samples, oldest first, to the consumer.<!-- --> Must only
+     * be called from the consumer thread.
+     *
+     * @param consumer receives the samples
+     * @param limit    maximum number of samples to drain
+     * @return the number of drained samples
+     */
+    public int drain(Consumer consumer, int limit) {
+        long h = head;
+        long available = tail - h;
+        int count = (int) Math.min(available, limit);
+
+        for (int n = 0; n < count; n++) {
+            int i = (int) (h + n) & mask;
+            drained.eventTime          = eventTime[i];
+            drained.sequence           = sequence[i];
+            drained.stale              = stale[i];
+            drained.posX               = posX[i];
+            drained.posY               = posY[i];
+            drained.relativePosX       = relativePosX[i];
+            drained.relativePosY       = relativePosY[i];
+            drained.percentageX        = percentageX[i];
+            drained.percentageY        = percentageY[i];
+            drained.distanceFromCenter = distanceFromCenter[i];
+            drained.strength           = strength[i];
+            drained.angle              = angle[i];
+            drained.buttons            = buttons[i];
+            drained.quantized          = quantized[i];
+            consumer.onSample(drained);
+        }
+
+        head = h + count; //frees the slots for the producer
+        return count;
+    }
+
+    /**
+     * @return the number of samples waiting to be drained
+     */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * @return the maximum number of samples waiting to be drained
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of samples dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
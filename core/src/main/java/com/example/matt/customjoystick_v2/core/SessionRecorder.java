@@ -0,0 +1,179 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records touch samples and the outputs computed from them into a memory-mapped file.
+ * <p>
+ * The touch is recorded as it went into the joystick math, i.e. after any touch filter or
+ * motion prediction, so that {@link SessionReplayer} gets the same outputs from it. </p>
+ * <p>
+ * The file is made of a {@link #HEADER_SIZE} byte header followed by fixed-width records of
+ * {@link #RECORD_SIZE} bytes, big-endian:
+ * <pre>
+ *  0  long   event time in milliseconds
+ *  8  int    action; MotionEvent action or one of the ACTION constants
+ * 12  float  x of the touch
+ * 16  float  y of the touch
+ * 20  int    x-axis position of the thumbstick
+ * 24  int    y-axis position of the thumbstick
+ * 28  int    x-axis percentage
+ * 32  int    y-axis percentage
+ * 36  float  strength
+ * 40  float  angle
+ * 44  int    button flags
+ * </pre>
+ * The header holds {@link #MAGIC}, {@link #VERSION}, the record size and the number of records.
+ * The whole file is mapped up front, so recording a sample is a few writes to memory: no
+ * allocation and no system calls. The operating system writes the pages to the file in the
+ * background; {@link #flush()} forces it. Create, flush and close the recorder off the UI thread;
+ * {@link #record} is cheap enough for it. </p>
+ */
+public final class SessionRecorder implements Closeable {
+
+    public static final int MAGIC = 0x4A535243; //"JSRC"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 48;
+
+    /** The joystick changed size; x is the layout size and y the canvas padding */
+    public static final int ACTION_GEOMETRY = -1;
+    /** A step of the thumbstick moving back to the center; x and y are its position */
+    public static final int ACTION_RECENTER = -2;
+
+    static final int HEADER_OFFSET_MAGIC = 0;
+    static final int HEADER_OFFSET_VERSION = 4;
+    static final int HEADER_OFFSET_RECORD_SIZE = 8;
+    static final int HEADER_OFFSET_COUNT = 12;
+
+    /**
+     * Size of a memory page; the mapping is touched once per page up front
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int count;
+    private long droppedCount;
+
+    /**
+     * Creates, or overwrites, the file and maps room for the given number of records
+     *
+     * @param path     the file to record into
+     * @param capacity maximum number of records; about 4 minutes at 240 Hz per 60000 records
+     * @throws IOException if the file can not be created or mapped
+     */
+    public SessionRecorder(File path, int capacity) throws IOException {
+        this.capacity = capacity;
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        if (capacity <= 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+
+        file = new RandomAccessFile(path, "rw");
+        try {
+            file.setLength(size);
+            channel = file.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        //Fault every page in now so recording doesn't hit the first write to a page
+        for (int position = 0; position < size; position += PAGE_SIZE) {
+            buffer.put(position, (byte) 0);
+        }
+
+        buffer.putInt(HEADER_OFFSET_MAGIC, MAGIC);
+        buffer.putInt(HEADER_OFFSET_VERSION, VERSION);
+        buffer.putInt(HEADER_OFFSET_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_OFFSET_COUNT, 0);
+    }
+
+    /**
+     * Records a sample and the outputs computed from it
+     *
+     * @param action MotionEvent action of the sample or one of the ACTION constants
+     * @param rawX   x of the touch the outputs were computed from
+     * @param rawY   y of the touch the outputs were computed from
+     * @param state  outputs computed from the sample
+     * @return false if the file is full and the sample was not recorded
+     */
+    public boolean record(int action, float rawX, float rawY, JoystickState state) {
+        if (count >= capacity) {
+            droppedCount++;
+            return false;
+        }
+
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putLong(offset, state.eventTime);
+        buffer.putInt(offset + 8, action);
+        buffer.putFloat(offset + 12, rawX);
+        buffer.putFloat(offset + 16, rawY);
+        buffer.putInt(offset + 20, state.posX);
+        buffer.putInt(offset + 24, state.posY);
+        buffer.putInt(offset + 28, state.percentageX);
+        buffer.putInt(offset + 32, state.percentageY);
+        buffer.putFloat(offset + 36, state.strength);
+        buffer.putFloat(offset + 40, state.angle);
+        buffer.putInt(offset + 44, state.buttons);
+
+        count++;
+        buffer.putInt(HEADER_OFFSET_COUNT, count); //record is complete before it is counted
+        return true;
+    }
+
+    /**
+     * Records a change of the size of the joystick so a replay uses the same geometry
+     *
+     * @param layoutSize    size of the square layout in pixels
+     * @param canvasPadding padding between the edge of the layout and the joystick in pixels
+     * @param state         outputs after the change
+     * @return false if the file is full and the change was not recorded
+     */
+    public boolean recordGeometry(int layoutSize, int canvasPadding, JoystickState state) {
+        return record(ACTION_GEOMETRY, layoutSize, canvasPadding, state);
+    }
+
+    /**
+     * @return the number of records written
+     */
+    public int getRecordCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of samples not recorded because the file was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Writes the records to the file; blocks on disk I/O so don't call it on the UI thread
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a recording made by {@link SessionRecorder} back through the joystick math.
+ * <p>
+ * Touch samples and recenter steps are run through the given {@link JoystickKernel}, so a
+ * recording from the field can be replayed against changed math (a different response curve,
+ * say) and the new outputs compared with the recorded ones. Replays can run at the recorded pace
+ * or as fast as possible, e.g. to load-test whatever consumes the outputs. Replays run on the
+ * calling thread and allocate nothing per record. </p>
+ */
+public final class SessionReplayer implements Closeable {
+
+    /**
+     * Receives every replayed record
+     */
+    public interface Listener {
+
+        /**
+         * @param action   MotionEvent action of the sample or one of the SessionRecorder ACTION
+         *                 constants
+         * @param replayed outputs computed by the replay
+         * @param recorded outputs that were recorded
+         */
+        void onReplay(int action, JoystickState replayed, JoystickState recorded);
+    }
+
+    private static final int ACTION_UP = 1; //MotionEvent.ACTION_UP
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private final JoystickState replayed = new JoystickState();
+    private final JoystickState recorded = new JoystickState();
+
+    /**
+     * Opens a recording
+     *
+     * @param path the recording
+     * @throws IOException if the file can not be read, is not a recording or is cut short
+     */
+    public SessionReplayer(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < SessionRecorder.HEADER_SIZE
+                    || buffer.getInt(SessionRecorder.HEADER_OFFSET_MAGIC) != SessionRecorder.MAGIC
+                    || buffer.getInt(SessionRecorder.HEADER_OFFSET_VERSION) != SessionRecorder.VERSION
+                    || buffer.getInt(SessionRecorder.HEADER_OFFSET_RECORD_SIZE) != SessionRecorder.RECORD_SIZE) {
+                throw new IOException("Not a joystick recording: " + path);
+            }
+            count = buffer.getInt(SessionRecorder.HEADER_OFFSET_COUNT);
+            if (count < 0 || SessionRecorder.HEADER_SIZE + (long) count * SessionRecorder.RECORD_SIZE > channel.size()) {
+                throw new IOException("Truncated joystick recording: " + path + " claims " + count + " records");
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of records in the recording
+     */
+    public int getRecordCount() {
+        return count;
+    }
+
+    /**
+     * Replays every record
+     *
+     * @param kernel   the math to replay through; its geometry is set by the recording
+     * @param listener receives every record, or null
+     * @param realTime whether to wait between records as long as between the recorded samples;
+     *                 otherwise replays as fast as possible
+     * @return the number of records whose replayed outputs differ from the recorded ones
+     */
+    public int replay(JoystickKernel kernel, Listener listener, boolean realTime) {
+        int mismatches = 0;
+        long firstEventTime = 0;
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < count; i++) {
+            int offset = SessionRecorder.HEADER_SIZE + i * SessionRecorder.RECORD_SIZE;
+            int action = read(offset);
+
+            if (realTime) {
+                if (i == 0) {
+                    firstEventTime = recorded.eventTime;
+                }
+                long dueNanos = startNanos + (recorded.eventTime - firstEventTime) * 1000000L;
+                long wait;
+                while ((wait = dueNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            float rawX = buffer.getFloat(offset + 12);
+            float rawY = buffer.getFloat(offset + 16);
+            if (action == SessionRecorder.ACTION_GEOMETRY) {
+                kernel.setGeometry((int) rawX, (int) rawY);
+                kernel.recenter(recorded.eventTime, replayed);
+            } else if (action != ACTION_UP) {
+                kernel.process(rawX, rawY, recorded.eventTime, replayed);
+            } //lifting the finger doesn't change the outputs; the recenter steps that follow do
+            replayed.eventTime = recorded.eventTime;
+            replayed.buttons = recorded.buttons; //buttons come from gestures, not the math
+
+            if (!matches(replayed, recorded)) {
+                mismatches++;
+            }
+            if (listener != null) {
+                listener.onReplay(action, replayed, recorded);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Reads the record at the offset into {@link #recorded}
+     *
+     * @return the action of the record
+     */
+    private int read(int offset) {
+        recorded.eventTime   = buffer.getLong(offset);
+        recorded.posX        = buffer.getInt(offset + 20);
+        recorded.posY        = buffer.getInt(offset + 24);
+        recorded.percentageX = buffer.getInt(offset + 28);
+        recorded.percentageY = buffer.getInt(offset + 32);
+        recorded.strength    = buffer.getFloat(offset + 36);
+        recorded.angle       = buffer.getFloat(offset + 40);
+        recorded.buttons     = buffer.getInt(offset + 44);
+        return buffer.getInt(offset + 8);
+    }
+
+    private static boolean matches(JoystickState a, JoystickState b) {
+        return a.posX == b.posX && a.posY == b.posY
+                && a.percentageX == b.percentageX && a.percentageY == b.percentageY
+                && Float.compare(a.strength, b.strength) == 0
+                && Float.compare(a.angle, b.angle) == 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Tells whether the outputs of a joystick are still fresh.
+ * <p>
+ * The thread processing the touches reports every output it computes with {@link #onSample} and,
+ * while a finger rests without moving (Android sends no moves then), keeps the watchdog fed with
+ * {@link #heartbeat}. Once the outputs are away from neutral and neither arrives within the
+ * deadline, e.g. because the UI thread hangs or stopped getting touches, the outputs are stale:
+ * {@link #isStale} says so and {@link #apply} replaces them with neutral outputs marked
+ * {@link JoystickState#isStale() stale}. Outputs at neutral never go stale; there is nothing to
+ * stop. Neither do outputs a touch was cleanly let go of, reported with {@link #onRelease}, e.g.
+ * a throttle left off-center; they are where the user put them, not a hang. </p>
+ * <p>
+ * Checking is a couple of volatile reads and a subtraction, so consumers on any thread can check
+ * every output instead of keeping timeouts of their own. Times are {@link System#nanoTime()}. </p>
+ */
+public final class StalenessWatchdog {
+
+    private volatile long deadlineNanos;
+
+    /**
+     * Time of the latest sample or heartbeat
+     */
+    private volatile long lastAliveNanos;
+
+    /**
+     * Whether the latest outputs are away from neutral, so they can go stale
+     */
+    private volatile boolean armed;
+
+    /**
+     * @param deadline time in milliseconds the outputs stay fresh without a sample or heartbeat
+     */
+    public StalenessWatchdog(int deadline) {
+        setDeadline(deadline);
+    }
+
+    /**
+     * @param deadline time in milliseconds the outputs stay fresh without a sample or heartbeat
+     */
+    public void setDeadline(int deadline) {
+        deadlineNanos = Math.max(1, deadline) * 1000000L;
+    }
+
+    /**
+     * @return the time in milliseconds the outputs stay fresh without a sample or heartbeat
+     */
+    public int getDeadline() {
+        return (int) (deadlineNanos / 1000000L);
+    }
+
+    /**
+     * Reports new outputs.<!-- --> Must only be called from the thread processing the touches.
+     *
+     * @param state    the outputs
+     * @param nowNanos current time
+     */
+    public void onSample(JoystickState state, long nowNanos) {
+        lastAliveNanos = nowNanos;
+        armed = !state.stale && (state.quantized != 0 || state.buttons != 0);
+    }
+
+    /**
+     * Reports that the touch ended on its own, e.g. with an up.<!-- --> The outputs stay where
+     * they were let go of, e.g. a stick without auto recentering or one waiting for its recenter
+     * delay, and don't go stale until the next sample arms the watchdog again. Must only be
+     * called from the thread processing the touches.
+     *
+     * @param nowNanos current time
+     */
+    public void onRelease(long nowNanos) {
+        lastAliveNanos = nowNanos;
+        armed = false;
+    }
+
+    /**
+     * Reports that the outputs are still current although no new sample came, e.g. while a finger
+     * rests on the joystick
+     *
+     * @param nowNanos current time
+     */
+    public void heartbeat(long nowNanos) {
+        lastAliveNanos = nowNanos;
+    }
+
+    /**
+     * @param nowNanos current time
+     * @return whether the latest outputs are away from neutral and older than the deadline
+     */
+    public boolean isStale(long nowNanos) {
+        return armed && nowNanos - lastAliveNanos > deadlineNanos;
+    }
+
+    /**
+     * Replaces outputs that are stale with neutral ones.<!-- --> Safe to call from any thread.
+     *
+     * @param out      outputs read from the joystick, e.g. with {@link JoystickSnapshot#read}
+     * @param nowNanos current time
+     * @return whether the outputs are stale, either already or because of the deadline
+     */
+    public boolean apply(JoystickState out, long nowNanos) {
+        if (!out.stale && isStale(nowNanos)) {
+            out.neutralize();
+        }
+        return out.stale;
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Recognizes taps on a joystick: single tap, double tap, press-and-hold and tap-then-drag.
+ * <p>
+ * A small state machine fed with the down, move and up samples of the joystick and their event
+ * times. Timeouts that expire without a new touch (a single tap that got no second tap, a hold)
+ * are checked on the frames of a {@link FrameClock} while one is pending; nothing is allocated
+ * and no Runnables are posted. Dragging the thumbstick right away is normal joystick use and is
+ * not reported. Every method has to be called from the thread the frame clock runs its
+ * callbacks on. </p>
+ * <p>
+ * Besides the listener, the detector keeps button flags that can be copied into the outputs:
+ * {@link #BUTTON_PRESS} is set from the second touch of a double tap until that finger is lifted
+ * (so a tap-then-drag is a held button) and {@link #BUTTON_HOLD} while a press-and-hold lasts,
+ * if holds are {@link #setHoldEnabled(boolean) enabled}. </p>
+ */
+public final class TapGestureDetector implements FrameClock.Callback {
+
+    /**
+     * Receives the recognized gestures
+     */
+    public interface Listener {
+
+        /**
+         * @param gesture   one of the GESTURE constants
+         * @param eventTime time of the gesture in milliseconds
+         */
+        void onGesture(int gesture, long eventTime);
+    }
+
+    /** A single tap that was not followed by a second tap in time */
+    public static final int GESTURE_SINGLE_TAP = 1;
+    /** The second touch of a double tap went down */
+    public static final int GESTURE_DOUBLE_TAP = 2;
+    /** The thumbstick was held without moving for the hold timeout */
+    public static final int GESTURE_HOLD_START = 3;
+    /** A held thumbstick was let go of */
+    public static final int GESTURE_HOLD_END = 4;
+    /** The second touch of a double tap started dragging */
+    public static final int GESTURE_TAP_DRAG_START = 5;
+    /** The finger of a tap-then-drag was lifted */
+    public static final int GESTURE_TAP_DRAG_END = 6;
+
+    /** Button flag set while the second touch of a double tap is down */
+    public static final int BUTTON_PRESS = 1;
+    /** Button flag set while a press-and-hold lasts */
+    public static final int BUTTON_HOLD = 1 << 1;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_FIRST_DOWN = 1;
+    private static final int STATE_DRAGGING = 2;
+    private static final int STATE_HOLD = 3;
+    private static final int STATE_WAIT_SECOND_TAP = 4;
+    private static final int STATE_SECOND_DOWN = 5;
+    private static final int STATE_TAP_DRAG = 6;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * No timeout is pending
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final FrameClock frameClock;
+    private Listener listener;
+
+    private boolean doubleTapEnabled = true;
+    private boolean holdEnabled = true;
+    private int tapTimeout = 200;
+    private int holdTimeout = 500;
+    private int doubleTapDelay = 200;
+    private int doubleTapError = 50;
+    private float touchSlopSquared = 8 * 8;
+
+    private int state = STATE_IDLE;
+    private int buttons;
+
+    /**
+     * Time and position of the last touch going down
+     */
+    private long downTime;
+    private float downX;
+    private float downY;
+
+    /**
+     * Time the first touch of a possible double tap was lifted
+     */
+    private long upTime;
+
+    /**
+     * Event time in milliseconds at which the pending timeout expires
+     */
+    private long deadline = NO_DEADLINE;
+    private boolean posted;
+
+    /**
+     * @param frameClock clock used to check timeouts that expire without a new touch
+     */
+    public TapGestureDetector(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    /**
+     * @param listener receives the recognized gestures, or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param enabled whether double taps and tap-then-drags are recognized; without them single
+     *                taps are reported as soon as the finger is lifted
+     */
+    public void setDoubleTapEnabled(boolean enabled) {
+        doubleTapEnabled = enabled;
+    }
+
+    /**
+     * @param enabled whether a touch staying put for the hold timeout is a press-and-hold; without
+     *                it a resting thumb never sets {@link #BUTTON_HOLD}
+     */
+    public void setHoldEnabled(boolean enabled) {
+        holdEnabled = enabled;
+        if (!enabled && state == STATE_FIRST_DOWN) {
+            setDeadline(NO_DEADLINE); //drops a pending hold
+        }
+    }
+
+    /**
+     * @param doubleTapDelay time in milliseconds after a tap in which a second tap makes a double
+     *                       tap
+     * @param doubleTapError time in milliseconds after a tap before a second tap counts; must be
+     *                       less than doubleTapDelay or it is set to 10 less than it
+     */
+    public void setDoubleTapTiming(int doubleTapDelay, int doubleTapError) {
+        this.doubleTapDelay = Math.max(0, doubleTapDelay);
+        this.doubleTapError = doubleTapError < doubleTapDelay ? Math.max(0, doubleTapError)
+                : Math.max(0, doubleTapDelay - 10);
+    }
+
+    /**
+     * @param tapTimeout  longest time in milliseconds a touch can last and still be a tap
+     * @param holdTimeout time in milliseconds a touch has to stay put to be a press-and-hold
+     */
+    public void setTimeouts(int tapTimeout, int holdTimeout) {
+        this.tapTimeout = tapTimeout;
+        this.holdTimeout = holdTimeout;
+    }
+
+    /**
+     * @param touchSlop distance in pixels a touch can move and still be a tap or hold
+     */
+    public void setTouchSlop(float touchSlop) {
+        touchSlopSquared = touchSlop * touchSlop;
+    }
+
+    /**
+     * @return the button flags, {@link #BUTTON_PRESS} and {@link #BUTTON_HOLD}
+     */
+    public int getButtons() {
+        return buttons;
+    }
+
+    /**
+     * A touch went down on the joystick
+     */
+    public void onDown(float x, float y, long eventTime) {
+        if (state == STATE_WAIT_SECOND_TAP) {
+            long gap = eventTime - upTime;
+            if (gap >= doubleTapError && gap <= doubleTapDelay) {
+                start(STATE_SECOND_DOWN, x, y, eventTime, NO_DEADLINE);
+                buttons |= BUTTON_PRESS;
+                report(GESTURE_DOUBLE_TAP, eventTime);
+                return;
+            }
+            report(GESTURE_SINGLE_TAP, upTime); //the first tap stays a single tap
+        }
+        start(STATE_FIRST_DOWN, x, y, eventTime, holdEnabled ? eventTime + holdTimeout : NO_DEADLINE);
+    }
+
+    /**
+     * The touch on the joystick moved
+     */
+    public void onMove(float x, float y, long eventTime) {
+        checkDeadline(eventTime);
+        if (!isOutsideSlop(x, y)) {
+            return;
+        }
+        if (state == STATE_FIRST_DOWN) {
+            state = STATE_DRAGGING; //normal joystick use
+            setDeadline(NO_DEADLINE);
+        } else if (state == STATE_SECOND_DOWN) {
+            state = STATE_TAP_DRAG;
+            report(GESTURE_TAP_DRAG_START, eventTime);
+        }
+    }
+
+    /**
+     * The touch was lifted off the joystick
+     */
+    public void onUp(long eventTime) {
+        checkDeadline(eventTime);
+        switch (state) {
+            case STATE_FIRST_DOWN:
+                if (eventTime - downTime > tapTimeout) {
+                    reset();
+                } else if (doubleTapEnabled) {
+                    state = STATE_WAIT_SECOND_TAP;
+                    upTime = eventTime;
+                    setDeadline(eventTime + doubleTapDelay);
+                } else {
+                    reset();
+                    report(GESTURE_SINGLE_TAP, eventTime);
+                }
+                break;
+            case STATE_HOLD:
+                reset();
+                report(GESTURE_HOLD_END, eventTime);
+                break;
+            case STATE_TAP_DRAG:
+                reset();
+                report(GESTURE_TAP_DRAG_END, eventTime);
+                break;
+            default:
+                reset();
+                break;
+        }
+    }
+
+    /**
+     * The touch was cancelled, e.g. taken over by a parent view; ends any gesture in progress
+     */
+    public void onCancel(long eventTime) {
+        int previous = state;
+        reset();
+        if (previous == STATE_HOLD) {
+            report(GESTURE_HOLD_END, eventTime);
+        } else if (previous == STATE_TAP_DRAG) {
+            report(GESTURE_TAP_DRAG_END, eventTime);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        checkDeadline(frameTimeNanos / NANOS_PER_MILLI);
+        if (deadline != NO_DEADLINE) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Handles a timeout that expired before the given time
+     */
+    private void checkDeadline(long now) {
+        if (now < deadline) {
+            return;
+        }
+        if (state == STATE_FIRST_DOWN) {
+            state = STATE_HOLD;
+            setDeadline(NO_DEADLINE);
+            buttons |= BUTTON_HOLD;
+            report(GESTURE_HOLD_START, downTime + holdTimeout);
+        } else if (state == STATE_WAIT_SECOND_TAP) {
+            reset();
+            report(GESTURE_SINGLE_TAP, upTime);
+        }
+    }
+
+    private void start(int newState, float x, float y, long eventTime, long newDeadline) {
+        state = newState;
+        downTime = eventTime;
+        downX = x;
+        downY = y;
+        setDeadline(newDeadline);
+    }
+
+    private void reset() {
+        state = STATE_IDLE;
+        buttons = 0;
+        setDeadline(NO_DEADLINE);
+    }
+
+    private void setDeadline(long newDeadline) {
+        deadline = newDeadline;
+        if (deadline == NO_DEADLINE) {
+            if (posted) {
+                posted = false;
+                frameClock.removeFrameCallback(this);
+            }
+        } else if (!posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    private boolean isOutsideSlop(float x, float y) {
+        float dx = x - downX;
+        float dy = y - downY;
+        return dx * dx + dy * dy > touchSlopSquared;
+    }
+
+    private void report(int gesture, long eventTime) {
+        if (listener != null) {
+            listener.onGesture(gesture, eventTime);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Smooths the position of a touch before it is run through {@link JoystickKernel}.
+ * <p>
+ * Every output (position, percentages, strength and angle) is computed from the filtered
+ * position, so they calm down together and stay consistent with each other. Filters keep their
+ * state in fields set up when they are created; adding a sample takes a fixed amount of work and
+ * allocates nothing. Filters that depend on time use the event times of the samples, so uneven
+ * spacing between samples is handled. </p>
+ */
+public interface TouchFilter {
+
+    /**
+     * Adds a sample; the filtered position is then available from {@link #getX()} and
+     * {@link #getY()}
+     *
+     * @param rawX      x of the touch
+     * @param rawY      y of the touch
+     * @param eventTime time of the sample in milliseconds
+     */
+    void update(float rawX, float rawY, long eventTime);
+
+    /**
+     * @return the filtered x
+     */
+    float getX();
+
+    /**
+     * @return the filtered y
+     */
+    float getY();
+
+    /**
+     * Forgets every sample, e.g. when a new touch goes down
+     */
+    void reset();
+
+    /**
+     * @return a new filter with the same settings and no samples; every thread filtering touches
+     *         needs a filter of its own
+     */
+    TouchFilter copy();
+}
@@ -0,0 +1,179 @@
+package com.example.matt.customjoystick_v2.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the published joystick outputs as {@link JoystickFrame} datagrams.
+ * <p>
+ * Register it as the publish listener of a joystick; it sends at most one frame per publish, so
+ * the rate follows the refresh rate of the joystick. The publishing thread only copies the
+ * outputs into a {@link JoystickSnapshot} and wakes the sender thread, because Android does not
+ * allow network calls on the UI thread. The sender encodes into a reused direct buffer and writes
+ * to a non-blocking channel; when it falls behind only the latest outputs are sent. Nothing is
+ * allocated per frame. </p>
+ * <p>
+ * With a heartbeat set, the latest outputs are sent again whenever nothing was published for the
+ * heartbeat interval, so the receiver keeps hearing from a joystick at rest without the UI
+ * thread publishing anything. With a {@link StalenessWatchdog} as well, outputs that went stale
+ * while the UI thread stopped publishing, e.g. because it hangs, are sent as neutral outputs
+ * flagged {@link JoystickFrame#FLAG_STALE} instead of repeating the last position. </p>
+ */
+public final class UdpTransport implements OutputPublisher.Listener, Closeable {
+
+    private final DatagramChannel channel;
+    private final FrameEncoder encoder = new FrameEncoder();
+
+    /**
+     * Latest published outputs, waiting to be sent
+     */
+    private final JoystickSnapshot pending = new JoystickSnapshot();
+
+    /**
+     * Outputs being sent; only used by the sender thread
+     */
+    private final JoystickState sending = new JoystickState();
+
+    private final Thread sender;
+
+    private volatile boolean open = true;
+
+    /**
+     * Longest time without a frame sent; 0 sends frames only for publishes
+     */
+    private volatile long heartbeatNanos;
+
+    /**
+     * Checks the outputs before they are sent; null sends them as they are
+     */
+    private volatile StalenessWatchdog watchdog;
+
+    private volatile long sentCount;
+    private volatile long droppedCount;
+    private volatile long errorCount;
+
+    /**
+     * Opens the channel and starts the sender thread.<!-- --> Should not be called on the UI thread.
+     *
+     * @param target address of the receiver
+     * @throws IOException if the channel can not be opened
+     */
+    public UdpTransport(SocketAddress target) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(target);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                send();
+            }
+        }, "UdpTransport");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * @param heartbeat longest time in milliseconds without a frame sent; while nothing is
+     *                  published the latest outputs are sent again at this interval.<!-- --> 0
+     *                  turns the heartbeat off.
+     */
+    public void setHeartbeat(int heartbeat) {
+        heartbeatNanos = Math.max(0, heartbeat) * 1000000L;
+        LockSupport.unpark(sender); //picks up the new interval
+    }
+
+    /**
+     * @param watchdog watchdog of the joystick, checked before every frame sent, or null.<!-- -->
+     *                 Set a heartbeat too, so stale outputs are noticed without a publish.
+     */
+    public void setWatchdog(StalenessWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public void onPublish(JoystickState state, long frameTimeNanos) {
+        pending.write(state);
+        LockSupport.unpark(sender);
+    }
+
+    private void send() {
+        int sentVersion = 0; //version of a snapshot nothing was written to
+        long lastSendNanos = 0;
+        while (open) {
+            if (pending.getVersion() == sentVersion) {
+                long heartbeat = heartbeatNanos;
+                if (heartbeat == 0 || sentVersion == 0) {
+                    LockSupport.park(this); //returns right away if a publish happened since the check
+                    continue;
+                }
+                long wait = lastSendNanos + heartbeat - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                //Nothing published for a heartbeat; send the latest outputs again
+            } else {
+                sentVersion = pending.read(sending);
+            }
+
+            lastSendNanos = System.nanoTime();
+            StalenessWatchdog check = watchdog;
+            if (check != null) {
+                check.apply(sending, lastSendNanos); //stays neutral until the next publish
+            }
+            ByteBuffer frame = encoder.encode(sending);
+            try {
+                if (channel.write(frame) == 0) {
+                    droppedCount++; //socket buffer full; the next publish replaces this frame
+                } else {
+                    sentCount++;
+                }
+            } catch (IOException e) {
+                if (open) {
+                    errorCount++; //e.g. nobody listening yet; keep sending the next frames
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of frames sent
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return the number of frames dropped because the socket buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of frames that failed to send
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Stops the sender thread and closes the channel
+     */
+    @Override
+    public void close() throws IOException {
+        open = false;
+        LockSupport.unpark(sender);
+        channel.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * How a processing thread waits for work and how it is woken up.
+ * <p>
+ * Trades latency for CPU: spinning reacts fastest but keeps a core busy, parking frees the core
+ * but takes a wake-up to react. </p>
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called by the consumer when it found nothing to do; returns when it should look again
+     *
+     * @param idleCount number of times in a row the consumer found nothing to do, from 0
+     */
+    void idle(int idleCount);
+
+    /**
+     * Called by the producer after adding work
+     *
+     * @param consumer the thread consuming the work
+     */
+    void signal(Thread consumer);
+}
@@ -0,0 +1,36 @@
+package com.example.matt.customjoystick_v2.core;
+
+/**
+ * Spins for a while, then yields the core to other threads between checks.<!-- --> Low latency
+ * while leaving room for other threads, but still never sleeps.
+ */
+public final class YieldingWaitStrategy implements WaitStrategy {
+
+    private final int spins;
+
+    /**
+     * Spins 100 times before yielding
+     */
+    public YieldingWaitStrategy() {
+        this(100);
+    }
+
+    /**
+     * @param spins number of checks before the consumer starts yielding
+     */
+    public YieldingWaitStrategy(int spins) {
+        this.spins = spins;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount >= spins) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public void signal(Thread consumer) {
+        //the consumer never sleeps
+    }
+}
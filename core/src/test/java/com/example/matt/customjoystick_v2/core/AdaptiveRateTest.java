@@ -0,0 +1,90 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AdaptiveRate} driving an {@link OutputPublisher}
+ */
+public class AdaptiveRateTest {
+
+    private static final long MS = 1000000L;
+
+    private final ManualFrameClock clock = new ManualFrameClock();
+    private final JoystickState state = new JoystickState();
+    private final AdaptiveRate rate = new AdaptiveRate();
+    private OutputPublisher publisher;
+    private int publishCount;
+
+    @Before
+    public void setUp() throws Exception {
+        rate.setRates(100, 5); //10 ms moving, 200 ms still
+        rate.setThresholds(100, 2000);
+        publisher = new OutputPublisher(clock, state, 20);
+        publisher.setAdaptiveRate(rate);
+        publisher.setListener(new OutputPublisher.Listener() {
+            @Override
+            public void onPublish(JoystickState state, long frameTimeNanos) {
+                publishCount++;
+            }
+        });
+        publisher.start();
+    }
+
+    private void change(int percentageX, long eventTime) {
+        state.percentageX = percentageX;
+        state.eventTime = eventTime;
+        publisher.markChanged();
+    }
+
+    @Test
+    public void fastMotion_publishesEveryFrame() throws Exception {
+        for (int frame = 1; frame <= 10; frame++) {
+            change(frame * 8, frame * 16); //500% per second
+            clock.frame(frame * 16 * MS);
+        }
+        assertEquals(10, publishCount);
+        assertEquals(10 * MS, rate.getIntervalNanos());
+    }
+
+    @Test
+    public void slowMotion_decaysToTheMinimumRate() throws Exception {
+        change(50, 0);
+        clock.frame(0);
+        for (int frame = 1; frame <= 60; frame++) {
+            change(50 + (frame / 10), frame * 16); //about 6% per second
+            clock.frame(frame * 16 * MS);
+        }
+        assertEquals(200 * MS, rate.getIntervalNanos());
+        assertTrue("published " + publishCount, publishCount <= 8);
+    }
+
+    @Test
+    public void center_isPublishedRightAway() throws Exception {
+        change(50, 0);
+        clock.frame(0);
+        change(51, 500);
+        clock.frame(500 * MS);
+        int before = publishCount;
+
+        change(0, 510); //let go; back at the center
+        clock.frame(516 * MS);
+        assertEquals(before + 1, publishCount);
+    }
+
+    @Test
+    public void finalValue_isAlwaysPublished() throws Exception {
+        for (int frame = 1; frame <= 5; frame++) {
+            change(frame * 10, frame * 16);
+            clock.frame(frame * 16 * MS);
+        }
+        change(52, 90); //stops right after
+        for (int frame = 6; frame <= 30 && clock.hasPending(); frame++) {
+            clock.frame(frame * 16 * MS);
+        }
+        assertFalse(clock.hasPending());
+        assertEquals(6, publishCount);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CharLine}
+ */
+public class CharLineTest {
+
+    private final CharLine line = new CharLine(32);
+
+    @Test
+    public void append_formatsIntegersLikeString() throws Exception {
+        long[] values = {0, 7, -7, 100, -100, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertEquals(String.valueOf(value), line.clear().append(value).toString());
+        }
+    }
+
+    @Test
+    public void append_roundsDecimals() throws Exception {
+        assertEquals("12.35", line.clear().append(12.345, 2).toString());
+        assertEquals("-0.5", line.clear().append(-0.5, 1).toString());
+        assertEquals("0.0", line.clear().append(-0.01, 1).toString()); //no negative zero
+        assertEquals("3.007", line.clear().append(3.007, 3).toString());
+        assertEquals("100", line.clear().append(99.6, 0).toString());
+        assertEquals("NaN", line.clear().append(Double.NaN, 1).toString());
+    }
+
+    @Test
+    public void appendPadded_alignsNumbers() throws Exception {
+        line.clear().append("x ").appendPadded(-5, 4).append('%');
+        assertEquals("x   -5%", line.toString());
+        assertEquals("12345", line.clear().appendPadded(12345, 3).toString());
+    }
+
+    @Test
+    public void append_cutsOffAtCapacity() throws Exception {
+        CharLine small = new CharLine(4);
+        small.append("ab").append(12345);
+        assertEquals(4, small.length());
+        assertEquals("ab12", small.toString());
+        assertSame(small.getChars(), small.clear().append(1).getChars()); //never reallocated
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ControllerAggregator} and the {@link ControllerFrame} it is sent as
+ */
+public class ControllerAggregatorTest {
+
+    private static final long MS = 1000000L;
+
+    private final ManualFrameClock clock = new ManualFrameClock();
+    private final ControllerAggregator aggregator = new ControllerAggregator(clock, 20);
+    private final ArrayList<Integer> ticks = new ArrayList<>();
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+    private final JoystickSnapshot left = new JoystickSnapshot();
+    private final JoystickSnapshot right = new JoystickSnapshot();
+    private int leftControl;
+    private int rightControl;
+
+    /**
+     * Outputs of the left stick as of the last tick
+     */
+    private int leftPercentageX;
+
+    @Before
+    public void setUp() throws Exception {
+        kernel.setGeometry(210, 10); //center 105, radius 100
+        aggregator.setListener(new ControllerAggregator.Listener() {
+            @Override
+            public void onControllerFrame(JoystickState[] controls, int changed, long frameTimeNanos) {
+                ticks.add(changed);
+                leftPercentageX = controls[leftControl].getPercentageX();
+            }
+        });
+        leftControl = aggregator.register(left);
+        rightControl = aggregator.register(right);
+    }
+
+    private void move(JoystickSnapshot control, int index, float x, float y, long eventTime) {
+        kernel.process(x, y, eventTime, state);
+        control.write(state);
+        aggregator.markChanged(index);
+    }
+
+    @Test
+    public void idle_postsNothing() throws Exception {
+        aggregator.start();
+        clock.frame(0); //registration marks every control
+        assertFalse(clock.hasPending());
+    }
+
+    @Test
+    public void controls_arePublishedTogether_onOneTick() throws Exception {
+        aggregator.start();
+        move(left, leftControl, 155, 105, 1);
+        move(right, rightControl, 105, 55, 2);
+        move(left, leftControl, 165, 105, 3); //coalesced into the same tick
+        clock.frame(16 * MS);
+
+        assertEquals(1, ticks.size());
+        assertEquals(0x3, (int) ticks.get(0));
+        assertEquals(60, leftPercentageX);
+    }
+
+    @Test
+    public void unchangedControls_areSkipped() throws Exception {
+        aggregator.start();
+        move(left, leftControl, 155, 105, 1);
+        move(right, rightControl, 105, 55, 2);
+        clock.frame(0);
+        move(right, rightControl, 105, 45, 30);
+        clock.frame(32 * MS);
+
+        assertEquals(2, ticks.size());
+        assertEquals(1 << rightControl, (int) ticks.get(1));
+    }
+
+    @Test
+    public void ticks_areLimitedToRefreshRate() throws Exception {
+        aggregator.start();
+        move(left, leftControl, 155, 105, 1);
+        clock.frame(0);
+        move(left, leftControl, 160, 105, 10);
+        clock.frame(16 * MS); //too soon
+
+        assertEquals(1, ticks.size());
+        assertTrue(clock.hasPending());
+
+        clock.frame(32 * MS);
+        assertEquals(2, ticks.size());
+    }
+
+    @Test
+    public void keyframe_publishesEveryControlWhileIdle() throws Exception {
+        aggregator.start();
+        clock.frame(0); //registration marks every control
+        move(right, rightControl, 105, 45, 30);
+        clock.frame(32 * MS);
+        assertFalse(clock.hasPending()); //no frame by frame polling while idle
+        assertTrue(clock.hasDelayed());
+
+        clock.frame(500 * MS);
+        assertEquals(2, ticks.size());
+        clock.frame(ControllerAggregator.DEFAULT_KEYFRAME_INTERVAL * MS);
+        assertEquals(3, ticks.size());
+        assertEquals(0x3, (int) ticks.get(2));
+    }
+
+    @Test
+    public void keyframesOff_postNothingWhileIdle() throws Exception {
+        aggregator.setKeyframeInterval(0);
+        aggregator.start();
+        clock.frame(0);
+        assertFalse(clock.hasPending());
+        assertFalse(clock.hasDelayed());
+    }
+
+    @Test
+    public void staleControl_isPublishedStale() throws Exception {
+        final ArrayList<Boolean> stale = new ArrayList<>();
+        ControllerAggregator watched = new ControllerAggregator(clock, 20);
+        watched.setListener(new ControllerAggregator.Listener() {
+            @Override
+            public void onControllerFrame(JoystickState[] controls, int changed, long frameTimeNanos) {
+                stale.add(controls[0].isStale());
+            }
+        });
+        StalenessWatchdog watchdog = new StalenessWatchdog(100);
+        int control = watched.register(right, watchdog);
+        watched.start();
+
+        kernel.process(105, 45, 1, state);
+        right.write(state);
+        watchdog.onSample(state, 1 * MS);
+        clock.frame(16 * MS);
+        assertEquals(1, stale.size());
+        assertFalse(stale.get(0));
+
+        //No sample since; the keyframe notices
+        clock.frame((ControllerAggregator.DEFAULT_KEYFRAME_INTERVAL + 16) * MS);
+        assertEquals(2, stale.size());
+        assertTrue(stale.get(1));
+
+        watchdog.onSample(state, 1100 * MS); //the joystick is back, outputs unchanged
+        watched.markChanged(control);
+        clock.frame(1116 * MS);
+        assertEquals(3, stale.size());
+        assertFalse(stale.get(2));
+    }
+
+    @Test
+    public void markedWithoutWrite_isNotPublished() throws Exception {
+        aggregator.start();
+        move(left, leftControl, 155, 105, 1);
+        move(right, rightControl, 105, 55, 2);
+        clock.frame(0);
+        aggregator.markChanged(leftControl);
+        clock.frame(32 * MS);
+
+        assertEquals(1, ticks.size());
+    }
+
+    @Test
+    public void tooManyControls_throws() throws Exception {
+        for (int i = aggregator.getControlCount(); i < ControllerAggregator.MAX_CONTROLS; i++) {
+            aggregator.register(new JoystickSnapshot());
+        }
+        try {
+            aggregator.register(new JoystickSnapshot());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void frame_roundTrips_onlyChangedControls() throws Exception {
+        JoystickState[] controls = new JoystickState[3];
+        for (int i = 0; i < controls.length; i++) {
+            controls[i] = new JoystickState();
+        }
+        kernel.process(155, 105, 95, controls[0]);
+        kernel.process(105, 5, 98, controls[2]);
+        controls[2].setButtons(0x5);
+
+        FrameEncoder encoder = new FrameEncoder();
+        ByteBuffer frame = encoder.encode(controls, 0x5, 100 * MS);
+        assertEquals(ControllerFrame.HEADER_SIZE + 2 * ControllerFrame.RECORD_SIZE, frame.remaining());
+
+        ControllerFrame decoded = new ControllerFrame();
+        assertTrue(new FrameDecoder().decode(frame, decoded));
+        assertEquals(100, decoded.getFrameTime());
+        assertTrue(decoded.contains(0));
+        assertFalse(decoded.contains(1));
+        assertTrue(decoded.contains(2));
+        assertEquals(controls[0].getQuantized(), decoded.getQuantized(0));
+        assertEquals(controls[2].getQuantized(), decoded.getQuantized(2));
+        assertEquals(95, decoded.getEventTime(0));
+        assertEquals(98, decoded.getEventTime(2));
+        assertEquals(0x5, decoded.getButtons(2));
+        assertEquals(QuantizedOutputs.AXIS_MAX, QuantizedOutputs.getAxisY(decoded.getQuantized(2)));
+    }
+
+    @Test
+    public void decode_rejectsTruncatedFrames() throws Exception {
+        JoystickState[] controls = { new JoystickState() };
+        ByteBuffer frame = new FrameEncoder().encode(controls, 0x1, 0);
+        frame.limit(frame.limit() - 1);
+        assertFalse(new FrameDecoder().decode(frame, new ControllerFrame()));
+        assertFalse(new FrameDecoder().decode(ByteBuffer.wrap(new byte[JoystickFrame.SIZE]),
+                new ControllerFrame()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DeltaFilter}
+ */
+public class DeltaFilterTest {
+
+    private final ArrayList<Integer> passedX = new ArrayList<>();
+    private final JoystickState state = new JoystickState();
+
+    private final DeltaFilter filter = new DeltaFilter(new OutputPublisher.Listener() {
+        @Override
+        public void onPublish(JoystickState state, long frameTimeNanos) {
+            passedX.add(state.getPercentageX());
+        }
+    });
+
+    private void publish(int percentageX, int percentageY) {
+        state.percentageX = percentageX;
+        state.percentageY = percentageY;
+        filter.onPublish(state, 0);
+    }
+
+    @Test
+    public void smallChanges_areHeldBackUntilTheyAddUp() throws Exception {
+        filter.setMinimumDelta(5, 5);
+        publish(10, 0);
+        publish(12, 1);
+        publish(14, 2);
+        publish(15, 2); //5 from the last passed on
+        assertEquals(2, passedX.size());
+        assertEquals(15, (int) passedX.get(1));
+    }
+
+    @Test
+    public void eitherAxis_passes() throws Exception {
+        filter.setMinimumDelta(5, 2);
+        publish(10, 10);
+        publish(11, 12);
+        assertEquals(2, passedX.size());
+    }
+
+    @Test
+    public void zeroMinimumOnOneAxis_doesNotPassSmallChangesOfTheOther() throws Exception {
+        filter.setMinimumDelta(5, 0);
+        publish(10, 10);
+        publish(12, 10); //y unchanged, x below its minimum
+        assertEquals(1, passedX.size());
+
+        publish(12, 11); //any change of y passes
+        assertEquals(2, passedX.size());
+    }
+
+    @Test
+    public void center_andButtons_alwaysPass() throws Exception {
+        filter.setMinimumDelta(10, 10);
+        publish(3, 2);
+        publish(0, 0);
+        assertEquals(2, passedX.size());
+
+        state.setButtons(1);
+        publish(0, 0);
+        assertEquals(3, passedX.size());
+
+        publish(0, 0); //nothing changed
+        assertEquals(3, passedX.size());
+    }
+
+    @Test
+    public void reset_passesNextPublish() throws Exception {
+        filter.setMinimumDelta(10, 10);
+        publish(20, 20);
+        filter.reset();
+        publish(20, 20);
+        assertEquals(2, passedX.size());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DirectionalPad}
+ */
+public class DirectionalPadTest {
+
+    private final ArrayList<Integer> reported = new ArrayList<>();
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+
+    private final DirectionalPad pad = new DirectionalPad(new DirectionalPad.Listener() {
+        @Override
+        public void onDirectionChange(int direction, int flags, long eventTime) {
+            reported.add(direction);
+        }
+    });
+
+    @Before
+    public void setUp() throws Exception {
+        kernel.setGeometry(210, 10); //center 105, radius 100
+    }
+
+    /**
+     * Moves the thumbstick to a distance from the center and angle (counter-clockwise from the
+     * positive x-axis) and updates the pad
+     */
+    private int move(float distance, double degrees) {
+        double radians = Math.toRadians(degrees);
+        kernel.process((float) (105 + distance * Math.cos(radians)),
+                (float) (105 - distance * Math.sin(radians)), 0L, state);
+        pad.update(state);
+        return pad.getDirection();
+    }
+
+    @Test
+    public void fourWay_sectorsAndFlags() throws Exception {
+        pad.setSectors(4);
+        assertEquals(0, move(80, 10));
+        assertEquals(DirectionalPad.FLAG_RIGHT, pad.getFlags());
+        assertEquals(1, move(80, 100));
+        assertEquals(DirectionalPad.FLAG_UP, pad.getFlags());
+        assertEquals(2, move(80, 190));
+        assertEquals(DirectionalPad.FLAG_LEFT, pad.getFlags());
+        assertEquals(3, move(80, 280));
+        assertEquals(DirectionalPad.FLAG_DOWN, pad.getFlags());
+    }
+
+    @Test
+    public void eightWay_diagonalsHaveTwoFlags() throws Exception {
+        pad.setSectors(8);
+        assertEquals(1, move(80, 45));
+        assertEquals(DirectionalPad.FLAG_RIGHT | DirectionalPad.FLAG_UP, pad.getFlags());
+        assertEquals(7, move(80, -45));
+        assertEquals(DirectionalPad.FLAG_RIGHT | DirectionalPad.FLAG_DOWN, pad.getFlags());
+        assertEquals(4, move(80, 180));
+        assertEquals(DirectionalPad.FLAG_LEFT, pad.getFlags());
+    }
+
+    @Test
+    public void deadZone_isCenter_withHysteresis() throws Exception {
+        pad.setDeadZone(20, 5);
+        assertEquals(DirectionalPad.CENTER, move(10, 0));
+        assertEquals(DirectionalPad.CENTER, move(22, 0)); //not past the hysteresis yet
+        assertEquals(0, move(26, 0));
+        assertEquals(0, move(21, 0)); //stays out until back inside the dead zone
+        assertEquals(DirectionalPad.CENTER, move(15, 0));
+        assertEquals(0, pad.getFlags());
+    }
+
+    @Test
+    public void edge_doesNotChatter() throws Exception {
+        pad.setSectors(4);
+        pad.setHysteresis(10);
+        move(80, 40);
+        for (int i = 0; i < 20; i++) { //jitter around the 45 degree edge
+            move(80, i % 2 == 0 ? 43 : 51);
+        }
+        assertEquals(1, reported.size());
+        assertEquals(0, pad.getDirection());
+
+        assertEquals(1, move(80, 57)); //past the hysteresis
+        assertEquals(1, move(80, 40)); //back past the edge, not past the hysteresis
+        assertEquals(0, move(80, 33));
+        assertEquals(3, reported.size());
+    }
+
+    @Test
+    public void onlyChanges_areReported() throws Exception {
+        pad.setSectors(8);
+        for (int i = 0; i < 100; i++) {
+            move(60 + i % 30, 90 + i % 10);
+        }
+        move(0, 0);
+        assertEquals(2, reported.size());
+        assertEquals(2, (int) reported.get(0));
+        assertEquals(DirectionalPad.CENTER, (int) reported.get(1));
+    }
+
+    @Test
+    public void wrapAround_keepsTheSector() throws Exception {
+        pad.setSectors(4);
+        pad.setHysteresis(5);
+        assertEquals(0, move(80, 5));
+        assertEquals(0, move(80, -5));
+        assertEquals(0, move(80, -48));
+        assertEquals(3, move(80, -52));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewSectors_throws() throws Exception {
+        pad.setSectors(1);
+    }
+
+    @Test
+    public void clampSectors_keepsSettingsInRange() throws Exception {
+        assertEquals(0, DirectionalPad.clampSectors(0));
+        assertEquals(0, DirectionalPad.clampSectors(-4));
+        assertEquals(2, DirectionalPad.clampSectors(1));
+        assertEquals(8, DirectionalPad.clampSectors(8));
+        assertEquals(DirectionalPad.MAX_SECTORS, DirectionalPad.clampSectors(1000));
+
+        pad.setSectors(DirectionalPad.clampSectors(1)); //doesn't throw
+        assertEquals(2, pad.getSectors());
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link InputPipeline} and {@link RawSampleQueue}
+ */
+public class InputPipelineTest {
+
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+    private static final int ACTION_CANCEL = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InputPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Waits until the outputs of the sample with the given event time are in the snapshot
+     */
+    private static void awaitOutputs(InputPipeline pipeline, long eventTime, JoystickState out)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        pipeline.readSnapshot(out);
+        while (out.getEventTime() != eventTime) {
+            assertTrue("worker did not catch up", System.nanoTime() < deadline);
+            Thread.sleep(1);
+            pipeline.readSnapshot(out);
+        }
+    }
+
+    @Test
+    public void queue_dropsWhenFull() throws Exception {
+        RawSampleQueue queue = new RawSampleQueue(2);
+        assertTrue(queue.offer(ACTION_DOWN, 1, 1, 1, 0));
+        assertTrue(queue.offer(ACTION_MOVE, 2, 2, 2, 0));
+        assertFalse(queue.offer(ACTION_MOVE, 3, 3, 3, 0));
+        assertEquals(1, queue.getDroppedCount());
+
+        final long[] times = new long[2];
+        int drained = queue.drain(new RawSampleQueue.Consumer() {
+            private int n;
+
+            @Override
+            public void onRawSample(int action, float rawX, float rawY, long eventTime, int buttons) {
+                times[n++] = eventTime;
+            }
+        }, 10);
+        assertEquals(2, drained);
+        assertArrayEquals(new long[]{1, 2}, times);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void worker_matchesSynchronousProcessing() throws Exception {
+        WaitStrategy[] strategies = {new ParkingWaitStrategy(), new YieldingWaitStrategy(),
+                new BusySpinWaitStrategy()};
+        for (WaitStrategy strategy : strategies) {
+            pipeline = new InputPipeline(new JoystickKernel(), 64, strategy);
+            pipeline.setAutoRecenter(false);
+            pipeline.start();
+            pipeline.offerGeometry(200, 20, 0);
+            pipeline.offer(ACTION_DOWN, 120, 100, 10, 0);
+            pipeline.offer(ACTION_MOVE, 160, 40, 14, 1);
+            pipeline.offer(ACTION_UP, 160, 40, 18, 0);
+            JoystickState actual = new JoystickState();
+            awaitOutputs(pipeline, 18, actual);
+            assertEquals(4, pipeline.getProcessedCount());
+
+            JoystickKernel kernel = new JoystickKernel();
+            kernel.setGeometry(200, 20);
+            JoystickState expected = new JoystickState();
+            kernel.process(160, 40, 14, expected);
+
+            assertEquals(expected.getPercentageX(), actual.getPercentageX());
+            assertEquals(expected.getPercentageY(), actual.getPercentageY());
+            assertEquals(0, actual.getButtons());
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void stages_runOnWorkerAfterEveryBatch() throws Exception {
+        final CountDownLatch published = new CountDownLatch(1);
+        final Thread[] stageThread = new Thread[1];
+        final JoystickState seen = new JoystickState();
+
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.addStage(new OutputPublisher.Listener() {
+            @Override
+            public void onPublish(JoystickState state, long frameTimeNanos) {
+                stageThread[0] = Thread.currentThread();
+                seen.set(state);
+                if (state.getEventTime() == 30) {
+                    published.countDown();
+                }
+            }
+        });
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+        pipeline.offer(ACTION_DOWN, 150, 100, 20, 0);
+        pipeline.offer(ACTION_UP, 150, 100, 30, 0);
+
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), stageThread[0]);
+        assertEquals(0, seen.getPercentageX()); //recentered when lifted
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void cancel_recentersStaleAndContinuesTheSequence() throws Exception {
+        AtomicLong sequence = new AtomicLong(41); //numbered up to 41 before the pipeline
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.setAutoRecenter(false);
+        pipeline.setSequence(sequence);
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+        pipeline.offer(ACTION_DOWN, 150, 100, 10, 1);
+        JoystickState actual = new JoystickState();
+        awaitOutputs(pipeline, 10, actual);
+        assertEquals(43, actual.getSequence());
+        assertFalse(actual.isStale());
+
+        pipeline.offer(ACTION_CANCEL, 150, 100, 14, 1);
+        awaitOutputs(pipeline, 14, actual);
+        assertEquals(44, actual.getSequence());
+        assertTrue(actual.isStale()); //recentered even without autoRecenter
+        assertEquals(0, actual.getPercentageX());
+        assertEquals(0, actual.getButtons());
+        assertEquals(44, sequence.get());
+    }
+
+    /**
+     * Stage that sleeps like a blocking send and notes when it is entered and left
+     */
+    private static final class SlowStage implements OutputPublisher.Listener {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile boolean done;
+        volatile boolean overlapped;
+        private final SlowStage before;
+
+        SlowStage(SlowStage before) {
+            this.before = before;
+        }
+
+        @Override
+        public void onPublish(JoystickState state, long frameTimeNanos) {
+            if (before != null && !before.done) {
+                overlapped = true;
+            }
+            entered.countDown();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done = true;
+        }
+    }
+
+    @Test
+    public void close_doesNotWaitForTheWorker() throws Exception {
+        SlowStage stage = new SlowStage(null);
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.addStage(stage);
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+
+        assertTrue(stage.entered.await(5, TimeUnit.SECONDS));
+        pipeline.close();
+        assertFalse(pipeline.isTerminated()); //still in the stage
+
+        assertTrue(pipeline.awaitTermination(5000));
+        assertTrue(stage.done);
+        assertEquals(1, pipeline.getBatchCount());
+    }
+
+    @Test
+    public void replacingPipeline_waitsForThePreviousWorker() throws Exception {
+        SlowStage first = new SlowStage(null);
+        InputPipeline previous = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        previous.addStage(first);
+        previous.start();
+        previous.offerGeometry(200, 20, 0);
+        assertTrue(first.entered.await(5, TimeUnit.SECONDS));
+        previous.close();
+
+        SlowStage second = new SlowStage(first);
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.addStage(second);
+        pipeline.setPrevious(previous);
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+
+        assertTrue(second.entered.await(5, TimeUnit.SECONDS));
+        assertFalse(second.overlapped);
+        assertTrue(previous.isTerminated());
+    }
+
+    @Test
+    public void sampleListener_getsEverySampleAfterTheFilter() throws Exception {
+        final ArrayList<Float> xs = new ArrayList<>();
+        final ArrayList<Integer> actions = new ArrayList<>();
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.setTouchFilter(new MedianFilter(3));
+        pipeline.setSampleListener(new InputPipeline.SampleListener() {
+            @Override
+            public void onSample(int action, float x, float y, JoystickState state) {
+                actions.add(action);
+                xs.add(x);
+            }
+        });
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+        pipeline.offer(ACTION_DOWN, 120, 100, 10, 0);
+        pipeline.offer(ACTION_MOVE, 180, 100, 14, 0); //median of 120 and 180
+        JoystickState actual = new JoystickState();
+        awaitOutputs(pipeline, 14, actual);
+        pipeline.close();
+        assertTrue(pipeline.awaitTermination(5000));
+
+        assertEquals(3, actions.size());
+        assertEquals(SessionRecorder.ACTION_GEOMETRY, (int) actions.get(0));
+        assertEquals(200, xs.get(0), 0);
+        assertEquals(120, xs.get(1), 0);
+        assertEquals(150, xs.get(2), 0);
+    }
+
+    @Test
+    public void recordedSession_replaysToTheSameOutputs() throws Exception {
+        File file = folder.newFile("pipeline.bin");
+        final SessionRecorder recorder = new SessionRecorder(file, 16);
+        pipeline = new InputPipeline(new JoystickKernel(), 64, new ParkingWaitStrategy());
+        pipeline.setTouchFilter(new MedianFilter(3));
+        pipeline.setSampleListener(new InputPipeline.SampleListener() {
+            @Override
+            public void onSample(int action, float x, float y, JoystickState state) {
+                recorder.record(action, x, y, state);
+            }
+        });
+        pipeline.start();
+        pipeline.offerGeometry(200, 20, 0);
+        pipeline.offer(ACTION_DOWN, 120, 100, 10, 0);
+        pipeline.offer(ACTION_MOVE, 180, 60, 14, 0);
+        pipeline.offer(ACTION_MOVE, 250, -40, 18, 0);
+        pipeline.offer(ACTION_UP, 250, -40, 22, 0);
+        awaitOutputs(pipeline, 22, new JoystickState());
+        pipeline.close();
+        assertTrue(pipeline.awaitTermination(5000));
+        recorder.close();
+
+        SessionReplayer replayer = new SessionReplayer(file);
+        assertEquals(5, replayer.getRecordCount());
+        assertEquals(0, replayer.replay(new JoystickKernel(), null, false));
+        replayer.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void configuring_afterStartFails() throws Exception {
+        pipeline = new InputPipeline(new JoystickKernel(), 8, new ParkingWaitStrategy());
+        pipeline.start();
+        pipeline.setAutoRecenter(false);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link JoystickKernel}
+ */
+public class JoystickKernelTest {
+
+    private JoystickKernel kernel;
+    private JoystickState state;
+
+    @Before
+    public void setUp() throws Exception {
+        kernel = new JoystickKernel();
+        kernel.setGeometry(210, 10); //center 105, radius 100
+        state = new JoystickState();
+    }
+
+    @Test
+    public void recenter_isZero() throws Exception {
+        kernel.recenter(0L, state);
+
+        assertEquals(105, state.getPosX());
+        assertEquals(105, state.getPosY());
+        assertEquals(0, state.getRelativePosX());
+        assertEquals(0, state.getRelativePosY());
+        assertEquals(0, state.getPercentageX());
+        assertEquals(0, state.getPercentageY());
+        assertEquals(0, state.getStrength(), 0);
+        assertEquals(0, state.getAngle(), 0);
+        assertEquals(0L, state.getQuantized());
+
+        JoystickState processed = new JoystickState();
+        kernel.process(105, 105, 0L, processed); //the same as a touch right at the center
+        assertEquals(processed.getQuantized(), state.getQuantized());
+    }
+
+    @Test
+    public void insideRadius_isLinear() throws Exception {
+        kernel.process(155.7f, 55f, 0L, state); //50 right, 50 up
+
+        assertEquals(155, state.getPosX());
+        assertEquals(50, state.getRelativePosX());
+        assertEquals(50, state.getRelativePosY());
+        assertEquals(50, state.getPercentageX());
+        assertEquals(50, state.getPercentageY());
+        assertEquals(70.71f, state.getStrength(), 0.01f);
+        assertEquals(Math.PI / 4 * 100, state.getAngle(), 0.01f);
+    }
+
+    @Test
+    public void outsideRadius_isClamped() throws Exception {
+        kernel.process(405f, 105f, 0L, state); //300 right
+
+        assertEquals(205, state.getPosX());
+        assertEquals(105, state.getPosY());
+        assertEquals(100, state.getPercentageX());
+        assertEquals(0, state.getPercentageY());
+        assertEquals(100, state.getStrength(), 0);
+        assertEquals(300, state.getDistanceFromCenter(), 0);
+    }
+
+    @Test
+    public void noGeometry_outputsZero() throws Exception {
+        JoystickKernel unsized = new JoystickKernel();
+        unsized.process(40f, 40f, 0L, state);
+
+        assertEquals(0, state.getPercentageX());
+        assertEquals(0, state.getStrength(), 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link JoystickSnapshot}
+ */
+public class JoystickSnapshotTest {
+
+    @Test
+    public void read_returnsWrittenValues() throws Exception {
+        JoystickKernel kernel = new JoystickKernel();
+        kernel.setGeometry(210, 10);
+        JoystickState written = new JoystickState();
+        kernel.process(155, 55, 0L, written);
+
+        JoystickSnapshot snapshot = new JoystickSnapshot();
+        int before = snapshot.getVersion();
+        snapshot.write(written);
+
+        JoystickState read = new JoystickState();
+        int version = snapshot.read(read);
+        assertNotEquals(before, version);
+        assertEquals(version, snapshot.getVersion());
+        assertEquals(written.getPercentageX(), read.getPercentageX());
+        assertEquals(written.getPercentageY(), read.getPercentageY());
+        assertEquals(written.getAngle(), read.getAngle(), 0);
+    }
+
+    @Test
+    public void concurrentReads_areNeverTorn() throws Exception {
+        final JoystickSnapshot snapshot = new JoystickSnapshot();
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                JoystickState state = new JoystickState();
+                for (int i = 0; i < 2000000; i++) {
+                    //Every value of one sample is the same so a torn read is easy to spot
+                    state.posX = state.posY = state.relativePosX = state.relativePosY = i;
+                    state.percentageX = state.percentageY = i;
+                    state.distanceFromCenter = state.strength = state.angle = i;
+                    snapshot.write(state);
+                }
+                done.set(true);
+            }
+        });
+        writer.start();
+
+        JoystickState read = new JoystickState();
+        while (!done.get()) {
+            snapshot.read(read);
+            int value = read.getPosX();
+            assertEquals(value, read.getPosY());
+            assertEquals(value, read.getRelativePosX());
+            assertEquals(value, read.getRelativePosY());
+            assertEquals(value, read.getPercentageX());
+            assertEquals(value, read.getPercentageY());
+            assertEquals(value, read.getStrength(), 0);
+            assertEquals(value, read.getAngle(), 0);
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MotionPredictor}
+ */
+public class MotionPredictorTest {
+
+    private final MotionPredictor predictor = new MotionPredictor();
+
+    @Test
+    public void firstSample_isNotExtrapolated() throws Exception {
+        predictor.setHorizon(20);
+        predictor.update(50, 60, 100);
+        assertEquals(50, predictor.getPredictedX(), 0.001);
+        assertEquals(60, predictor.getPredictedY(), 0.001);
+    }
+
+    @Test
+    public void constantVelocity_isPredictedAhead() throws Exception {
+        predictor.setHorizon(16);
+        for (int t = 0; t <= 200; t += 4) {
+            predictor.update(t * 0.5f, 100 - t * 0.25f, t); //0.5 and -0.25 px/ms
+        }
+        assertEquals(0.5f, predictor.getVelocityX(), 0.01);
+        assertEquals(-0.25f, predictor.getVelocityY(), 0.01);
+        assertEquals(100 + 8, predictor.getPredictedX(), 0.5);
+        assertEquals(50 - 4, predictor.getPredictedY(), 0.5);
+    }
+
+    @Test
+    public void stillTouch_staysPut() throws Exception {
+        predictor.setHorizon(30);
+        for (int t = 0; t <= 100; t += 8) {
+            predictor.update(70, 30, t);
+        }
+        assertEquals(70, predictor.getPredictedX(), 0.001);
+        assertEquals(30, predictor.getPredictedY(), 0.001);
+    }
+
+    @Test
+    public void reset_forgetsVelocity() throws Exception {
+        predictor.setHorizon(10);
+        predictor.update(0, 0, 0);
+        predictor.update(10, 0, 10);
+        predictor.reset();
+        predictor.update(100, 100, 50);
+        assertEquals(100, predictor.getPredictedX(), 0.001);
+        assertEquals(0, predictor.getVelocityX(), 0);
+    }
+
+    @Test
+    public void prediction_isClampedByKernel() throws Exception {
+        JoystickKernel kernel = new JoystickKernel();
+        kernel.setGeometry(200, 20);
+        JoystickState state = new JoystickState();
+
+        predictor.setHorizon(50);
+        for (int t = 0; t <= 100; t += 5) {
+            predictor.update(100 + t * 0.8f, 100, t); //predicted well past the edge
+        }
+        kernel.process(predictor.getPredictedX(), predictor.getPredictedY(), 100, state);
+        assertEquals(100, state.getPercentageX());
+        assertEquals(190, state.getPosX());
+    }
+}
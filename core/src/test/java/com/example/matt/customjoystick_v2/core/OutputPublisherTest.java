@@ -0,0 +1,83 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link OutputPublisher}
+ */
+public class OutputPublisherTest {
+
+    private static final long MS = 1000000L;
+
+    private ManualFrameClock clock;
+    private OutputPublisher publisher;
+    private int publishCount;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualFrameClock();
+        publisher = new OutputPublisher(clock, new JoystickState(), 20);
+        publisher.setListener(new OutputPublisher.Listener() {
+            @Override
+            public void onPublish(JoystickState state, long frameTimeNanos) {
+                publishCount++;
+            }
+        });
+    }
+
+    @Test
+    public void idle_postsNothing() throws Exception {
+        publisher.start();
+
+        assertFalse(clock.hasPending());
+    }
+
+    @Test
+    public void change_isPublishedOnNextFrame() throws Exception {
+        publisher.start();
+        publisher.markChanged();
+        clock.frame(16 * MS);
+
+        assertEquals(1, publishCount);
+        assertFalse(clock.hasPending());
+    }
+
+    @Test
+    public void changes_areLimitedToRefreshRate() throws Exception {
+        publisher.start();
+        publisher.markChanged();
+        clock.frame(0);
+        publisher.markChanged();
+        clock.frame(16 * MS); //too soon
+
+        assertEquals(1, publishCount);
+        assertTrue(clock.hasPending());
+
+        clock.frame(32 * MS);
+        assertEquals(2, publishCount);
+    }
+
+    @Test
+    public void stop_removesPendingFrame() throws Exception {
+        publisher.start();
+        publisher.markChanged();
+        publisher.stop();
+
+        assertFalse(clock.hasPending());
+        clock.frame(16 * MS);
+        assertEquals(0, publishCount);
+    }
+
+    @Test
+    public void changesWhileStopped_arePublishedOnStart() throws Exception {
+        publisher.markChanged();
+        assertFalse(clock.hasPending());
+
+        publisher.start();
+        clock.frame(16 * MS);
+        assertEquals(1, publishCount);
+    }
+}
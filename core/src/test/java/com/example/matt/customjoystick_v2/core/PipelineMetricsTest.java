@@ -0,0 +1,86 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PipelineMetrics} and {@link LatencyHistogram}
+ */
+public class PipelineMetricsTest {
+
+    @Test
+    public void histogram_bucketsStayWithinPrecision() throws Exception {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestOf(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " in bucket up to " + highest, highest >= value);
+            assertTrue(value + " in bucket up to " + highest, highest <= value + value / 8);
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogram_percentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getMean(), 0.001);
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000, histogram.getPercentile(0.5), 50000 / 8);
+        assertEquals(99000, histogram.getPercentile(0.99), 99000 / 8);
+        assertEquals(100000, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void histogram_copyAndReset() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        LatencyHistogram copy = new LatencyHistogram();
+        histogram.copyTo(copy);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(2, copy.getCount());
+        assertEquals(0, copy.getPercentile(0.5));
+        assertEquals(7, copy.getMax());
+    }
+
+    @Test
+    public void publish_countsCoalescedSamplesAndLatency() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onSample();
+        metrics.onSample();
+        metrics.onSample();
+        metrics.onDropped();
+        metrics.onPublish(10, 14 * 1000000L);
+        metrics.onSample();
+        metrics.onPublish(20, 21 * 1000000L);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot(new PipelineMetrics.Snapshot());
+        assertEquals(4, snapshot.getSamples());
+        assertEquals(1, snapshot.getDropped());
+        assertEquals(2, snapshot.getCoalesced());
+        assertEquals(2, snapshot.getPublishes());
+        assertEquals(4000000, snapshot.getInputToPublish().getMax());
+        assertEquals(0, snapshot.getSamplesPerSecond(), 0); //no previous snapshot
+    }
+
+    @Test
+    public void snapshot_ratesSincePreviousSnapshot() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        PipelineMetrics.Snapshot snapshot = new PipelineMetrics.Snapshot();
+        metrics.snapshot(snapshot);
+        for (int i = 0; i < 100; i++) {
+            metrics.onSample();
+        }
+        Thread.sleep(20);
+        metrics.snapshot(snapshot);
+
+        assertTrue(snapshot.getSamplesPerSecond() > 0);
+        assertTrue(snapshot.getSamplesPerSecond() <= 100 / 0.02);
+        assertTrue(snapshot.toString().contains("samples 100\n"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link QuantizedOutputs} and the quantized outputs of {@link JoystickKernel}
+ */
+public class QuantizedOutputsTest {
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+
+    @Test
+    public void pack_roundTripsSignedAndUnsignedValues() throws Exception {
+        long packed = QuantizedOutputs.pack(-32767, 12345, 65535, -32768);
+        assertEquals(-32767, QuantizedOutputs.getAxisX(packed));
+        assertEquals(12345, QuantizedOutputs.getAxisY(packed));
+        assertEquals(65535, QuantizedOutputs.getStrength(packed));
+        assertEquals(-32768, QuantizedOutputs.getAngle(packed));
+        assertEquals(-Math.PI, QuantizedOutputs.toRadians(-32768), 1e-9);
+    }
+
+    @Test
+    public void kernel_quantizesFullDeflection() throws Exception {
+        kernel.setGeometry(210, 10); //center 105, radius 100
+
+        kernel.process(105, 5, 0, state); //100% up
+        long q = state.getQuantized();
+        assertEquals(0, QuantizedOutputs.getAxisX(q));
+        assertEquals(32767, QuantizedOutputs.getAxisY(q));
+        assertEquals(65535, QuantizedOutputs.getStrength(q));
+        assertEquals(16384, QuantizedOutputs.getAngle(q));
+
+        kernel.process(0, 105, 0, state); //beyond the left edge
+        q = state.getQuantized();
+        assertEquals(-32767, QuantizedOutputs.getAxisX(q));
+        assertEquals(-32768, QuantizedOutputs.getAngle(q)); //a half turn
+    }
+
+    @Test
+    public void kernel_axesAreSymmetricAndMatchPercentages() throws Exception {
+        kernel.setGeometry(210, 10);
+        for (int offset = 1; offset <= 85; offset += 7) { //inside the radius; clamping truncates
+            kernel.process(105 + offset, 105 - offset / 2, 0, state);
+            int right = QuantizedOutputs.getAxisX(state.getQuantized());
+            assertEquals(state.getPercentageX(), right * 100f / 32767, 1f);
+
+            kernel.process(105 - offset, 105 - offset / 2, 0, state);
+            assertEquals(-right, QuantizedOutputs.getAxisX(state.getQuantized()));
+        }
+    }
+
+    @Test
+    public void kernel_appliesResponseCurve() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+        curve.setShape(ResponseCurve.Shape.SQUARED);
+        kernel.setResponseCurve(curve);
+        kernel.setGeometry(210, 10);
+
+        kernel.process(155, 105, 0, state); //50% right, squared to 25%
+        long q = state.getQuantized();
+        assertEquals(32767 / 4, QuantizedOutputs.getAxisX(q), 2);
+        assertEquals(65535 / 4, QuantizedOutputs.getStrength(q), 2);
+    }
+
+    @Test
+    public void kernel_withoutGeometryOutputsZero() throws Exception {
+        kernel.process(50, 50, 0, state);
+        assertEquals(0, state.getQuantized());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link RecenterAnimator}
+ */
+public class RecenterAnimatorTest {
+
+    private static final long MS = 1000000L;
+
+    private ManualFrameClock clock;
+    private JoystickKernel kernel;
+    private JoystickState state;
+    private RecenterAnimator animator;
+
+    private int steps;
+    private boolean finished;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualFrameClock();
+        kernel = new JoystickKernel();
+        kernel.setGeometry(210, 10); //center 105, radius 100
+        state = new JoystickState();
+        animator = new RecenterAnimator(clock, kernel, state, new RecenterAnimator.Listener() {
+            @Override
+            public void onRecenterStep(JoystickState state, boolean done) {
+                steps++;
+                finished = done;
+            }
+        });
+        animator.setDelay(10);
+        animator.setDuration(100);
+        animator.setEasing(RecenterAnimator.Easing.LINEAR);
+
+        kernel.process(205, 105, 0L, state); //all the way right
+    }
+
+    @Test
+    public void waitsForDelay() throws Exception {
+        animator.start(0);
+        clock.frame(5 * MS);
+
+        assertEquals(0, steps);
+        assertEquals(100, state.getPercentageX());
+        assertTrue(clock.hasPending());
+    }
+
+    @Test
+    public void rampsDownToCenter() throws Exception {
+        animator.start(0);
+        clock.frame(60 * MS); //halfway through the move
+
+        assertEquals(1, steps);
+        assertFalse(finished);
+        assertEquals(50, state.getPercentageX());
+        assertEquals(60L, state.getEventTime());
+
+        clock.frame(110 * MS);
+        assertTrue(finished);
+        assertFalse(animator.isRunning());
+        assertFalse(clock.hasPending());
+        assertEquals(0, state.getPercentageX());
+        assertEquals(105, state.getPosX());
+    }
+
+    @Test
+    public void startFrom_rampsDownFromGivenPosition() throws Exception {
+        animator.start(0, 155, 105); //released halfway right, while the outputs were ahead of it
+        clock.frame(60 * MS);
+
+        assertEquals(25, state.getPercentageX());
+    }
+
+    @Test
+    public void cancel_stopsWhereItIs() throws Exception {
+        animator.start(0);
+        clock.frame(60 * MS);
+        animator.cancel();
+
+        assertFalse(clock.hasPending());
+        assertEquals(50, state.getPercentageX());
+    }
+
+    @Test
+    public void noDelayOrDuration_recentersRightAway() throws Exception {
+        animator.setDelay(0);
+        animator.setDuration(0);
+        animator.start(0);
+
+        assertTrue(finished);
+        assertFalse(clock.hasPending());
+        assertEquals(0, state.getPercentageX());
+    }
+}
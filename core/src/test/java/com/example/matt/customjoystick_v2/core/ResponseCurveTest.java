@@ -0,0 +1,86 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ResponseCurve}
+ */
+public class ResponseCurveTest {
+
+    private static final float DELTA = 0.005f;
+
+    @Test
+    public void linear_isIdentity() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+
+        assertEquals(0f, curve.apply(0f), DELTA);
+        assertEquals(0.37f, curve.apply(0.37f), DELTA);
+        assertEquals(1f, curve.apply(1f), DELTA);
+    }
+
+    @Test
+    public void thresholds_applyGiveAndJump() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+        curve.setThresholds(10, 30);
+
+        assertEquals(0f, curve.apply(0.05f), 0);
+        assertEquals(0f, curve.apply(0.10f), 0);
+        assertEquals(0.30f, curve.apply(0.1001f), DELTA);
+        assertEquals(0.65f, curve.apply(0.55f), DELTA); //halfway past the give is halfway past the jump
+        assertEquals(1f, curve.apply(1f), DELTA);
+    }
+
+    @Test
+    public void shapes_matchTheirFormulas() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+
+        curve.setShape(ResponseCurve.Shape.SQUARED);
+        assertEquals(0.25f, curve.apply(0.5f), DELTA);
+
+        curve.setShape(ResponseCurve.Shape.CUBIC);
+        assertEquals(0.125f, curve.apply(0.5f), DELTA);
+
+        curve.setExpo(0.5f);
+        curve.setShape(ResponseCurve.Shape.EXPO);
+        assertEquals(0.5f * 0.125f + 0.5f * 0.5f, curve.apply(0.5f), DELTA);
+    }
+
+    @Test
+    public void customPoints_areInterpolated() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+        curve.setPoints(new float[] {0f, 0.5f, 1f}, new float[] {0f, 0.2f, 1f});
+
+        assertEquals(ResponseCurve.Shape.CUSTOM, curve.getShape());
+        assertEquals(0.1f, curve.apply(0.25f), DELTA);
+        assertEquals(0.6f, curve.apply(0.75f), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void customPoints_mustIncrease() throws Exception {
+        new ResponseCurve().setPoints(new float[] {0.5f, 0.2f}, new float[] {0f, 1f});
+    }
+
+    @Test
+    public void kernel_keepsDirection() throws Exception {
+        ResponseCurve curve = new ResponseCurve();
+        curve.setShape(ResponseCurve.Shape.SQUARED);
+
+        JoystickKernel kernel = new JoystickKernel();
+        kernel.setGeometry(210, 10); //center 105, radius 100
+        kernel.setResponseCurve(curve);
+
+        JoystickState state = new JoystickState();
+        kernel.process(165, 25, 0L, state); //60 right, 80 up; pushed all the way
+
+        assertEquals(100, state.getStrength(), DELTA);
+        assertEquals(60, state.getPercentageX());
+        assertEquals(80, state.getPercentageY());
+
+        kernel.process(135, 65, 0L, state); //30 right, 40 up; pushed halfway
+        assertEquals(25, state.getStrength(), 0.1f);
+        assertEquals(15, state.getPercentageX());
+        assertEquals(20, state.getPercentageY());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SampleRingBuffer}
+ */
+public class SampleRingBufferTest {
+
+    private final JoystickState sample = new JoystickState();
+    private final ArrayList<Long> times = new ArrayList<>();
+
+    private final SampleRingBuffer.Consumer recorder = new SampleRingBuffer.Consumer() {
+        @Override
+        public void onSample(JoystickState sample) {
+            times.add(sample.getEventTime());
+        }
+    };
+
+    private void offer(SampleRingBuffer buffer, long eventTime) {
+        sample.eventTime = eventTime;
+        buffer.offer(sample);
+    }
+
+    @Test
+    public void capacity_isRoundedToPowerOfTwo() throws Exception {
+        assertEquals(1, new SampleRingBuffer(1).getCapacity());
+        assertEquals(8, new SampleRingBuffer(5).getCapacity());
+        assertEquals(64, new SampleRingBuffer(64).getCapacity());
+    }
+
+    @Test
+    public void drain_isOldestFirst() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        offer(buffer, 1);
+        offer(buffer, 2);
+        offer(buffer, 3);
+
+        assertEquals(3, buffer.drain(recorder));
+        assertEquals(3, times.size());
+        assertEquals(1L, (long) times.get(0));
+        assertEquals(3L, (long) times.get(2));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void full_dropsNewSamples() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        offer(buffer, 1);
+        offer(buffer, 2);
+        offer(buffer, 3);
+
+        assertEquals(1, buffer.getDroppedCount());
+        buffer.drain(recorder);
+        assertEquals(2L, (long) times.get(1));
+    }
+
+    @Test
+    public void drain_honorsLimitAndWrapsAround() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        for (long t = 0; t < 10; t++) {
+            offer(buffer, t);
+            if (t % 2 == 1) {
+                assertEquals(1, buffer.drain(recorder, 1));
+            }
+        }
+
+        buffer.drain(recorder);
+        assertEquals(10, times.size());
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(i, (long) times.get(i));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SessionRecorder} and {@link SessionReplayer}
+ */
+public class SessionRecorderTest {
+
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+
+    private File recordSession() throws IOException {
+        File file = folder.newFile("session.bin");
+        SessionRecorder recorder = new SessionRecorder(file, 16);
+        kernel.setGeometry(200, 20);
+        kernel.recenter(0, state);
+        recorder.recordGeometry(200, 20, state);
+
+        record(recorder, ACTION_DOWN, 120, 100, 10);
+        record(recorder, ACTION_MOVE, 150, 60, 14);
+        record(recorder, ACTION_MOVE, 250, -40, 18); //outside the radius
+        recorder.record(ACTION_UP, 250, -40, state);
+        record(recorder, SessionRecorder.ACTION_RECENTER, 100, 100, 30);
+        recorder.close();
+        return file;
+    }
+
+    private void record(SessionRecorder recorder, int action, float x, float y, long eventTime) {
+        kernel.process(x, y, eventTime, state);
+        recorder.record(action, x, y, state);
+    }
+
+    @Test
+    public void replay_reproducesRecordedOutputs() throws Exception {
+        SessionReplayer replayer = new SessionReplayer(recordSession());
+        assertEquals(6, replayer.getRecordCount());
+
+        final ArrayList<Integer> actions = new ArrayList<>();
+        int mismatches = replayer.replay(new JoystickKernel(), new SessionReplayer.Listener() {
+            @Override
+            public void onReplay(int action, JoystickState replayed, JoystickState recorded) {
+                actions.add(action);
+                assertEquals(recorded.getEventTime(), replayed.getEventTime());
+                assertEquals(recorded.getPercentageX(), replayed.getPercentageX());
+                assertEquals(recorded.getPercentageY(), replayed.getPercentageY());
+            }
+        }, false);
+        replayer.close();
+
+        assertEquals(0, mismatches);
+        assertEquals(SessionRecorder.ACTION_GEOMETRY, (int) actions.get(0));
+        assertEquals(ACTION_UP, (int) actions.get(4));
+    }
+
+    @Test
+    public void replay_countsChangedOutputs() throws Exception {
+        JoystickKernel changed = new JoystickKernel();
+        ResponseCurve curve = new ResponseCurve();
+        curve.setShape(ResponseCurve.Shape.CUBIC);
+        changed.setResponseCurve(curve);
+
+        SessionReplayer replayer = new SessionReplayer(recordSession());
+        int mismatches = replayer.replay(changed, null, false);
+        replayer.close();
+
+        assertEquals(2, mismatches); //the first move and the move left in place by lifting the finger
+    }
+
+    @Test
+    public void replay_inRealTimeKeepsRecordedPace() throws Exception {
+        SessionReplayer replayer = new SessionReplayer(recordSession());
+        long start = System.nanoTime();
+        replayer.replay(new JoystickKernel(), null, true);
+        replayer.close();
+
+        assertTrue(System.nanoTime() - start >= 30 * 1000000L); //recording spans 30 ms
+    }
+
+    @Test
+    public void record_dropsWhenFull() throws Exception {
+        File file = folder.newFile("full.bin");
+        SessionRecorder recorder = new SessionRecorder(file, 2);
+        assertTrue(recorder.record(ACTION_DOWN, 0, 0, state));
+        assertTrue(recorder.record(ACTION_MOVE, 0, 0, state));
+        assertFalse(recorder.record(ACTION_MOVE, 0, 0, state));
+        assertEquals(2, recorder.getRecordCount());
+        assertEquals(1, recorder.getDroppedCount());
+        recorder.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws Exception {
+        File file = folder.newFile("other.bin");
+        RandomAccessFile other = new RandomAccessFile(file, "rw");
+        other.writeLong(42);
+        other.close();
+        new SessionReplayer(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsTruncatedRecordings() throws Exception {
+        File file = recordSession();
+        RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+        truncated.setLength(SessionRecorder.HEADER_SIZE + 2 * SessionRecorder.RECORD_SIZE);
+        truncated.close();
+        new SessionReplayer(file);
+    }
+}
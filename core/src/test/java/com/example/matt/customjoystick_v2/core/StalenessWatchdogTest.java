@@ -0,0 +1,113 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link StalenessWatchdog}
+ */
+public class StalenessWatchdogTest {
+
+    private static final long MS = 1000000L;
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+    private final JoystickState read = new JoystickState();
+    private final StalenessWatchdog watchdog = new StalenessWatchdog(100);
+
+    public StalenessWatchdogTest() {
+        kernel.setGeometry(210, 10); //center 105, radius 100
+    }
+
+    @Test
+    public void pushedOutputs_goStaleAfterTheDeadline() throws Exception {
+        kernel.process(155, 55, 10, state); //50% right, 50% up
+        state.setButtons(1);
+        state.setSequence(7);
+        watchdog.onSample(state, 1000 * MS);
+
+        read.set(state);
+        assertFalse(watchdog.apply(read, 1100 * MS));
+        assertEquals(50, read.getPercentageX());
+
+        assertTrue(watchdog.isStale(1101 * MS));
+        assertTrue(watchdog.apply(read, 1101 * MS));
+        assertTrue(read.isStale());
+        assertEquals(0, read.getPercentageX());
+        assertEquals(0, read.getPercentageY());
+        assertEquals(0, read.getStrength(), 0);
+        assertEquals(0, read.getButtons());
+        assertEquals(0, read.getQuantized());
+        assertEquals(105, read.getPosX()); //back at the center
+        assertEquals(105, read.getPosY());
+        assertEquals(10, read.getEventTime()); //still says which sample it was
+        assertEquals(7, read.getSequence());
+    }
+
+    @Test
+    public void heartbeat_keepsRestingFingerFresh() throws Exception {
+        kernel.process(155, 105, 10, state);
+        watchdog.onSample(state, 0);
+        watchdog.heartbeat(90 * MS);
+        watchdog.heartbeat(180 * MS);
+        assertFalse(watchdog.isStale(250 * MS));
+        assertTrue(watchdog.isStale(281 * MS));
+
+        kernel.process(160, 105, 300, state); //a new sample makes it fresh again
+        watchdog.onSample(state, 300 * MS);
+        assertFalse(watchdog.isStale(310 * MS));
+    }
+
+    @Test
+    public void releasedStick_staysFreshAfterTheDeadline() throws Exception {
+        kernel.process(105, 35, 10, state); //a throttle pushed 70% up
+        watchdog.onSample(state, 0);
+        watchdog.onRelease(20 * MS); //let go of without recentering
+
+        assertFalse(watchdog.isStale(10000 * MS));
+        read.set(state);
+        assertFalse(watchdog.apply(read, 10000 * MS));
+        assertEquals(70, read.getPercentageY());
+
+        kernel.process(105, 45, 20000, state); //touched again; a hang from here on is stale
+        watchdog.onSample(state, 20000 * MS);
+        assertTrue(watchdog.isStale(20101 * MS));
+    }
+
+    @Test
+    public void neutralOutputs_neverGoStale() throws Exception {
+        kernel.recenter(10, state);
+        watchdog.onSample(state, 0);
+        assertFalse(watchdog.isStale(10000 * MS));
+
+        read.set(state);
+        assertFalse(watchdog.apply(read, 10000 * MS));
+    }
+
+    @Test
+    public void staleOutputs_stayStaleWhenApplied() throws Exception {
+        kernel.recenter(10, state);
+        state.setStale(true); //e.g. forced neutral after a cancel
+        watchdog.onSample(state, 0);
+        read.set(state);
+        assertTrue(watchdog.apply(read, 0));
+
+        kernel.process(155, 105, 20, state);
+        assertFalse(state.isStale()); //every sample is fresh
+    }
+
+    @Test
+    public void staleFlag_isSentInFrames() throws Exception {
+        kernel.process(155, 105, 10, state);
+        state.neutralize();
+        JoystickFrame frame = new JoystickFrame();
+        assertTrue(new FrameDecoder().decode(new FrameEncoder().encode(state), frame));
+        assertTrue(frame.isStale());
+        assertEquals(0, frame.getAxisX());
+
+        kernel.process(155, 105, 20, state);
+        assertTrue(new FrameDecoder().decode(new FrameEncoder().encode(state), frame));
+        assertFalse(frame.isStale());
+    }
+}
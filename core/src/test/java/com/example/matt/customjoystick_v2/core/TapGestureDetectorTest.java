@@ -0,0 +1,124 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link TapGestureDetector}
+ */
+public class TapGestureDetectorTest {
+
+    private static final long MS = 1000000L;
+
+    private ManualFrameClock clock;
+    private TapGestureDetector detector;
+    private final ArrayList<Integer> gestures = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualFrameClock();
+        detector = new TapGestureDetector(clock);
+        detector.setDoubleTapTiming(200, 50);
+        detector.setTimeouts(150, 500);
+        detector.setTouchSlop(8);
+        detector.setListener(new TapGestureDetector.Listener() {
+            @Override
+            public void onGesture(int gesture, long eventTime) {
+                gestures.add(gesture);
+            }
+        });
+    }
+
+    private void tap(long downTime, long upTime) {
+        detector.onDown(100, 100, downTime);
+        detector.onUp(upTime);
+    }
+
+    @Test
+    public void singleTap_isReportedAfterDoubleTapDelay() throws Exception {
+        tap(0, 50);
+        clock.frame(100 * MS);
+        assertTrue(gestures.isEmpty());
+
+        clock.frame(260 * MS);
+        assertEquals(1, gestures.size());
+        assertEquals(TapGestureDetector.GESTURE_SINGLE_TAP, (int) gestures.get(0));
+        assertFalse(clock.hasPending());
+    }
+
+    @Test
+    public void doubleTap_pressesButtonUntilLifted() throws Exception {
+        tap(0, 50);
+        detector.onDown(100, 100, 150);
+
+        assertEquals(TapGestureDetector.GESTURE_DOUBLE_TAP, (int) gestures.get(0));
+        assertEquals(TapGestureDetector.BUTTON_PRESS, detector.getButtons());
+
+        detector.onUp(200);
+        assertEquals(0, detector.getButtons());
+        assertEquals(1, gestures.size());
+    }
+
+    @Test
+    public void secondTapTooSoon_isNotDoubleTap() throws Exception {
+        tap(0, 50);
+        detector.onDown(100, 100, 70); //inside doubleTapError
+
+        assertEquals(TapGestureDetector.GESTURE_SINGLE_TAP, (int) gestures.get(0));
+        assertEquals(0, detector.getButtons());
+    }
+
+    @Test
+    public void tapThenDrag_isReported() throws Exception {
+        tap(0, 50);
+        detector.onDown(100, 100, 150);
+        detector.onMove(130, 100, 170);
+        detector.onUp(300);
+
+        assertEquals(3, gestures.size());
+        assertEquals(TapGestureDetector.GESTURE_TAP_DRAG_START, (int) gestures.get(1));
+        assertEquals(TapGestureDetector.GESTURE_TAP_DRAG_END, (int) gestures.get(2));
+    }
+
+    @Test
+    public void hold_isReportedOnFrame() throws Exception {
+        detector.onDown(100, 100, 0);
+        detector.onMove(102, 101, 100); //inside the slop
+        clock.frame(520 * MS);
+
+        assertEquals(TapGestureDetector.GESTURE_HOLD_START, (int) gestures.get(0));
+        assertEquals(TapGestureDetector.BUTTON_HOLD, detector.getButtons());
+
+        detector.onUp(900);
+        assertEquals(TapGestureDetector.GESTURE_HOLD_END, (int) gestures.get(1));
+        assertEquals(0, detector.getButtons());
+    }
+
+    @Test
+    public void hold_isIgnoredWhenDisabled() throws Exception {
+        detector.setHoldEnabled(false);
+        detector.onDown(100, 100, 0);
+        assertFalse(clock.hasPending()); //no hold timeout to check
+        detector.onMove(102, 101, 600);
+        detector.onUp(900);
+
+        assertTrue(gestures.isEmpty());
+        assertEquals(0, detector.getButtons());
+    }
+
+    @Test
+    public void drag_isNotAGesture() throws Exception {
+        detector.onDown(100, 100, 0);
+        detector.onMove(150, 100, 30);
+        clock.frame(600 * MS);
+        detector.onUp(700);
+        clock.frame(1000 * MS);
+
+        assertTrue(gestures.isEmpty());
+        assertFalse(clock.hasPending());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link TouchFilter} implementations
+ */
+public class TouchFilterTest {
+
+    /**
+     * Feeds a still touch with two pixels of alternating jitter and returns how far the output
+     * moves once settled
+     */
+    private static float jitter(TouchFilter filter) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < 500; i++) {
+            float noise = i % 2 == 0 ? 1 : -1;
+            filter.update(100 + noise, 50 - noise, i * 4);
+            if (i >= 400) {
+                min = Math.min(min, filter.getX());
+                max = Math.max(max, filter.getX());
+            }
+        }
+        return max - min;
+    }
+
+    @Test
+    public void firstSample_passesThrough() throws Exception {
+        TouchFilter[] filters = {new OneEuroFilter(), new ExponentialFilter(20), new MedianFilter(5)};
+        for (TouchFilter filter : filters) {
+            filter.update(12, 34, 1000);
+            assertEquals(12, filter.getX(), 0);
+            assertEquals(34, filter.getY(), 0);
+        }
+    }
+
+    @Test
+    public void copy_filtersTheSameWithoutTheSamples() throws Exception {
+        TouchFilter[] filters = {new OneEuroFilter(), new ExponentialFilter(20), new MedianFilter(5)};
+        for (TouchFilter filter : filters) {
+            filter.update(0, 0, 0);
+            filter.update(50, 50, 8);
+            TouchFilter copy = filter.copy();
+            assertNotSame(filter, copy);
+
+            copy.update(12, 34, 1000); //no samples yet, so it passes through
+            assertEquals(12, copy.getX(), 0);
+            filter.reset();
+            filter.update(12, 34, 1000);
+            filter.update(40, 60, 1008);
+            copy.update(40, 60, 1008);
+            assertEquals(filter.getX(), copy.getX(), 0);
+            assertEquals(filter.getY(), copy.getY(), 0);
+        }
+    }
+
+    @Test
+    public void oneEuro_calmsStillTouch() throws Exception {
+        assertTrue(jitter(new OneEuroFilter()) < 0.2f);
+    }
+
+    @Test
+    public void oneEuro_followsFastMove() throws Exception {
+        OneEuroFilter filter = new OneEuroFilter(1f, 0.05f, 1f);
+        for (int t = 0; t <= 100; t += 4) {
+            filter.update(t * 2, 0, t); //2000 px/s
+        }
+        assertEquals(200, filter.getX(), 20);
+    }
+
+    @Test
+    public void exponential_usesTimeBetweenSamples() throws Exception {
+        ExponentialFilter a = new ExponentialFilter(10);
+        a.update(0, 0, 0);
+        a.update(100, 0, 10); //one time constant in one step
+
+        ExponentialFilter b = new ExponentialFilter(10);
+        b.update(0, 0, 0);
+        for (int t = 1; t <= 10; t++) {
+            b.update(100, 0, t); //the same time in ten steps
+        }
+
+        assertEquals(100 * (1 - Math.exp(-1)), a.getX(), 0.01);
+        assertEquals(a.getX(), b.getX(), 0.01);
+        assertTrue(jitter(new ExponentialFilter(40)) < 0.2f);
+    }
+
+    @Test
+    public void median_removesSpikes() throws Exception {
+        MedianFilter filter = new MedianFilter(3);
+        filter.update(10, 10, 0);
+        filter.update(11, 10, 4);
+        filter.update(90, 10, 8); //spike
+        assertEquals(11, filter.getX(), 0);
+        filter.update(12, 10, 12);
+        assertEquals(12, filter.getX(), 0);
+        assertEquals(0, jitter(new MedianFilter(4)), 0);
+    }
+
+    @Test
+    public void reset_startsOver() throws Exception {
+        TouchFilter[] filters = {new OneEuroFilter(), new ExponentialFilter(20), new MedianFilter(5)};
+        for (TouchFilter filter : filters) {
+            filter.update(0, 0, 0);
+            filter.update(5, 5, 8);
+            filter.reset();
+            filter.update(70, 80, 100);
+            assertEquals(70, filter.getX(), 0);
+            assertEquals(80, filter.getY(), 0);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.matt.customjoystick_v2.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends frames through {@link UdpTransport} to a loopback receiver standing in for the robot
+ */
+public class UdpTransportTest {
+
+    private DatagramSocket receiver;
+    private UdpTransport transport;
+
+    private final JoystickKernel kernel = new JoystickKernel();
+    private final JoystickState state = new JoystickState();
+    private final FrameDecoder decoder = new FrameDecoder();
+    private final JoystickFrame frame = new JoystickFrame();
+
+    @Before
+    public void setUp() throws Exception {
+        receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        receiver.setSoTimeout(2000);
+        transport = new UdpTransport(receiver.getLocalSocketAddress());
+        kernel.setGeometry(210, 10); //center 105, radius 100
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.close();
+        receiver.close();
+    }
+
+    private void receive() throws Exception {
+        byte[] data = new byte[64];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        receiver.receive(packet);
+        assertEquals(JoystickFrame.SIZE, packet.getLength());
+        assertTrue(decoder.decode(ByteBuffer.wrap(data, 0, packet.getLength()), frame));
+    }
+
+    @Test
+    public void publishedOutputs_arriveDecoded() throws Exception {
+        kernel.process(155, 105, 1234L, state); //50% right
+        state.setButtons(0b101);
+        transport.onPublish(state, 0);
+        receive();
+
+        assertEquals(0, frame.getSequence());
+        assertEquals(1234L, frame.getEventTime());
+        assertEquals(50f, frame.getPercentageX(), 0.01f);
+        assertEquals(0f, frame.getPercentageY(), 0.01f);
+        assertEquals(50f, frame.getStrengthPercentage(), 0.01f);
+        assertEquals(0f, frame.getAngleRadians(), 0.001f);
+        assertEquals(0b101, frame.getButtons());
+
+        kernel.process(105, 5, 1250L, state); //100% up
+        transport.onPublish(state, 0);
+        receive();
+
+        assertEquals(1, frame.getSequence());
+        assertEquals(100f, frame.getPercentageY(), 0.01f);
+        assertEquals(100f, frame.getStrengthPercentage(), 0.01f);
+        assertEquals(Math.PI / 2, frame.getAngleRadians(), 0.001f);
+    }
+
+    @Test
+    public void heartbeat_resendsTheLatestOutputs() throws Exception {
+        transport.setHeartbeat(50);
+        kernel.process(155, 105, 1234L, state);
+        transport.onPublish(state, 0);
+        receive();
+        receive(); //nothing published; sent again by the heartbeat
+
+        assertEquals(1, frame.getSequence());
+        assertEquals(1234L, frame.getEventTime());
+        assertEquals(50f, frame.getPercentageX(), 0.01f);
+    }
+
+    @Test
+    public void decode_rejectsForeignData() throws Exception {
+        assertFalse(decoder.decode(ByteBuffer.wrap(new byte[JoystickFrame.SIZE]), frame));
+        assertFalse(decoder.decode(ByteBuffer.wrap(new byte[4]), frame));
+    }
+}